@@ -0,0 +1,150 @@
+package com.bellatrix.stationapp.analytique;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Faits des transactions rangés en colonnes (un tableau primitif par attribut, une ligne par transaction).
+ * Une instance est une vue figée : seules les lignes [0, taille) sont lues, même si le constructeur continue
+ * d'ajouter des lignes au-delà dans les mêmes tableaux. Les stations et les clients sont numérotés de façon dense
+ * (0, 1, 2...) pour que les regroupements se fassent dans des tableaux plutôt que dans des maps.
+ */
+final class ColonnesTransactions {
+
+    static final ColonnesTransactions VIDE = new Constructeur().publier();
+
+    final int taille;
+    final int[] jours;          // date de la transaction, en jours depuis le 01/01/1970
+    final int[] stations;       // numéro dense de la station
+    final int[] clients;        // numéro dense du client
+    final double[] litres;
+    final double[] montants;
+    final double[] points;      // points gagnés
+
+    final int nombreStations;
+    final long[] idsStations;   // numéro dense -> ID de la station
+    final int nombreClients;
+    final long[] idsClients;    // numéro dense -> ID du client
+
+    final long dernierId;
+    final LocalDateTime dateRafraichissement;
+
+    private ColonnesTransactions(Constructeur c) {
+        this.taille = c.taille;
+        this.jours = c.jours;
+        this.stations = c.stations;
+        this.clients = c.clients;
+        this.litres = c.litres;
+        this.montants = c.montants;
+        this.points = c.points;
+        this.nombreStations = c.nombreStations;
+        this.idsStations = c.idsStations;
+        this.nombreClients = c.nombreClients;
+        this.idsClients = c.idsClients;
+        this.dernierId = c.dernierId;
+        this.dateRafraichissement = LocalDateTime.now();
+    }
+
+    /**
+     * Numéro dense d'une station, -1 si elle n'a aucune transaction (il y a peu de stations : recherche linéaire).
+     */
+    int numeroStation(long stationId) {
+        for (int s = 0; s < nombreStations; s++) {
+            if (idsStations[s] == stationId) {
+                return s;
+            }
+        }
+        return -1;
+    }
+
+    int numeroClient(long clientId) {
+        for (int c = 0; c < nombreClients; c++) {
+            if (idsClients[c] == clientId) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Ajoute des lignes aux tableaux, puis publie des vues figées. Utilisé par un seul thread à la fois.
+     */
+    static final class Constructeur {
+
+        private static final int CAPACITE_INITIALE = 1024;
+
+        private int taille;
+        private int[] jours = new int[CAPACITE_INITIALE];
+        private int[] stations = new int[CAPACITE_INITIALE];
+        private int[] clients = new int[CAPACITE_INITIALE];
+        private double[] litres = new double[CAPACITE_INITIALE];
+        private double[] montants = new double[CAPACITE_INITIALE];
+        private double[] points = new double[CAPACITE_INITIALE];
+
+        private int nombreStations;
+        private long[] idsStations = new long[16];
+        private final Map<Long, Integer> numerosStations = new HashMap<>();
+        private int nombreClients;
+        private long[] idsClients = new long[CAPACITE_INITIALE];
+        private final Map<Long, Integer> numerosClients = new HashMap<>();
+
+        private long dernierId;
+
+        long dernierId() {
+            return dernierId;
+        }
+
+        void ajouter(long id, int jour, long stationId, long clientId, double litresAchetes, double montantTotal,
+                     double pointsGagnes) {
+            if (taille == jours.length) {
+                int capacite = jours.length + (jours.length >> 1);
+                jours = Arrays.copyOf(jours, capacite);
+                stations = Arrays.copyOf(stations, capacite);
+                clients = Arrays.copyOf(clients, capacite);
+                litres = Arrays.copyOf(litres, capacite);
+                montants = Arrays.copyOf(montants, capacite);
+                points = Arrays.copyOf(points, capacite);
+            }
+            jours[taille] = jour;
+            stations[taille] = numeroStation(stationId);
+            clients[taille] = numeroClient(clientId);
+            litres[taille] = litresAchetes;
+            montants[taille] = montantTotal;
+            points[taille] = pointsGagnes;
+            taille++;
+            dernierId = Math.max(dernierId, id);
+        }
+
+        ColonnesTransactions publier() {
+            return new ColonnesTransactions(this);
+        }
+
+        private int numeroStation(long stationId) {
+            Integer numero = numerosStations.get(stationId);
+            if (numero == null) {
+                if (nombreStations == idsStations.length) {
+                    idsStations = Arrays.copyOf(idsStations, nombreStations * 2);
+                }
+                idsStations[nombreStations] = stationId;
+                numero = nombreStations++;
+                numerosStations.put(stationId, numero);
+            }
+            return numero;
+        }
+
+        private int numeroClient(long clientId) {
+            Integer numero = numerosClients.get(clientId);
+            if (numero == null) {
+                if (nombreClients == idsClients.length) {
+                    idsClients = Arrays.copyOf(idsClients, nombreClients + (nombreClients >> 1));
+                }
+                idsClients[nombreClients] = clientId;
+                numero = nombreClients++;
+                numerosClients.put(clientId, numero);
+            }
+            return numero;
+        }
+    }
+}
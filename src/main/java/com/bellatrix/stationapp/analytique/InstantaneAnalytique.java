@@ -0,0 +1,287 @@
+package com.bellatrix.stationapp.analytique;
+
+import com.bellatrix.stationapp.dto.TotauxDashboardDto;
+import com.bellatrix.stationapp.repository.TransactionCarburantRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+/**
+ * Instantané en mémoire des faits de transactions (jour, station, client, litres, montant, points), rangés en
+ * colonnes, pour les tableaux de bord : les découpages par station, par jour et par client se font en parcourant
+ * des tableaux primitifs, sans requête Postgres.
+ *
+ * L'instantané est complété à intervalle régulier avec les transactions d'ID supérieur au dernier lu, et reconstruit
+ * entièrement de temps en temps : les ID venant de séquences allouées par blocs, une vente peut être validée après
+ * une vente d'ID plus grand (autre instance, journal différé) et ne serait sinon jamais lue.
+ * Les lectures utilisent la dernière vue publiée et ne prennent aucun verrou.
+ */
+@Component
+public class InstantaneAnalytique {
+
+    private static final Logger logger = LoggerFactory.getLogger(InstantaneAnalytique.class);
+
+    // Nombre maximum de jours d'une série journalière
+    private static final long JOURS_MAX_SERIE = 3660;
+
+    private final TransactionCarburantRepository transactionCarburantRepository;
+    private final TransactionTemplate lectureSeule;
+    private final boolean actif;
+    private final long reconstructionMs;
+
+    private volatile ColonnesTransactions colonnes = ColonnesTransactions.VIDE;
+
+    // État de l'écrivain, sous le verrou de rafraichir()
+    private ColonnesTransactions.Constructeur constructeur;
+    private long derniereReconstruction;
+
+    @Autowired
+    public InstantaneAnalytique(TransactionCarburantRepository transactionCarburantRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${application.analytique.actif:false}") boolean actif,
+                                @Value("${application.analytique.reconstruction-ms:3600000}") long reconstructionMs) {
+        this.transactionCarburantRepository = transactionCarburantRepository;
+        this.lectureSeule = new TransactionTemplate(transactionManager);
+        this.lectureSeule.setReadOnly(true);
+        this.actif = actif;
+        this.reconstructionMs = reconstructionMs;
+    }
+
+    /**
+     * Ajoute les nouvelles transactions à l'instantané, ou le reconstruit entièrement. Lancé à intervalle régulier
+     * par RechargementsEnFond : une reconstruction lit toute la table et ne doit pas occuper le planificateur.
+     */
+    public synchronized void rafraichir() {
+        if (!actif) {
+            return;
+        }
+        long maintenant = System.currentTimeMillis();
+        boolean reconstruire = constructeur == null || maintenant - derniereReconstruction >= reconstructionMs;
+        // Une reconstruction remplit un nouveau constructeur ; l'ancienne vue reste servie jusqu'à la publication
+        ColonnesTransactions.Constructeur cible = reconstruire ? new ColonnesTransactions.Constructeur() : constructeur;
+        try {
+            lectureSeule.executeWithoutResult(statut -> {
+                try (Stream<Object[]> faits = transactionCarburantRepository.streamFaitsApres(cible.dernierId())) {
+                    faits.forEach(fait -> cible.ajouter(((Number) fait[0]).longValue(), ((Number) fait[1]).intValue(),
+                            ((Number) fait[2]).longValue(), ((Number) fait[3]).longValue(),
+                            ((Number) fait[4]).doubleValue(), ((Number) fait[5]).doubleValue(),
+                            ((Number) fait[6]).doubleValue()));
+                }
+            });
+        } catch (RuntimeException e) {
+            // Les lignes déjà ajoutées au constructeur ne sont pas publiées : on repartira d'une reconstruction
+            constructeur = null;
+            logger.error("Rafraîchissement de l'instantané analytique impossible, nouvel essai au prochain passage.", e);
+            return;
+        }
+        constructeur = cible;
+        if (reconstruire) {
+            derniereReconstruction = maintenant;
+        }
+        int avant = colonnes.taille;
+        colonnes = cible.publier();
+        if (reconstruire) {
+            logger.info("Instantané analytique reconstruit : {} transaction(s) en {} ms.", colonnes.taille,
+                    System.currentTimeMillis() - maintenant);
+        } else if (colonnes.taille > avant) {
+            logger.debug("Instantané analytique : {} transaction(s) ajoutée(s).", colonnes.taille - avant);
+        }
+    }
+
+    /**
+     * Totaux d'une période, éventuellement limités à une station et/ou un client.
+     */
+    public TotauxDashboardDto totaux(LocalDate debut, LocalDate fin, Long stationId, Long clientId) {
+        ColonnesTransactions c = vue(debut, fin);
+        int j0 = (int) debut.toEpochDay();
+        int j1 = (int) fin.toEpochDay();
+        boolean toutesStations = stationId == null;
+        int station = toutesStations ? -1 : c.numeroStation(stationId);
+        boolean tousClients = clientId == null;
+        int client = tousClients ? -1 : c.numeroClient(clientId);
+
+        int[] jours = c.jours;
+        int[] stations = c.stations;
+        int[] clients = c.clients;
+        double[] litres = c.litres;
+        double[] montants = c.montants;
+        double[] points = c.points;
+        double totalLitres = 0;
+        double totalMontants = 0;
+        double totalPoints = 0;
+        long nombre = 0;
+        // Boucle sans branchement : chaque ligne est pondérée par 0 ou 1 selon le filtre
+        for (int i = 0; i < c.taille; i++) {
+            int jour = jours[i];
+            boolean retenue = (jour >= j0) & (jour <= j1)
+                    & (toutesStations | stations[i] == station)
+                    & (tousClients | clients[i] == client);
+            double poids = retenue ? 1.0 : 0.0;
+            totalLitres += poids * litres[i];
+            totalMontants += poids * montants[i];
+            totalPoints += poids * points[i];
+            nombre += retenue ? 1 : 0;
+        }
+        return new TotauxDashboardDto(null, totalLitres, totalMontants, totalPoints, nombre);
+    }
+
+    /**
+     * Totaux par station sur une période (stations sans vente sur la période omises).
+     */
+    public List<TotauxDashboardDto> parStation(LocalDate debut, LocalDate fin) {
+        ColonnesTransactions c = vue(debut, fin);
+        Cumuls cumuls = new Cumuls(c.nombreStations);
+        int j0 = (int) debut.toEpochDay();
+        int j1 = (int) fin.toEpochDay();
+        int[] jours = c.jours;
+        int[] stations = c.stations;
+        for (int i = 0; i < c.taille; i++) {
+            int jour = jours[i];
+            if (jour >= j0 && jour <= j1) {
+                cumuls.ajouter(stations[i], c, i);
+            }
+        }
+        List<TotauxDashboardDto> resultat = new ArrayList<>();
+        for (int s = 0; s < c.nombreStations; s++) {
+            if (cumuls.nombres[s] > 0) {
+                resultat.add(cumuls.totaux(s, String.valueOf(c.idsStations[s])));
+            }
+        }
+        return resultat;
+    }
+
+    /**
+     * Série journalière d'une période (tous les jours, y compris sans vente), éventuellement pour une station.
+     *
+     * @throws IllegalArgumentException si la période dépasse JOURS_MAX_SERIE jours.
+     */
+    public List<TotauxDashboardDto> parJour(LocalDate debut, LocalDate fin, Long stationId) {
+        ColonnesTransactions c = vue(debut, fin);
+        long nombreJours = ChronoUnit.DAYS.between(debut, fin) + 1;
+        if (nombreJours > JOURS_MAX_SERIE) {
+            throw new IllegalArgumentException("Une série journalière couvre au plus " + JOURS_MAX_SERIE + " jours.");
+        }
+        Cumuls cumuls = new Cumuls((int) nombreJours);
+        int j0 = (int) debut.toEpochDay();
+        boolean toutesStations = stationId == null;
+        int station = toutesStations ? -1 : c.numeroStation(stationId);
+        int[] jours = c.jours;
+        int[] stations = c.stations;
+        for (int i = 0; i < c.taille; i++) {
+            int decalage = jours[i] - j0;
+            if (decalage >= 0 && decalage < nombreJours && (toutesStations || stations[i] == station)) {
+                cumuls.ajouter(decalage, c, i);
+            }
+        }
+        List<TotauxDashboardDto> resultat = new ArrayList<>((int) nombreJours);
+        for (int d = 0; d < nombreJours; d++) {
+            resultat.add(cumuls.totaux(d, debut.plusDays(d).toString()));
+        }
+        return resultat;
+    }
+
+    /**
+     * Clients au plus gros chiffre d'affaires sur une période, éventuellement dans une station.
+     */
+    public List<TotauxDashboardDto> meilleursClients(LocalDate debut, LocalDate fin, Long stationId, int limite) {
+        if (limite <= 0) {
+            throw new IllegalArgumentException("La limite doit être positive.");
+        }
+        ColonnesTransactions c = vue(debut, fin);
+        Cumuls cumuls = new Cumuls(c.nombreClients);
+        int j0 = (int) debut.toEpochDay();
+        int j1 = (int) fin.toEpochDay();
+        boolean toutesStations = stationId == null;
+        int station = toutesStations ? -1 : c.numeroStation(stationId);
+        int[] jours = c.jours;
+        int[] stations = c.stations;
+        int[] clients = c.clients;
+        for (int i = 0; i < c.taille; i++) {
+            int jour = jours[i];
+            if (jour >= j0 && jour <= j1 && (toutesStations || stations[i] == station)) {
+                cumuls.ajouter(clients[i], c, i);
+            }
+        }
+        // Tas des "limite" meilleurs clients, le plus petit chiffre d'affaires en tête
+        PriorityQueue<Integer> meilleurs = new PriorityQueue<>(
+                (a, b) -> Double.compare(cumuls.montants[a], cumuls.montants[b]));
+        for (int k = 0; k < c.nombreClients; k++) {
+            if (cumuls.nombres[k] == 0) {
+                continue;
+            }
+            if (meilleurs.size() < limite) {
+                meilleurs.add(k);
+            } else if (cumuls.montants[k] > cumuls.montants[meilleurs.peek()]) {
+                meilleurs.poll();
+                meilleurs.add(k);
+            }
+        }
+        List<TotauxDashboardDto> resultat = new ArrayList<>(meilleurs.size());
+        while (!meilleurs.isEmpty()) {
+            int k = meilleurs.poll();
+            resultat.add(0, cumuls.totaux(k, String.valueOf(c.idsClients[k])));
+        }
+        return resultat;
+    }
+
+    public Map<String, Object> statistiques() {
+        ColonnesTransactions c = colonnes;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("actif", actif);
+        stats.put("transactions", c.taille);
+        stats.put("stations", c.nombreStations);
+        stats.put("clients", c.nombreClients);
+        stats.put("dernierId", c.dernierId);
+        stats.put("dateRafraichissement", c.dateRafraichissement);
+        return stats;
+    }
+
+    private ColonnesTransactions vue(LocalDate debut, LocalDate fin) {
+        if (!actif) {
+            throw new IllegalStateException("L'instantané analytique est désactivé (application.analytique.actif).");
+        }
+        if (fin.isBefore(debut)) {
+            throw new IllegalArgumentException("La date de fin précède la date de début.");
+        }
+        return colonnes;
+    }
+
+    // Totaux par groupe (station, jour ou client), indexés par numéro de groupe
+    private static final class Cumuls {
+        final double[] litres;
+        final double[] montants;
+        final double[] points;
+        final long[] nombres;
+
+        Cumuls(int groupes) {
+            litres = new double[groupes];
+            montants = new double[groupes];
+            points = new double[groupes];
+            nombres = new long[groupes];
+        }
+
+        void ajouter(int groupe, ColonnesTransactions c, int ligne) {
+            litres[groupe] += c.litres[ligne];
+            montants[groupe] += c.montants[ligne];
+            points[groupe] += c.points[ligne];
+            nombres[groupe]++;
+        }
+
+        TotauxDashboardDto totaux(int groupe, String cle) {
+            return new TotauxDashboardDto(cle, litres[groupe], montants[groupe], points[groupe], nombres[groupe]);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 // src/main/java/com/bellatrix/stationapp/config/AppConfig.java
 package com.bellatrix.stationapp.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -9,8 +10,14 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 @Configuration
 public class AppConfig {
 
-    @Bean // Définit le PasswordEncoder comme un bean autonome
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    // Définit le PasswordEncoder comme un bean autonome.
+    // BCrypt de coût application.security.bcrypt.force, calculé sur un pool borné (voir EncodeurMotsDePasseBorne).
+    // Les hashes d'un coût inférieur sont recalculés à la connexion suivante (UtilisateurService.updatePassword).
+    @Bean(destroyMethod = "shutdown")
+    public PasswordEncoder passwordEncoder(@Value("${application.security.bcrypt.force:10}") int force,
+                                           @Value("${application.security.mots-de-passe.threads:2}") int threads,
+                                           @Value("${application.security.mots-de-passe.file:32}") int file,
+                                           @Value("${application.security.mots-de-passe.attente-max-ms:2000}") long attenteMaxMs) {
+        return new EncodeurMotsDePasseBorne(new BCryptPasswordEncoder(force), threads, file, attenteMaxMs);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,91 @@
+package com.bellatrix.stationapp.config;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PasswordEncoder qui exécute les hachages et vérifications (BCrypt) sur un pool de threads dédié et borné.
+ *
+ * Avec des threads virtuels, rien ne limite le nombre de vérifications BCrypt simultanées : une rafale de connexions
+ * (changement d'équipe, attaque par liste d'identifiants) occuperait tous les cœurs au détriment des ventes.
+ * Ici, au plus "threads" calculs tournent en même temps et "file" attendent ; au-delà, ou si le calcul n'a pas
+ * commencé à temps, l'appel est refusé immédiatement par une RejectedExecutionException.
+ */
+public class EncodeurMotsDePasseBorne implements PasswordEncoder {
+
+    private final PasswordEncoder cible;
+    private final ThreadPoolExecutor executeur;
+    private final long attenteMaxMs;
+
+    public EncodeurMotsDePasseBorne(PasswordEncoder cible, int threads, int file, long attenteMaxMs) {
+        if (threads <= 0 || file <= 0) {
+            throw new IllegalArgumentException("Le pool de hachage des mots de passe doit avoir au moins un thread et une place en file.");
+        }
+        this.cible = cible;
+        this.attenteMaxMs = attenteMaxMs;
+        AtomicInteger numero = new AtomicInteger();
+        this.executeur = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(file), tache -> {
+            Thread thread = new Thread(tache, "mots-de-passe-" + numero.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public String encode(CharSequence motDePasse) {
+        return executer(() -> cible.encode(motDePasse));
+    }
+
+    @Override
+    public boolean matches(CharSequence motDePasse, String hache) {
+        return executer(() -> cible.matches(motDePasse, hache));
+    }
+
+    // Lit seulement le coût inscrit dans le hash : pas de calcul, donc pas de passage par le pool
+    @Override
+    public boolean upgradeEncoding(String hache) {
+        return cible.upgradeEncoding(hache);
+    }
+
+    /**
+     * Arrête le pool (appelé par Spring à la fermeture du contexte).
+     */
+    public void shutdown() {
+        executeur.shutdownNow();
+    }
+
+    private <T> T executer(Callable<T> calcul) {
+        Future<T> resultat;
+        try {
+            resultat = executeur.submit(calcul);
+        } catch (RejectedExecutionException e) {
+            throw new RejectedExecutionException("Trop de vérifications de mots de passe en cours.");
+        }
+        try {
+            return resultat.get(attenteMaxMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            resultat.cancel(true);
+            throw new RejectedExecutionException("Vérification du mot de passe non traitée à temps (attente > "
+                    + attenteMaxMs + " ms).");
+        } catch (InterruptedException e) {
+            resultat.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompu pendant la vérification du mot de passe.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Vérification du mot de passe impossible.", e.getCause());
+        }
+    }
+}
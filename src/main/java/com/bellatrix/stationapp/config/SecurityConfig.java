@@ -70,6 +70,7 @@ public class SecurityConfig {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userService);
         authProvider.setPasswordEncoder(passwordEncoder);
+        authProvider.setUserDetailsPasswordService(userService); // Recalcule les hashes d'un coût BCrypt dépassé
         return authProvider;
     }
 
@@ -84,7 +85,8 @@ public class SecurityConfig {
         // Assurez-vous que toutes vos origines frontend sont bien incluses ici
         configuration.setAllowedOrigins(List.of("https://stationlp.onrender.com","http://localhost:8080", "http://localhost:8081", "http://192.168.111.157:8081"));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
-        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "Cache-Control", "Accept"));
+        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "Cache-Control", "Accept",
+                "Idempotency-Key"));
         configuration.setAllowCredentials(true);
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
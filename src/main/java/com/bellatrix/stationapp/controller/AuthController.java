@@ -3,18 +3,27 @@ package com.bellatrix.stationapp.controller;
 
 import com.bellatrix.stationapp.model.Role;
 import com.bellatrix.stationapp.model.Utilisateur;
+import com.bellatrix.stationapp.security.JetonVerifie;
+import com.bellatrix.stationapp.security.JetonsRevoques;
 import com.bellatrix.stationapp.security.JwtService;
+import com.bellatrix.stationapp.security.LimiteurConnexions;
 import com.bellatrix.stationapp.service.UtilisateurService;
-import com.bellatrix.stationapp.model.CarteFidelite;
 import com.bellatrix.stationapp.service.CarteFideliteService;
+import com.bellatrix.stationapp.service.IndexCartesFidelite;
 import com.bellatrix.stationapp.payload.request.ClientLoginRequest;
 
+import io.jsonwebtoken.JwtException;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import lombok.extern.slf4j.Slf4j; // NOUVEAU: Import pour l'annotation @Slf4j
@@ -22,6 +31,7 @@ import lombok.extern.slf4j.Slf4j; // NOUVEAU: Import pour l'annotation @Slf4j
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 @RestController
@@ -34,25 +44,43 @@ public class AuthController {
     private final JwtService jwtService;
     private final UtilisateurService userService;
     private final CarteFideliteService carteFideliteService;
+    private final LimiteurConnexions limiteurConnexions;
+    private final JetonsRevoques jetonsRevoques;
+    // Retry-After quand le pool de hachage des mots de passe est saturé : au-delà de son attente maximale,
+    // les calculs en file ont été traités ou abandonnés
+    private final long secondesSaturation;
 
     @Autowired
     public AuthController(AuthenticationManager authenticationManager, JwtService jwtService, UtilisateurService userService,
-                          CarteFideliteService carteFideliteService) {
+                          CarteFideliteService carteFideliteService, LimiteurConnexions limiteurConnexions,
+                          JetonsRevoques jetonsRevoques,
+                          @Value("${application.security.mots-de-passe.attente-max-ms:2000}") long attenteMaxMs) {
         this.authenticationManager = authenticationManager;
         this.jwtService = jwtService;
         this.userService = userService;
         this.carteFideliteService = carteFideliteService;
+        this.limiteurConnexions = limiteurConnexions;
+        this.jetonsRevoques = jetonsRevoques;
+        this.secondesSaturation = Math.max(1, (attenteMaxMs + 999) / 1000);
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> authenticateUtilisateur(@RequestBody Map<String, String> loginRequest) {
+    public ResponseEntity<?> authenticateUtilisateur(@RequestBody Map<String, String> loginRequest, HttpServletRequest request) {
+        // Tentatives limitées par nom d'utilisateur et par IP, avant toute requête ou calcul BCrypt
+        if (!limiteurConnexions.autoriser(loginRequest.get("username"), request.getRemoteAddr())) {
+            log.warn("Trop de tentatives de connexion pour {} depuis {}", loginRequest.get("username"), request.getRemoteAddr());
+            return trop("Trop de tentatives de connexion. Réessayez plus tard.",
+                    limiteurConnexions.secondesAvantNouvelEssai(loginRequest.get("username"), request.getRemoteAddr()));
+        }
         try {
             Authentication authentication = authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(loginRequest.get("username"), loginRequest.get("password"))
             );
             SecurityContextHolder.getContext().setAuthentication(authentication);
             Utilisateur utilisateurDetails = (Utilisateur) authentication.getPrincipal();
-            String jwt = jwtService.generateToken(utilisateurDetails.getUsername(), utilisateurDetails.getRole().name());
+            Long stationId = utilisateurDetails.getStationService() != null ? utilisateurDetails.getStationService().getId() : null;
+            String jwt = jwtService.generateToken(utilisateurDetails.getUsername(), utilisateurDetails.getRole().name(),
+                    utilisateurDetails.getId(), stationId, utilisateurDetails.getVersionJeton());
             String roleName = utilisateurDetails.getRole().name();
             return ResponseEntity.ok(Map.of(
                     "token", jwt,
@@ -61,6 +89,20 @@ public class AuthController {
                     "username", utilisateurDetails.getUsername(),
                     "role", roleName
             ));
+        } catch (RejectedExecutionException e) {
+            // Pool de vérification des mots de passe saturé : refus immédiat plutôt qu'une attente
+            return connexionSaturee(e);
+        } catch (InternalAuthenticationServiceException e) {
+            // Refus du pool enveloppé par le fournisseur d'authentification (chargement de l'utilisateur) : même réponse
+            if (e.getCause() instanceof RejectedExecutionException saturation) {
+                return connexionSaturee(saturation);
+            }
+            log.error("Authentication error for utilisateur: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "Identifiants invalides"));
+        } catch (AuthenticationException e) {
+            // Identifiants invalides : cas courant, pas de pile d'appels dans les logs
+            log.warn("Authentication error for utilisateur: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "Identifiants invalides"));
         } catch (Exception e) {
             log.error("Authentication error for utilisateur: {}", e.getMessage(), e); // Utilisation de log.error avec stack trace
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "Identifiants invalides"));
@@ -68,7 +110,13 @@ public class AuthController {
     }
 
     @PostMapping("/register")
-    public ResponseEntity<?> registerUtilisateur(@RequestBody Map<String, String> registerRequest) {
+    public ResponseEntity<?> registerUtilisateur(@RequestBody Map<String, String> registerRequest, HttpServletRequest request) {
+        // Chaque inscription coûte un calcul BCrypt : mêmes limites par nom d'utilisateur et par IP que la connexion
+        if (!limiteurConnexions.autoriser(registerRequest.get("username"), request.getRemoteAddr())) {
+            log.warn("Too many registration attempts for {} from {}", registerRequest.get("username"), request.getRemoteAddr());
+            return trop("Trop de tentatives d'inscription. Réessayez plus tard.",
+                    limiteurConnexions.secondesAvantNouvelEssai(registerRequest.get("username"), request.getRemoteAddr()));
+        }
         try {
             Role defaultRole = Role.CLIENT_WEB;
             Utilisateur nouvelUtilisateur = userService.registerNewUtilisateur(
@@ -80,49 +128,67 @@ public class AuthController {
         } catch (IllegalArgumentException e) {
             log.error("Registration error: {}", e.getMessage());
             return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+        } catch (RejectedExecutionException e) {
+            log.warn("Registration refused, password hashing saturated: {}", e.getMessage());
+            return trop("Service saturé. Réessayez dans quelques instants.", secondesSaturation);
         } catch (Exception e) {
             log.error("Unexpected error during user registration: {}", e.getMessage(), e);
             return new ResponseEntity<>("Erreur lors de l'enregistrement de l'utilisateur.", HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
-    // NOUVEL ENDPOINT : Connexion pour les clients via le numéro de carte de fidélité (AVEC LOGS DE DÉBUG)
+    // Déconnexion : le token présenté est refusé jusqu'à son expiration, sur toutes les instances
+    // Path: /api/auth/logout (en-tête Authorization: Bearer <token>)
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader(value = "Authorization", required = false) String authHeader) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Token manquant."));
+        }
+        try {
+            JetonVerifie jeton = jwtService.verifier(authHeader.substring(7));
+            jetonsRevoques.revoquer(jeton);
+            return ResponseEntity.ok(Map.of("message", "Déconnexion effectuée."));
+        } catch (JwtException e) {
+            // Token invalide ou déjà expiré : il n'est de toute façon plus accepté
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "Token invalide ou expiré."));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Erreur lors de la déconnexion: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("message", "Erreur lors de la déconnexion."));
+        }
+    }
+
+    // Connexion pour les clients via le numéro de carte de fidélité.
+    // Servie par l'index des cartes en mémoire (IndexCartesFidelite) : aucun accès à la base par tentative.
     @PostMapping("/client-login")
     public ResponseEntity<?> authenticateClientByCard(@RequestBody ClientLoginRequest clientLoginRequest) {
-        log.info("--- Début de la requête /api/auth/client-login ---");
         String numeroCarte = clientLoginRequest.getNumeroCarte();
-        log.info("Numéro de carte reçu : {}", numeroCarte);
 
         try {
             // 1. Trouver la carte de fidélité par le numéro de carte
-            Optional<CarteFidelite> optionalCarte = carteFideliteService.getCarteFideliteByNumeroCarte(numeroCarte);
-            log.debug("Résultat de la recherche de carte : {}", optionalCarte.isPresent() ? "trouvée" : "non trouvée");
+            Optional<IndexCartesFidelite.CarteIndexee> optionalCarte = carteFideliteService.trouverPourConnexion(numeroCarte);
 
             if (optionalCarte.isEmpty()) {
-                log.warn("Carte de fidélité introuvable pour le numéro : {}", numeroCarte);
+                // Fréquent aux bornes (numéro mal saisi) : pas de trace au-delà du niveau DEBUG
+                log.debug("Carte de fidélité introuvable pour le numéro : {}", numeroCarte);
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "Numéro de carte de fidélité introuvable."));
             }
 
-            CarteFidelite carte = optionalCarte.get();
-            log.debug("Carte de fidélité trouvée, ID : {}", carte.getId());
-            log.debug("Statut actif de la carte : {}", carte.getActive());
+            IndexCartesFidelite.CarteIndexee carte = optionalCarte.get();
 
             // 2. Vérifier si la carte est active
-            if (!carte.getActive()) {
+            if (!carte.active()) {
                 log.warn("Tentative de connexion avec une carte inactive pour le numéro : {}", numeroCarte);
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "Votre carte de fidélité est inactive."));
             }
 
-            // Récupération de l'ID du client lié à la carte
-            Long clientId = carte.getClient().getId(); // C'est ici que l'erreur pourrait se produire si getClient() est null
-            log.debug("ID du client associé à la carte : {}", clientId);
-
             // 3. Générer le JWT avec les informations du client
+            long clientId = carte.clientId();
             String jwt = jwtService.generateToken(numeroCarte, Role.CLIENT_WEB.name());
-            log.debug("JWT généré pour le numéro de carte : {}", numeroCarte);
 
             // 4. Retourner la réponse
-            log.info("Connexion client réussie pour le numéro de carte : {}", numeroCarte);
+            log.debug("Connexion client réussie pour le numéro de carte : {} (client {})", numeroCarte, clientId);
             return ResponseEntity.ok(Map.of(
                     "token", jwt,
                     "isAuthenticated", true,
@@ -131,11 +197,20 @@ public class AuthController {
                     "role", Role.CLIENT_WEB.name()
             ));
         } catch (Exception e) {
-            // Loguer l'exception complète ici
             log.error("Erreur inattendue lors de la connexion client pour le numéro de carte {}: {}", numeroCarte, e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("message", "Une erreur interne est survenue. Veuillez réessayer plus tard."));
-        } finally {
-            log.info("--- Fin de la requête /api/auth/client-login ---");
         }
     }
+
+    // Réponse 429 immédiate, avec un délai indicatif avant une nouvelle tentative
+    private ResponseEntity<Map<String, String>> connexionSaturee(RejectedExecutionException e) {
+        log.warn("Connexion refusée, vérification des mots de passe saturée: {}", e.getMessage());
+        return trop("Service de connexion saturé. Réessayez dans quelques instants.", secondesSaturation);
+    }
+
+    private static ResponseEntity<Map<String, String>> trop(String message, long secondes) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(secondes))
+                .body(Map.of("message", message));
+    }
 }
\ No newline at end of file
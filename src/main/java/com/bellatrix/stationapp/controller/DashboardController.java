@@ -0,0 +1,90 @@
+package com.bellatrix.stationapp.controller;
+
+import com.bellatrix.stationapp.analytique.InstantaneAnalytique;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Tableaux de bord d'administration, servis par l'instantané analytique en mémoire (aucune requête Postgres).
+ * Les chiffres peuvent avoir quelques secondes de retard (application.analytique.intervalle-ms).
+ */
+@RestController
+@RequestMapping("/api/dashboard")
+public class DashboardController {
+
+    private final InstantaneAnalytique instantaneAnalytique;
+
+    @Autowired
+    public DashboardController(InstantaneAnalytique instantaneAnalytique) {
+        this.instantaneAnalytique = instantaneAnalytique;
+    }
+
+    // Path: /api/dashboard/totaux?startDate=YYYY-MM-DD&endDate=YYYY-MM-DD[&stationId=ID][&clientId=ID]
+    @GetMapping("/totaux")
+    // @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<?> getTotaux(@RequestParam String startDate,
+                                       @RequestParam String endDate,
+                                       @RequestParam(required = false) Long stationId,
+                                       @RequestParam(required = false) Long clientId) {
+        return repondre(() -> instantaneAnalytique.totaux(LocalDate.parse(startDate), LocalDate.parse(endDate),
+                stationId, clientId));
+    }
+
+    // Path: /api/dashboard/stations?startDate=YYYY-MM-DD&endDate=YYYY-MM-DD
+    @GetMapping("/stations")
+    // @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<?> getParStation(@RequestParam String startDate,
+                                           @RequestParam String endDate) {
+        return repondre(() -> instantaneAnalytique.parStation(LocalDate.parse(startDate), LocalDate.parse(endDate)));
+    }
+
+    // Path: /api/dashboard/jours?startDate=YYYY-MM-DD&endDate=YYYY-MM-DD[&stationId=ID]
+    @GetMapping("/jours")
+    // @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<?> getParJour(@RequestParam String startDate,
+                                        @RequestParam String endDate,
+                                        @RequestParam(required = false) Long stationId) {
+        return repondre(() -> instantaneAnalytique.parJour(LocalDate.parse(startDate), LocalDate.parse(endDate), stationId));
+    }
+
+    // Path: /api/dashboard/clients?startDate=YYYY-MM-DD&endDate=YYYY-MM-DD[&stationId=ID]&limit=20
+    @GetMapping("/clients")
+    // @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<?> getMeilleursClients(@RequestParam String startDate,
+                                                 @RequestParam String endDate,
+                                                 @RequestParam(required = false) Long stationId,
+                                                 @RequestParam(defaultValue = "20") int limit) {
+        return repondre(() -> instantaneAnalytique.meilleursClients(LocalDate.parse(startDate), LocalDate.parse(endDate),
+                stationId, limit));
+    }
+
+    // Path: /api/dashboard/stats
+    @GetMapping("/stats")
+    // @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getStatistiques() {
+        return new ResponseEntity<>(instantaneAnalytique.statistiques(), HttpStatus.OK);
+    }
+
+    private ResponseEntity<?> repondre(Supplier<?> requete) {
+        try {
+            return new ResponseEntity<>(requete.get(), HttpStatus.OK);
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            // Instantané désactivé
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+}
@@ -11,6 +11,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime; // Pour gérer les dates
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
@@ -34,6 +35,14 @@ public class ReglePointsController {
         return new ResponseEntity<>(dtos, HttpStatus.OK);
     }
 
+    // Compteurs du cache de la règle active
+    // Path: /api/regles-points/cache/stats
+    @GetMapping("/cache/stats")
+    // @PreAuthorize("hasAuthority('ADMIN')") // Décommentez ceci pour réactiver la sécurité
+    public ResponseEntity<Map<String, Long>> getStatistiquesCache() {
+        return new ResponseEntity<>(reglePointService.getStatistiquesCacheRegleActive(), HttpStatus.OK);
+    }
+
     @GetMapping("/{id}")
     // @PreAuthorize("hasAuthority('ADMIN')") // Décommentez ceci pour réactiver la sécurité
     public ResponseEntity<ReglePointsDto> getReglePointById(@PathVariable Long id) {
@@ -5,41 +5,85 @@ import com.bellatrix.stationapp.model.Client;
 import com.bellatrix.stationapp.model.StationService;
 import com.bellatrix.stationapp.model.Utilisateur;
 import com.bellatrix.stationapp.dto.TransactionCarburantDto;
+import com.bellatrix.stationapp.dto.AchatBatchResultatDto;
+import com.bellatrix.stationapp.dto.AchatsBatchReponseDto;
+import com.bellatrix.stationapp.dto.AgregatTransactions;
+import com.bellatrix.stationapp.dto.ErreurDto;
+import com.bellatrix.stationapp.dto.MouvementPointsDto;
+import com.bellatrix.stationapp.dto.PageTransactionsDto;
+import com.bellatrix.stationapp.dto.RecapitulatifPeriodeDto;
+import com.bellatrix.stationapp.dto.SoldePointsDto;
+import com.bellatrix.stationapp.payload.request.AchatCarburantRequest;
+import com.bellatrix.stationapp.payload.request.AjustementPointsRequest;
+import com.bellatrix.stationapp.exception.RequeteInvalideException;
+import com.bellatrix.stationapp.journal.JournalTransactions;
 import com.bellatrix.stationapp.dto.ClientDto; // Important: utilisez votre ClientDto pour le solde de points
 import com.bellatrix.stationapp.model.TransactionCarburant;
 import com.bellatrix.stationapp.service.ClientService; // Assurez-vous d'importer ClientService
+import com.bellatrix.stationapp.service.ExportTransactionsService;
+import com.bellatrix.stationapp.service.GrandLivrePointsService;
+import com.bellatrix.stationapp.service.RecapitulatifService;
 import com.bellatrix.stationapp.service.StationServiceService;
 import com.bellatrix.stationapp.service.TransactionService;
 import com.bellatrix.stationapp.service.UtilisateurService;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.security.access.prepost.PreAuthorize; // Si vous utilisez Spring Security
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.DateTimeException;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/transactions")
 public class TransactionController {
 
+    private static final Logger logger = LoggerFactory.getLogger(TransactionController.class);
+
     private final TransactionService transactionService;
     private final ClientService clientService; // ClientService est essentiel ici
     private final StationServiceService stationServiceService;
     private final UtilisateurService utilisateurService;
+    private final JournalTransactions journalTransactions;
+    private final GrandLivrePointsService grandLivrePointsService;
+    private final RecapitulatifService recapitulatifService;
+    private final ExportTransactionsService exportTransactionsService;
 
     @Autowired
     public TransactionController(TransactionService transactionService,
                                  ClientService clientService,
                                  StationServiceService stationServiceService,
-                                 UtilisateurService utilisateurService) {
+                                 UtilisateurService utilisateurService,
+                                 JournalTransactions journalTransactions,
+                                 GrandLivrePointsService grandLivrePointsService,
+                                 RecapitulatifService recapitulatifService,
+                                 ExportTransactionsService exportTransactionsService) {
         this.transactionService = transactionService;
         this.clientService = clientService;
         this.stationServiceService = stationServiceService;
         this.utilisateurService = utilisateurService;
+        this.journalTransactions = journalTransactions;
+        this.grandLivrePointsService = grandLivrePointsService;
+        this.recapitulatifService = recapitulatifService;
+        this.exportTransactionsService = exportTransactionsService;
     }
 
     @GetMapping
@@ -49,43 +93,123 @@ public class TransactionController {
         return new ResponseEntity<>(transactions, HttpStatus.OK);
     }
 
+    // NOUVEL ENDPOINT : Liste paginée par curseur (les plus récentes d'abord)
+    // Path: /api/transactions/page?size=50 puis /api/transactions/page?cursor=<curseurSuivant>&size=50
+    @GetMapping("/page")
+    // @PreAuthorize("hasAnyAuthority('ADMIN', 'STATION_EMPLOYEE')")
+    public ResponseEntity<?> getTransactionsPage(@RequestParam(required = false) String cursor,
+                                                 @RequestParam(required = false) Integer size) {
+        try {
+            return new ResponseEntity<>(transactionService.getTransactionsPage(cursor, size), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(ErreurDto.of(ErreurDto.CODE_REQUETE_INVALIDE, e.getMessage()), HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     @PostMapping("/achat")
     // @PreAuthorize("hasAnyAuthority('STATION_EMPLOYEE', 'ADMIN')")
-    public ResponseEntity<?> enregistrerAchatCarburant(@RequestBody Map<String, Object> payload) {
+    public ResponseEntity<?> enregistrerAchatCarburant(@RequestBody AchatCarburantRequest achat,
+                                                       @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        // La clé peut venir de l'en-tête standard ou du corps de la requête
+        String cleIdempotence = idempotencyKey != null ? idempotencyKey : achat.cleIdempotence();
         try {
-            Long clientId = Long.valueOf(payload.get("clientId").toString());
-            Long stationServiceId = Long.valueOf(payload.get("stationServiceId").toString());
-            Long utilisateurId = Long.valueOf(payload.get("utilisateurId").toString());
-            Double litresAchetes = Double.valueOf(payload.get("litresAchetes").toString());
-            Double montantTotal = Double.valueOf(payload.get("montantTotal").toString());
-            Boolean utiliserPoints = (Boolean) payload.getOrDefault("utiliserPoints", false);
+            achat.verifierChampsObligatoires();
+
+            // Renvoi d'une vente déjà enregistrée : on renvoie la transaction d'origine sans rien réécrire
+            Optional<TransactionCarburantDto> existante = transactionService.trouverTransactionParCleIdempotence(cleIdempotence);
+            if (existante.isPresent()) {
+                return new ResponseEntity<>(existante.get(), HttpStatus.OK);
+            }
 
             // Charger les entités complètes depuis leurs services pour la logique métier
-            Client client = clientService.getClientById(clientId)
+            Client client = clientService.getClientById(achat.clientId())
                     .orElseThrow(() -> new IllegalArgumentException("Client introuvable."));
-            StationService station = stationServiceService.getStationServiceById(stationServiceId)
+            StationService station = stationServiceService.getStationServiceById(achat.stationServiceId())
                     .orElseThrow(() -> new IllegalArgumentException("Station-service introuvable."));
-            Utilisateur utilisateur = utilisateurService.getUtilisateurById(utilisateurId)
+            Utilisateur utilisateur = utilisateurService.getUtilisateurById(achat.utilisateurId())
                     .orElseThrow(() -> new IllegalArgumentException("Utilisateur introuvable."));
 
             // Appel au service transactionnel
             TransactionCarburant transaction = transactionService.enregistrerAchatCarburant(
-                    client, station, utilisateur, litresAchetes, montantTotal, utiliserPoints
+                    client, station, utilisateur, achat.litresAchetes(), achat.montantTotal(),
+                    Boolean.TRUE.equals(achat.utiliserPoints()), cleIdempotence
             );
 
             // Mapper l'entité sauvegardée vers un DTO avant de la renvoyer
             TransactionCarburantDto transactionDto = new TransactionCarburantDto(transaction);
+            if (transaction.getId() == null) {
+                // Vente inscrite dans le journal : solde à jour, ligne de transaction écrite en différé
+                return new ResponseEntity<>(transactionDto, HttpStatus.ACCEPTED);
+            }
             return new ResponseEntity<>(transactionDto, HttpStatus.CREATED);
+        } catch (RequeteInvalideException e) {
+            return new ResponseEntity<>(new ErreurDto(ErreurDto.CODE_REQUETE_INVALIDE, e.getMessage(), e.getChamps()), HttpStatus.BAD_REQUEST);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(ErreurDto.of(ErreurDto.CODE_REQUETE_INVALIDE, e.getMessage()), HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(ErreurDto.of(ErreurDto.CODE_CONFLIT, e.getMessage()), HttpStatus.CONFLICT);
+        } catch (DataIntegrityViolationException e) {
+            // Deux envois simultanés de la même clé : le second échoue sur la contrainte unique
+            Optional<TransactionCarburantDto> existante = transactionService.trouverTransactionParCleIdempotence(cleIdempotence);
+            if (existante.isPresent()) {
+                return new ResponseEntity<>(existante.get(), HttpStatus.OK);
+            }
+            return new ResponseEntity<>(ErreurDto.of(ErreurDto.CODE_CONFLIT, "Conflit lors de l'enregistrement de la transaction."), HttpStatus.CONFLICT);
+        } catch (Exception e) {
+            logger.error("Erreur lors de l'enregistrement d'un achat de carburant", e);
+            return new ResponseEntity<>(ErreurDto.of(ErreurDto.CODE_ERREUR_INTERNE,
+                    "Erreur interne du serveur lors de l'enregistrement de la transaction."), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // Corps JSON illisible ou de mauvais type (ex. "litresAchetes": "abc") : réponse structurée plutôt que la page d'erreur par défaut
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<ErreurDto> corpsIllisible(HttpMessageNotReadableException e) {
+        List<String> champs = e.getCause() instanceof JsonMappingException mapping
+                ? mapping.getPath().stream()
+                        .map(JsonMappingException.Reference::getFieldName)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList())
+                : List.of();
+        return new ResponseEntity<>(new ErreurDto(ErreurDto.CODE_REQUETE_INVALIDE, "Corps de la requête invalide.", champs),
+                HttpStatus.BAD_REQUEST);
+    }
+
+    // NOUVEL ENDPOINT : Ingestion par lot des ventes bufferisées par les terminaux
+    // Path: /api/transactions/achats/batch
+    // Corps de la requête (JSON): [ { "clientId": 1, "stationServiceId": 1, "utilisateurId": 2, "litresAchetes": 30.0,
+    //                                "montantTotal": 45.0, "utiliserPoints": false, "dateTransaction": "2024-05-01T08:15:00" }, ... ]
+    // Réponse: le résultat de chaque vente (ENREGISTRE ou REJETE avec le motif), dans l'ordre du lot
+    @PostMapping("/achats/batch")
+    // @PreAuthorize("hasAnyAuthority('STATION_EMPLOYEE', 'ADMIN')")
+    public ResponseEntity<?> enregistrerAchatsCarburantEnLot(@RequestBody List<AchatCarburantRequest> achats) {
+        try {
+            List<AchatBatchResultatDto> resultats = transactionService.enregistrerAchatsCarburantEnLot(achats);
+            return new ResponseEntity<>(new AchatsBatchReponseDto(resultats), HttpStatus.OK);
         } catch (IllegalArgumentException e) {
-            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+            return new ResponseEntity<>(ErreurDto.of(ErreurDto.CODE_REQUETE_INVALIDE, e.getMessage()), HttpStatus.BAD_REQUEST);
         } catch (IllegalStateException e) {
-            return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+            return new ResponseEntity<>(ErreurDto.of(ErreurDto.CODE_CONFLIT, e.getMessage()), HttpStatus.CONFLICT);
+        } catch (DataIntegrityViolationException e) {
+            // Une clé du lot a été enregistrée en parallèle : le lot entier est annulé, le terminal peut le renvoyer tel quel
+            return new ResponseEntity<>(ErreurDto.of(ErreurDto.CODE_CONFLIT,
+                    "Une vente du lot a été enregistrée en parallèle, veuillez renvoyer le lot."), HttpStatus.CONFLICT);
         } catch (Exception e) {
-            e.printStackTrace();
-            return new ResponseEntity<>("Erreur interne du serveur lors de l'enregistrement de la transaction: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+            logger.error("Erreur lors de l'enregistrement d'un lot d'achats de carburant", e);
+            return new ResponseEntity<>(ErreurDto.of(ErreurDto.CODE_ERREUR_INTERNE,
+                    "Erreur interne du serveur lors de l'enregistrement du lot."), HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
+    // NOUVEL ENDPOINT : Métriques du journal des transactions (retard de l'écriture différée)
+    // Path: /api/transactions/journal/stats
+    @GetMapping("/journal/stats")
+    // @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getStatistiquesJournal() {
+        return new ResponseEntity<>(journalTransactions.statistiques(), HttpStatus.OK);
+    }
 
     // NOUVEL ENDPOINT : Récupérer les transactions pour un client spécifique
     // Path: /api/transactions/client/{clientId}
@@ -102,6 +226,22 @@ public class TransactionController {
         }
     }
 
+    // NOUVEL ENDPOINT : Historique paginé d'un client
+    // Path: /api/transactions/client/{clientId}/page?cursor=<curseurSuivant>&size=50
+    @GetMapping("/client/{clientId}/page")
+    // @PreAuthorize("hasAnyAuthority('ADMIN', 'CLIENT_WEB', 'STATION_EMPLOYEE')")
+    public ResponseEntity<?> getTransactionsPageByClientId(@PathVariable Long clientId,
+                                                           @RequestParam(required = false) String cursor,
+                                                           @RequestParam(required = false) Integer size) {
+        try {
+            return new ResponseEntity<>(transactionService.getTransactionsPageByClientId(clientId, cursor, size), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(ErreurDto.of(ErreurDto.CODE_REQUETE_INVALIDE, e.getMessage()), HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     // NOUVEL ENDPOINT : Récupérer le solde de points d'un client
     // Path: /api/transactions/clients/{clientId}/points
     @GetMapping("/clients/{clientId}/points") // Le chemin '/clients' dans '/api/transactions/clients' est conventionnel ici
@@ -119,17 +259,79 @@ public class TransactionController {
         }
     }
 
+    // NOUVEL ENDPOINT : Solde de points d'un client à une date donnée (audits, litiges)
+    // Path: /api/transactions/clients/{clientId}/points/solde?date=YYYY-MM-DDTHH:MM:SS (maintenant par défaut)
+    @GetMapping("/clients/{clientId}/points/solde")
+    // @PreAuthorize("hasAnyAuthority('ADMIN', 'CLIENT_WEB')")
+    public ResponseEntity<SoldePointsDto> getSoldePointsAu(@PathVariable Long clientId,
+                                                           @RequestParam(required = false) String date) {
+        try {
+            LocalDateTime dateSolde = date != null ? LocalDateTime.parse(date) : LocalDateTime.now();
+            if (clientService.getClientById(clientId).isEmpty()) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+            double solde = grandLivrePointsService.soldeAu(clientId, dateSolde);
+            return new ResponseEntity<>(new SoldePointsDto(clientId, dateSolde, solde), HttpStatus.OK);
+        } catch (DateTimeParseException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // NOUVEL ENDPOINT : Mouvements de points d'un client sur une période
+    // Path: /api/transactions/clients/{clientId}/points/mouvements?debut=YYYY-MM-DDTHH:MM:SS&fin=YYYY-MM-DDTHH:MM:SS
+    @GetMapping("/clients/{clientId}/points/mouvements")
+    // @PreAuthorize("hasAnyAuthority('ADMIN', 'CLIENT_WEB')")
+    public ResponseEntity<List<MouvementPointsDto>> getMouvementsPoints(@PathVariable Long clientId,
+                                                                         @RequestParam String debut,
+                                                                         @RequestParam String fin) {
+        try {
+            List<MouvementPointsDto> mouvements = grandLivrePointsService
+                    .getMouvements(clientId, LocalDateTime.parse(debut), LocalDateTime.parse(fin)).stream()
+                    .map(MouvementPointsDto::new)
+                    .collect(Collectors.toList());
+            return new ResponseEntity<>(mouvements, HttpStatus.OK);
+        } catch (DateTimeParseException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // NOUVEL ENDPOINT : Ajustement manuel ou expiration de points
+    // Path: /api/transactions/clients/{clientId}/points/ajustements
+    // Corps de la requête (JSON): { "type": "AJUSTEMENT", "points": -20.0, "motif": "Litige ticket 4521" }
+    @PostMapping("/clients/{clientId}/points/ajustements")
+    // @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<?> ajusterPoints(@PathVariable Long clientId, @RequestBody AjustementPointsRequest ajustement) {
+        try {
+            Double nouveauSolde = grandLivrePointsService.ajuster(clientId, ajustement.getType(),
+                    ajustement.getPoints(), ajustement.getMotif());
+            return new ResponseEntity<>(new SoldePointsDto(clientId, LocalDateTime.now(), nouveauSolde), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(ErreurDto.of(ErreurDto.CODE_REQUETE_INVALIDE, e.getMessage()), HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(ErreurDto.of(ErreurDto.CODE_CONFLIT, e.getMessage()), HttpStatus.CONFLICT);
+        } catch (Exception e) {
+            logger.error("Erreur lors de l'ajustement des points du client {}", clientId, e);
+            return new ResponseEntity<>(ErreurDto.of(ErreurDto.CODE_ERREUR_INTERNE,
+                    "Erreur interne du serveur lors de l'ajustement des points."), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
 
     // NOUVEAUX ENDPOINTS : Rapports de transactions
 
     // Rapport Journalier
-    // Path: /api/transactions/reports/daily?date=YYYY-MM-DD
+    // Path: /api/transactions/reports/daily?date=YYYY-MM-DD[&stationId=ID]
     @GetMapping("/reports/daily")
     // @PreAuthorize("hasAnyAuthority('ADMIN', 'STATION_EMPLOYEE')")
-    public ResponseEntity<List<TransactionCarburantDto>> getDailyReport(@RequestParam String date) {
+    public ResponseEntity<List<TransactionCarburantDto>> getDailyReport(@RequestParam String date,
+                                                                        @RequestParam(required = false) Long stationId) {
         try {
             LocalDate reportDate = LocalDate.parse(date);
-            List<TransactionCarburantDto> transactions = transactionService.getDailyTransactionsReport(reportDate);
+            List<TransactionCarburantDto> transactions = transactionService.getDailyTransactionsReport(reportDate, stationId);
             return new ResponseEntity<>(transactions, HttpStatus.OK);
         } catch (DateTimeParseException e) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
@@ -139,16 +341,17 @@ public class TransactionController {
     }
 
     // Rapport Hebdomadaire
-    // Path: /api/transactions/reports/weekly?startDate=YYYY-MM-DD&endDate=YYYY-MM-DD
+    // Path: /api/transactions/reports/weekly?startDate=YYYY-MM-DD&endDate=YYYY-MM-DD[&stationId=ID]
     @GetMapping("/reports/weekly")
     // @PreAuthorize("hasAnyAuthority('ADMIN', 'STATION_EMPLOYEE')")
     public ResponseEntity<List<TransactionCarburantDto>> getWeeklyReport(
             @RequestParam String startDate,
-            @RequestParam String endDate) {
+            @RequestParam String endDate,
+            @RequestParam(required = false) Long stationId) {
         try {
             LocalDate start = LocalDate.parse(startDate);
             LocalDate end = LocalDate.parse(endDate);
-            List<TransactionCarburantDto> transactions = transactionService.getWeeklyTransactionsReport(start, end);
+            List<TransactionCarburantDto> transactions = transactionService.getWeeklyTransactionsReport(start, end, stationId);
             return new ResponseEntity<>(transactions, HttpStatus.OK);
         } catch (DateTimeParseException e) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
@@ -158,14 +361,15 @@ public class TransactionController {
     }
 
     // Rapport Mensuel
-    // Path: /api/transactions/reports/monthly?year=YYYY&month=MM
+    // Path: /api/transactions/reports/monthly?year=YYYY&month=MM[&stationId=ID]
     @GetMapping("/reports/monthly")
     // @PreAuthorize("hasAnyAuthority('ADMIN', 'STATION_EMPLOYEE')")
     public ResponseEntity<List<TransactionCarburantDto>> getMonthlyReport(
             @RequestParam int year,
-            @RequestParam int month) {
+            @RequestParam int month,
+            @RequestParam(required = false) Long stationId) {
         try {
-            List<TransactionCarburantDto> transactions = transactionService.getMonthlyTransactionsReport(year, month);
+            List<TransactionCarburantDto> transactions = transactionService.getMonthlyTransactionsReport(year, month, stationId);
             return new ResponseEntity<>(transactions, HttpStatus.OK);
         } catch (Exception e) {
             return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
@@ -173,15 +377,207 @@ public class TransactionController {
     }
 
     // Rapport Annuel
-    // Path: /api/transactions/reports/annual?year=YYYY
+    // Path: /api/transactions/reports/annual?year=YYYY[&stationId=ID]
     @GetMapping("/reports/annual")
     // @PreAuthorize("hasAnyAuthority('ADMIN', 'STATION_EMPLOYEE')")
-    public ResponseEntity<List<TransactionCarburantDto>> getAnnualReport(@RequestParam int year) {
+    public ResponseEntity<List<TransactionCarburantDto>> getAnnualReport(@RequestParam int year,
+                                                                         @RequestParam(required = false) Long stationId) {
         try {
-            List<TransactionCarburantDto> transactions = transactionService.getAnnualTransactionsReport(year);
+            List<TransactionCarburantDto> transactions = transactionService.getAnnualTransactionsReport(year, stationId);
             return new ResponseEntity<>(transactions, HttpStatus.OK);
         } catch (Exception e) {
             return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
-}
\ No newline at end of file
+
+    // Compteurs du cache des rapports des périodes closes
+    // Path: /api/transactions/reports/cache/stats
+    @GetMapping("/reports/cache/stats")
+    // @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Long>> getStatistiquesCacheRapports() {
+        return new ResponseEntity<>(transactionService.getStatistiquesCacheRapports(), HttpStatus.OK);
+    }
+
+    // NOUVEAUX ENDPOINTS : Rapports paginés par curseur (mêmes périodes que les rapports ci-dessus)
+    // Paramètres communs : cursor (curseurSuivant de la page précédente, absent pour la première page) et size
+
+    // Path: /api/transactions/reports/daily/page?date=YYYY-MM-DD
+    @GetMapping("/reports/daily/page")
+    // @PreAuthorize("hasAnyAuthority('ADMIN', 'STATION_EMPLOYEE')")
+    public ResponseEntity<?> getDailyReportPage(@RequestParam String date,
+                                                @RequestParam(required = false) String cursor,
+                                                @RequestParam(required = false) Integer size) {
+        return pageRapport(() -> {
+            LocalDate jour = LocalDate.parse(date);
+            return transactionService.getTransactionsReportPage(jour, jour, cursor, size);
+        });
+    }
+
+    // Path: /api/transactions/reports/weekly/page?startDate=YYYY-MM-DD&endDate=YYYY-MM-DD
+    @GetMapping("/reports/weekly/page")
+    // @PreAuthorize("hasAnyAuthority('ADMIN', 'STATION_EMPLOYEE')")
+    public ResponseEntity<?> getWeeklyReportPage(@RequestParam String startDate,
+                                                 @RequestParam String endDate,
+                                                 @RequestParam(required = false) String cursor,
+                                                 @RequestParam(required = false) Integer size) {
+        return pageRapport(() -> transactionService.getTransactionsReportPage(
+                LocalDate.parse(startDate), LocalDate.parse(endDate), cursor, size));
+    }
+
+    // Path: /api/transactions/reports/monthly/page?year=YYYY&month=MM
+    @GetMapping("/reports/monthly/page")
+    // @PreAuthorize("hasAnyAuthority('ADMIN', 'STATION_EMPLOYEE')")
+    public ResponseEntity<?> getMonthlyReportPage(@RequestParam int year,
+                                                  @RequestParam int month,
+                                                  @RequestParam(required = false) String cursor,
+                                                  @RequestParam(required = false) Integer size) {
+        return pageRapport(() -> {
+            LocalDate startOfMonth = LocalDate.of(year, month, 1);
+            return transactionService.getTransactionsReportPage(startOfMonth, startOfMonth.plusMonths(1).minusDays(1), cursor, size);
+        });
+    }
+
+    // Path: /api/transactions/reports/annual/page?year=YYYY
+    @GetMapping("/reports/annual/page")
+    // @PreAuthorize("hasAnyAuthority('ADMIN', 'STATION_EMPLOYEE')")
+    public ResponseEntity<?> getAnnualReportPage(@RequestParam int year,
+                                                 @RequestParam(required = false) String cursor,
+                                                 @RequestParam(required = false) Integer size) {
+        return pageRapport(() -> transactionService.getTransactionsReportPage(
+                LocalDate.of(year, 1, 1), LocalDate.of(year, 12, 31), cursor, size));
+    }
+
+    private ResponseEntity<?> pageRapport(Supplier<PageTransactionsDto> page) {
+        try {
+            return new ResponseEntity<>(page.get(), HttpStatus.OK);
+        } catch (DateTimeException | IllegalArgumentException e) {
+            return new ResponseEntity<>(ErreurDto.of(ErreurDto.CODE_REQUETE_INVALIDE, e.getMessage()), HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // NOUVEAUX ENDPOINTS : Synthèses par station, lues dans les récapitulatifs journaliers (une ligne par station et par jour)
+
+    // Synthèse journalière
+    // Path: /api/transactions/reports/summary/daily?date=YYYY-MM-DD
+    @GetMapping("/reports/summary/daily")
+    // @PreAuthorize("hasAnyAuthority('ADMIN', 'STATION_EMPLOYEE')")
+    public ResponseEntity<RecapitulatifPeriodeDto> getDailySummary(@RequestParam String date) {
+        try {
+            LocalDate jour = LocalDate.parse(date);
+            return new ResponseEntity<>(recapitulatifService.getRecapitulatif(jour, jour), HttpStatus.OK);
+        } catch (DateTimeParseException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // Synthèse hebdomadaire (ou sur une période quelconque)
+    // Path: /api/transactions/reports/summary/weekly?startDate=YYYY-MM-DD&endDate=YYYY-MM-DD
+    @GetMapping("/reports/summary/weekly")
+    // @PreAuthorize("hasAnyAuthority('ADMIN', 'STATION_EMPLOYEE')")
+    public ResponseEntity<RecapitulatifPeriodeDto> getWeeklySummary(
+            @RequestParam String startDate,
+            @RequestParam String endDate) {
+        try {
+            LocalDate start = LocalDate.parse(startDate);
+            LocalDate end = LocalDate.parse(endDate);
+            return new ResponseEntity<>(recapitulatifService.getRecapitulatif(start, end), HttpStatus.OK);
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // Synthèse mensuelle
+    // Path: /api/transactions/reports/summary/monthly?year=YYYY&month=MM
+    @GetMapping("/reports/summary/monthly")
+    // @PreAuthorize("hasAnyAuthority('ADMIN', 'STATION_EMPLOYEE')")
+    public ResponseEntity<RecapitulatifPeriodeDto> getMonthlySummary(
+            @RequestParam int year,
+            @RequestParam int month) {
+        try {
+            LocalDate startOfMonth = LocalDate.of(year, month, 1);
+            LocalDate endOfMonth = startOfMonth.plusMonths(1).minusDays(1);
+            return new ResponseEntity<>(recapitulatifService.getRecapitulatif(startOfMonth, endOfMonth), HttpStatus.OK);
+        } catch (DateTimeException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // Synthèse annuelle
+    // Path: /api/transactions/reports/summary/annual?year=YYYY
+    @GetMapping("/reports/summary/annual")
+    // @PreAuthorize("hasAnyAuthority('ADMIN', 'STATION_EMPLOYEE')")
+    public ResponseEntity<RecapitulatifPeriodeDto> getAnnualSummary(@RequestParam int year) {
+        try {
+            return new ResponseEntity<>(recapitulatifService.getRecapitulatif(
+                    LocalDate.of(year, 1, 1), LocalDate.of(year, 12, 31)), HttpStatus.OK);
+        } catch (DateTimeException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // NOUVEL ENDPOINT : Rapport agrégé (totaux calculés par la base, quelques lignes au lieu de toutes les transactions)
+    // Path: /api/transactions/reports/aggregate?startDate=YYYY-MM-DD&endDate=YYYY-MM-DD&groupBy=day|week|month|station|employee|client&limit=100
+    @GetMapping("/reports/aggregate")
+    // @PreAuthorize("hasAnyAuthority('ADMIN', 'STATION_EMPLOYEE')")
+    public ResponseEntity<List<AgregatTransactions>> getAggregateReport(
+            @RequestParam String startDate,
+            @RequestParam String endDate,
+            @RequestParam(defaultValue = "day") String groupBy,
+            @RequestParam(defaultValue = "100") int limit) {
+        try {
+            LocalDate start = LocalDate.parse(startDate);
+            LocalDate end = LocalDate.parse(endDate);
+            TransactionService.GroupementRapport groupement = TransactionService.GroupementRapport.depuisParametre(groupBy);
+            return new ResponseEntity<>(transactionService.getRapportAgrege(start, end, groupement, limit), HttpStatus.OK);
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // NOUVEL ENDPOINT : Export en flux des transactions d'une période (mémoire constante quelle que soit la période)
+    // Path: /api/transactions/reports/export?startDate=YYYY-MM-DD&endDate=YYYY-MM-DD&format=ndjson|csv
+    @GetMapping("/reports/export")
+    // @PreAuthorize("hasAnyAuthority('ADMIN', 'STATION_EMPLOYEE')")
+    public void exportTransactions(@RequestParam String startDate,
+                                   @RequestParam String endDate,
+                                   @RequestParam(defaultValue = "ndjson") String format,
+                                   HttpServletResponse response) throws IOException {
+        LocalDate start;
+        LocalDate end;
+        ExportTransactionsService.FormatExport formatExport;
+        try {
+            start = LocalDate.parse(startDate);
+            end = LocalDate.parse(endDate);
+            formatExport = ExportTransactionsService.FormatExport.valueOf(format.toUpperCase());
+            if (end.isBefore(start)) {
+                throw new IllegalArgumentException("La date de fin précède la date de début.");
+            }
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            response.sendError(HttpStatus.BAD_REQUEST.value());
+            return;
+        }
+
+        boolean csv = formatExport == ExportTransactionsService.FormatExport.CSV;
+        response.setContentType(csv ? "text/csv;charset=UTF-8" : "application/x-ndjson;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"transactions-" + start + "-" + end + (csv ? ".csv" : ".ndjson") + "\"");
+        try {
+            exportTransactionsService.exporter(start, end, formatExport, response.getOutputStream());
+        } catch (UncheckedIOException e) {
+            // Client déconnecté en cours d'export : rien à renvoyer
+            logger.debug("Export des transactions interrompu : {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.bellatrix.stationapp.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AchatBatchResultatDto {
+
+    public static final String STATUT_ENREGISTRE = "ENREGISTRE";
+    public static final String STATUT_REJETE = "REJETE";
+    public static final String STATUT_DEJA_ENREGISTRE = "DEJA_ENREGISTRE";
+
+    private int index; // Position de la vente dans le lot envoyé
+    private String statut;
+    private String message; // Motif du rejet, null si la vente est enregistrée
+    private TransactionCarburantDto transaction;
+
+    public static AchatBatchResultatDto enregistre(int index, TransactionCarburantDto transaction) {
+        return new AchatBatchResultatDto(index, STATUT_ENREGISTRE, null, transaction);
+    }
+
+    public static AchatBatchResultatDto dejaEnregistre(int index, TransactionCarburantDto transaction) {
+        return new AchatBatchResultatDto(index, STATUT_DEJA_ENREGISTRE, null, transaction);
+    }
+
+    public static AchatBatchResultatDto rejete(int index, String message) {
+        return new AchatBatchResultatDto(index, STATUT_REJETE, message, null);
+    }
+}
@@ -0,0 +1,31 @@
+package com.bellatrix.stationapp.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AchatsBatchReponseDto {
+    private int total;
+    private int enregistres;
+    private int dejaEnregistres;
+    private int rejetes;
+    private List<AchatBatchResultatDto> resultats;
+
+    // Constructeur pour résumer les résultats d'un lot
+    public AchatsBatchReponseDto(List<AchatBatchResultatDto> resultats) {
+        this.resultats = resultats;
+        this.total = resultats.size();
+        this.enregistres = (int) resultats.stream()
+                .filter(r -> AchatBatchResultatDto.STATUT_ENREGISTRE.equals(r.getStatut()))
+                .count();
+        this.dejaEnregistres = (int) resultats.stream()
+                .filter(r -> AchatBatchResultatDto.STATUT_DEJA_ENREGISTRE.equals(r.getStatut()))
+                .count();
+        this.rejetes = this.total - this.enregistres - this.dejaEnregistres;
+    }
+}
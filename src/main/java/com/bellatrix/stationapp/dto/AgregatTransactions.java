@@ -0,0 +1,19 @@
+package com.bellatrix.stationapp.dto;
+
+/**
+ * Totaux d'un groupe de transactions, calculés par la base (projection des requêtes GROUP BY).
+ * cle identifie le groupe (jour, début de semaine ou de mois au format YYYY-MM-DD, ou ID de station,
+ * d'employé ou de client) ; libelle est le nom lisible quand il existe.
+ */
+public interface AgregatTransactions {
+    String getCle();
+    String getLibelle();
+    Double getLitres();
+    Double getChiffreAffaires();
+    Double getPointsGagnes();
+    Double getPointsUtilises();
+    Long getNombreTransactions();
+    Double getMontantMoyen();
+    Double getLitresMoyens();
+    Long getClientsDistincts();
+}
@@ -0,0 +1,29 @@
+package com.bellatrix.stationapp.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Corps des réponses d'erreur : code stable exploitable par les terminaux, message lisible
+ * et, pour les erreurs de validation, les champs concernés.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ErreurDto {
+
+    public static final String CODE_REQUETE_INVALIDE = "REQUETE_INVALIDE";
+    public static final String CODE_CONFLIT = "CONFLIT";
+    public static final String CODE_ERREUR_INTERNE = "ERREUR_INTERNE";
+
+    private String code;
+    private String message;
+    private List<String> champs;
+
+    public static ErreurDto of(String code, String message) {
+        return new ErreurDto(code, message, List.of());
+    }
+}
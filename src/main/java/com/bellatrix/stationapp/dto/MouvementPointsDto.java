@@ -0,0 +1,32 @@
+package com.bellatrix.stationapp.dto;
+
+import com.bellatrix.stationapp.model.TypeMouvementPoints;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MouvementPointsDto {
+    private Long id;
+    private Long clientId;
+    private TypeMouvementPoints type;
+    private Double points;
+    private LocalDateTime dateMouvement;
+    private Long transactionId;
+    private String motif;
+
+    // Constructeur pour mapper l'entité MouvementPoints vers ce DTO (sans charger le client ni la transaction)
+    public MouvementPointsDto(com.bellatrix.stationapp.model.MouvementPoints mouvement) {
+        this.id = mouvement.getId();
+        this.clientId = mouvement.getClient().getId();
+        this.type = mouvement.getType();
+        this.points = mouvement.getPoints();
+        this.dateMouvement = mouvement.getDateMouvement();
+        this.transactionId = mouvement.getTransaction() != null ? mouvement.getTransaction().getId() : null;
+        this.motif = mouvement.getMotif();
+    }
+}
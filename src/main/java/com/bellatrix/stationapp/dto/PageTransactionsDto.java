@@ -0,0 +1,15 @@
+package com.bellatrix.stationapp.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageTransactionsDto {
+    private List<TransactionCarburantDto> transactions; // Les plus récentes d'abord
+    private String curseurSuivant; // À renvoyer dans ?cursor= pour la page suivante ; null sur la dernière page
+}
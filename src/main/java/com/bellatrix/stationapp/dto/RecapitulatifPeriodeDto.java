@@ -0,0 +1,18 @@
+package com.bellatrix.stationapp.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecapitulatifPeriodeDto {
+    private LocalDate debut;
+    private LocalDate fin;
+    private List<RecapitulatifStationDto> stations;
+    private RecapitulatifStationDto total; // Somme de toutes les stations
+}
@@ -0,0 +1,18 @@
+package com.bellatrix.stationapp.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecapitulatifStationDto {
+    private Long stationServiceId; // null pour la ligne des totaux du réseau
+    private String stationNom;
+    private Double litres;
+    private Double chiffreAffaires;
+    private Double pointsGagnes;
+    private Double pointsUtilises;
+    private Long nombreTransactions;
+}
@@ -0,0 +1,16 @@
+package com.bellatrix.stationapp.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SoldePointsDto {
+    private Long clientId;
+    private LocalDateTime date;
+    private Double soldePoints;
+}
@@ -0,0 +1,16 @@
+package com.bellatrix.stationapp.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TotauxDashboardDto {
+    private String cle; // ID de la station ou du client, ou jour (AAAA-MM-JJ) ; null pour un total
+    private Double litres;
+    private Double chiffreAffaires;
+    private Double pointsGagnes;
+    private Long nombreTransactions;
+}
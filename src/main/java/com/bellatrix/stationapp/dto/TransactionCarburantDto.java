@@ -16,6 +16,7 @@ public class TransactionCarburantDto {
     private Double montantTotal;
     private Double pointsGagnes;
     private Double pointsUtilises;
+    private String cleIdempotence;
 
     private ClientDto client;
     private StationServiceDto stationService;
@@ -29,6 +30,7 @@ public class TransactionCarburantDto {
         this.montantTotal = transaction.getMontantTotal();
         this.pointsGagnes = transaction.getPointsGagnes();
         this.pointsUtilises = transaction.getPointsUtilises();
+        this.cleIdempotence = transaction.getCleIdempotence();
 
         // Assurez-vous que les objets liés sont initialisés avant de les mapper
         // grâce à l'annotation @Transactional dans le service.
@@ -0,0 +1,22 @@
+package com.bellatrix.stationapp.exception;
+
+import java.util.List;
+
+/**
+ * Requête refusée avant tout traitement (champ manquant, JSON illisible...).
+ * Levée pour chaque requête invalide d'un terminal : la pile d'appels n'est pas capturée,
+ * elle ne servirait à rien dans la réponse et coûterait cher sous forte charge.
+ */
+public class RequeteInvalideException extends RuntimeException {
+
+    private final List<String> champs;
+
+    public RequeteInvalideException(String message, List<String> champs) {
+        super(message, null, false, false);
+        this.champs = champs;
+    }
+
+    public List<String> getChamps() {
+        return champs;
+    }
+}
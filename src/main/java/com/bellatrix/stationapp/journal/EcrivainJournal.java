@@ -0,0 +1,70 @@
+package com.bellatrix.stationapp.journal;
+
+import com.bellatrix.stationapp.service.TransactionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Vide le journal des transactions vers Postgres, par lots, en tâche de fond. Un passage écrit un nombre de lots
+ * borné : sous un trafic continu, il rend quand même la main au planificateur.
+ * Au démarrage, les entrées restées dans le journal après un arrêt ou un crash sont rejouées avant tout le reste.
+ * En cas d'erreur (base indisponible...), le lot est retenté au passage suivant : le point de contrôle n'avance
+ * qu'après un commit réussi.
+ */
+@Component
+public class EcrivainJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(EcrivainJournal.class);
+
+    private final JournalTransactions journalTransactions;
+    private final TransactionService transactionService;
+
+    @Value("${application.transactions.journal.taille-lot:500}")
+    private int tailleLot;
+
+    @Value("${application.transactions.journal.lots-par-passage:20}")
+    private int lotsParPassage;
+
+    @Autowired
+    public EcrivainJournal(JournalTransactions journalTransactions, TransactionService transactionService) {
+        this.journalTransactions = journalTransactions;
+        this.transactionService = transactionService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rejouerAuDemarrage() {
+        // Tout ce qui est resté dans le journal, sans la limite d'un passage
+        ecrire(Integer.MAX_VALUE);
+    }
+
+    @Scheduled(fixedDelayString = "${application.transactions.journal.intervalle-ecriture-ms:200}")
+    public void vider() {
+        ecrire(lotsParPassage);
+    }
+
+    private synchronized void ecrire(int lotsMax) {
+        if (!journalTransactions.estActif()) {
+            return;
+        }
+        try {
+            for (int lots = 0; lots < lotsMax; lots++) {
+                List<EntreeJournal> lot = journalTransactions.lireNonPersistees(tailleLot);
+                if (lot.isEmpty()) {
+                    return;
+                }
+                transactionService.persisterEntreesJournal(lot);
+                journalTransactions.marquerPersistees(lot.get(lot.size() - 1).sequence());
+            }
+        } catch (RuntimeException e) {
+            logger.error("Écriture du journal des transactions en base impossible, nouvel essai au prochain passage.", e);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.bellatrix.stationapp.journal;
+
+import java.time.LocalDateTime;
+
+/**
+ * Une vente inscrite dans le journal local, en attente d'écriture dans transaction_carburant.
+ * La clé d'idempotence est toujours renseignée : elle rend le rejeu du journal sans effet sur les lignes déjà écrites.
+ */
+public record EntreeJournal(
+        long sequence,
+        long clientId,
+        long stationServiceId,
+        long utilisateurId,
+        LocalDateTime dateTransaction,
+        double litresAchetes,
+        double montantTotal,
+        double pointsGagnes,
+        double pointsUtilises,
+        String cleIdempotence) {
+}
@@ -0,0 +1,350 @@
+package com.bellatrix.stationapp.journal;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+/**
+ * Journal local des ventes, utilisé quand l'écriture différée est activée
+ * (application.transactions.journal.actif=true).
+ *
+ * Le fichier est un tampon circulaire mappé en mémoire, composé d'enregistrements de taille fixe.
+ * Chaque vente reçoit un numéro de séquence croissant ; son emplacement est (séquence - 1) % capacité.
+ * Un thread dédié regroupe les fsync : toutes les ventes ajoutées pendant un fsync sont rendues durables
+ * par le suivant, et chaque appelant attend que sa vente soit durable avant de rendre la main.
+ *
+ * Un second petit fichier (point de contrôle) contient la dernière séquence écrite dans Postgres.
+ * Au démarrage, les enregistrements valides (CRC correct et séquence attendue) situés après le point de
+ * contrôle sont les ventes à rejouer.
+ */
+@Component
+public class JournalTransactions {
+
+    private static final Logger logger = LoggerFactory.getLogger(JournalTransactions.class);
+
+    // Format d'un enregistrement (taille fixe, en octets)
+    private static final int TAILLE_ENREGISTREMENT = 384;
+    private static final int POS_SEQUENCE = 0;
+    private static final int POS_CLIENT = 8;
+    private static final int POS_STATION = 16;
+    private static final int POS_UTILISATEUR = 24;
+    private static final int POS_DATE_SECONDES = 32;
+    private static final int POS_DATE_NANOS = 40;
+    private static final int POS_LITRES = 44;
+    private static final int POS_MONTANT = 52;
+    private static final int POS_POINTS_GAGNES = 60;
+    private static final int POS_POINTS_UTILISES = 68;
+    private static final int POS_LONGUEUR_CLE = 76;
+    private static final int POS_CLE = 78;
+    private static final int TAILLE_MAX_CLE = 256; // 64 caractères en UTF-8 au pire
+    private static final int POS_CRC = POS_CLE + TAILLE_MAX_CLE;
+
+    private final boolean actif;
+    private final Path repertoire;
+    private final int capacite;
+
+    private FileChannel canalJournal;
+    private MappedByteBuffer tampon;
+    private FileChannel canalPointDeControle;
+
+    // Écrit sous le verrou de l'instance, lu sans verrou par le thread de fsync
+    private volatile long dernierSeqEcrit;
+    private volatile long dernierSeqDurable;
+    private volatile long dernierSeqPersiste;
+
+    private final Object verrouDurabilite = new Object();
+    private Thread threadFsync;
+    private volatile boolean arrete;
+    private final LongAdder nombreFsync = new LongAdder();
+
+    public JournalTransactions(@Value("${application.transactions.journal.actif:false}") boolean actif,
+                               @Value("${application.transactions.journal.repertoire:./journal}") String repertoire,
+                               @Value("${application.transactions.journal.capacite:65536}") int capacite) {
+        if (capacite <= 0 || (long) capacite * TAILLE_ENREGISTREMENT > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Capacité du journal invalide : " + capacite);
+        }
+        this.actif = actif;
+        this.repertoire = Paths.get(repertoire);
+        this.capacite = capacite;
+    }
+
+    @PostConstruct
+    public void ouvrir() throws IOException {
+        if (!actif) {
+            return;
+        }
+        Files.createDirectories(repertoire);
+        canalJournal = FileChannel.open(repertoire.resolve("transactions.journal"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        tampon = canalJournal.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacite * TAILLE_ENREGISTREMENT);
+        canalPointDeControle = FileChannel.open(repertoire.resolve("transactions.checkpoint"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        // Récupération après arrêt ou crash : on repart du point de contrôle et on avance tant que les enregistrements sont valides
+        dernierSeqPersiste = lirePointDeControle();
+        long sequence = dernierSeqPersiste;
+        while (sequence - dernierSeqPersiste < capacite && lire(sequence + 1) != null) {
+            sequence++;
+        }
+        dernierSeqEcrit = sequence;
+        dernierSeqDurable = sequence;
+        if (sequence > dernierSeqPersiste) {
+            logger.warn("Journal des transactions : {} vente(s) non persistée(s) retrouvée(s), elles vont être rejouées.",
+                    sequence - dernierSeqPersiste);
+        }
+
+        threadFsync = new Thread(this::boucleFsync, "journal-transactions-fsync");
+        threadFsync.setDaemon(true);
+        threadFsync.start();
+        logger.info("Journal des transactions ouvert dans {} (capacité {} ventes).", repertoire.toAbsolutePath(), capacite);
+    }
+
+    public boolean estActif() {
+        return actif;
+    }
+
+    /**
+     * Indique s'il reste de la place dans le tampon circulaire. Quand il est plein (écrivain en retard ou base
+     * indisponible), l'appelant doit revenir à l'écriture synchrone.
+     */
+    public boolean aDeLaPlace() {
+        return dernierSeqEcrit - dernierSeqPersiste < capacite;
+    }
+
+    /**
+     * Ajoute une vente au journal et attend qu'elle soit durable sur disque (fsync groupé).
+     *
+     * @return L'entrée inscrite, avec son numéro de séquence, ou vide si le journal est plein.
+     * @throws IllegalStateException si le journal est fermé.
+     */
+    public Optional<EntreeJournal> ajouter(long clientId, long stationServiceId, long utilisateurId, LocalDateTime dateTransaction,
+                                 double litresAchetes, double montantTotal, double pointsGagnes, double pointsUtilises,
+                                 String cleIdempotence) {
+        byte[] cle = cleIdempotence.getBytes(StandardCharsets.UTF_8);
+        if (cle.length > TAILLE_MAX_CLE) {
+            throw new IllegalArgumentException("Clé d'idempotence trop longue pour le journal.");
+        }
+        EntreeJournal entree;
+        synchronized (this) {
+            if (arrete || tampon == null) {
+                throw new IllegalStateException("Le journal des transactions n'est pas ouvert.");
+            }
+            if (!aDeLaPlace()) {
+                return Optional.empty();
+            }
+            entree = new EntreeJournal(dernierSeqEcrit + 1, clientId, stationServiceId, utilisateurId, dateTransaction,
+                    litresAchetes, montantTotal, pointsGagnes, pointsUtilises, cleIdempotence);
+            ecrire(entree, cle);
+            dernierSeqEcrit = entree.sequence();
+        }
+        synchronized (verrouDurabilite) {
+            verrouDurabilite.notifyAll(); // Réveille le thread de fsync
+            while (dernierSeqDurable < entree.sequence()) {
+                if (arrete) {
+                    throw new IllegalStateException("Journal fermé avant que la vente soit durable.");
+                }
+                try {
+                    verrouDurabilite.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrompu en attendant le fsync du journal.", e);
+                }
+            }
+        }
+        return Optional.of(entree);
+    }
+
+    /**
+     * Renvoie, dans l'ordre, les ventes durables pas encore écrites dans Postgres.
+     *
+     * @param max Nombre maximum d'entrées renvoyées.
+     */
+    public List<EntreeJournal> lireNonPersistees(int max) {
+        long debut = dernierSeqPersiste + 1;
+        long fin = Math.min(dernierSeqDurable, dernierSeqPersiste + max);
+        List<EntreeJournal> entrees = new ArrayList<>((int) Math.max(0, fin - debut + 1));
+        for (long sequence = debut; sequence <= fin; sequence++) {
+            EntreeJournal entree = lire(sequence);
+            if (entree == null) {
+                // Ne devrait pas arriver : une entrée durable est toujours lisible
+                throw new IllegalStateException("Enregistrement " + sequence + " du journal illisible.");
+            }
+            entrees.add(entree);
+        }
+        return entrees;
+    }
+
+    /**
+     * Avance le point de contrôle après l'écriture réussie des entrées jusqu'à cette séquence incluse.
+     * Leurs emplacements dans le tampon circulaire peuvent alors être réutilisés.
+     */
+    public synchronized void marquerPersistees(long sequence) {
+        ByteBuffer octets = ByteBuffer.allocate(Long.BYTES).putLong(0, sequence);
+        try {
+            canalPointDeControle.write(octets, 0);
+            canalPointDeControle.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Écriture du point de contrôle du journal impossible.", e);
+        }
+        dernierSeqPersiste = sequence;
+    }
+
+    /**
+     * Métriques du journal : séquences écrite, durable et persistée, retard en nombre de ventes et en temps.
+     */
+    public Map<String, Object> statistiques() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("actif", actif);
+        if (!actif) {
+            return stats;
+        }
+        long persiste = dernierSeqPersiste;
+        long ecrit = dernierSeqEcrit;
+        stats.put("capacite", capacite);
+        stats.put("dernierSeqEcrit", ecrit);
+        stats.put("dernierSeqDurable", dernierSeqDurable);
+        stats.put("dernierSeqPersiste", persiste);
+        stats.put("retardVentes", ecrit - persiste);
+        EntreeJournal plusAncienne = ecrit > persiste ? lire(persiste + 1) : null;
+        stats.put("retardMs", plusAncienne != null
+                ? Math.max(0, Duration.between(plusAncienne.dateTransaction(), LocalDateTime.now()).toMillis()) : 0L);
+        stats.put("nombreFsync", nombreFsync.sum());
+        return stats;
+    }
+
+    @PreDestroy
+    public void fermer() throws IOException {
+        if (!actif) {
+            return;
+        }
+        arrete = true;
+        synchronized (verrouDurabilite) {
+            verrouDurabilite.notifyAll();
+        }
+        if (threadFsync != null) {
+            try {
+                threadFsync.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            tampon.force();
+            canalJournal.close();
+            canalPointDeControle.close();
+        }
+    }
+
+    // Fsync groupé : un seul force() couvre toutes les ventes ajoutées depuis le précédent
+    private void boucleFsync() {
+        while (!arrete) {
+            long cible;
+            synchronized (verrouDurabilite) {
+                while (!arrete && dernierSeqEcrit <= dernierSeqDurable) {
+                    try {
+                        verrouDurabilite.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                cible = dernierSeqEcrit;
+            }
+            try {
+                tampon.force();
+                nombreFsync.increment();
+            } catch (UncheckedIOException e) {
+                logger.error("Échec du fsync du journal des transactions, nouvel essai.", e);
+                continue;
+            }
+            synchronized (verrouDurabilite) {
+                dernierSeqDurable = cible;
+                verrouDurabilite.notifyAll();
+            }
+        }
+    }
+
+    private int position(long sequence) {
+        return (int) ((sequence - 1) % capacite) * TAILLE_ENREGISTREMENT;
+    }
+
+    private void ecrire(EntreeJournal entree, byte[] cle) {
+        ByteBuffer enregistrement = ByteBuffer.allocate(TAILLE_ENREGISTREMENT);
+        enregistrement.putLong(POS_SEQUENCE, entree.sequence())
+                .putLong(POS_CLIENT, entree.clientId())
+                .putLong(POS_STATION, entree.stationServiceId())
+                .putLong(POS_UTILISATEUR, entree.utilisateurId())
+                .putLong(POS_DATE_SECONDES, entree.dateTransaction().toEpochSecond(ZoneOffset.UTC))
+                .putInt(POS_DATE_NANOS, entree.dateTransaction().getNano())
+                .putDouble(POS_LITRES, entree.litresAchetes())
+                .putDouble(POS_MONTANT, entree.montantTotal())
+                .putDouble(POS_POINTS_GAGNES, entree.pointsGagnes())
+                .putDouble(POS_POINTS_UTILISES, entree.pointsUtilises())
+                .putShort(POS_LONGUEUR_CLE, (short) cle.length)
+                .put(POS_CLE, cle);
+        enregistrement.putInt(POS_CRC, crc(enregistrement.array()));
+        tampon.put(position(entree.sequence()), enregistrement.array());
+    }
+
+    // Renvoie null si l'emplacement ne contient pas un enregistrement valide pour cette séquence
+    private EntreeJournal lire(long sequence) {
+        byte[] octets = new byte[TAILLE_ENREGISTREMENT];
+        tampon.get(position(sequence), octets);
+        ByteBuffer enregistrement = ByteBuffer.wrap(octets);
+        if (enregistrement.getLong(POS_SEQUENCE) != sequence || enregistrement.getInt(POS_CRC) != crc(octets)) {
+            return null;
+        }
+        int longueurCle = enregistrement.getShort(POS_LONGUEUR_CLE);
+        LocalDateTime date = LocalDateTime.ofEpochSecond(enregistrement.getLong(POS_DATE_SECONDES),
+                enregistrement.getInt(POS_DATE_NANOS), ZoneOffset.UTC);
+        return new EntreeJournal(sequence,
+                enregistrement.getLong(POS_CLIENT),
+                enregistrement.getLong(POS_STATION),
+                enregistrement.getLong(POS_UTILISATEUR),
+                date,
+                enregistrement.getDouble(POS_LITRES),
+                enregistrement.getDouble(POS_MONTANT),
+                enregistrement.getDouble(POS_POINTS_GAGNES),
+                enregistrement.getDouble(POS_POINTS_UTILISES),
+                new String(octets, POS_CLE, longueurCle, StandardCharsets.UTF_8));
+    }
+
+    private static int crc(byte[] enregistrement) {
+        CRC32 crc = new CRC32();
+        crc.update(enregistrement, 0, POS_CRC);
+        return (int) crc.getValue();
+    }
+
+    private long lirePointDeControle() throws IOException {
+        if (canalPointDeControle.size() < Long.BYTES) {
+            return 0L;
+        }
+        ByteBuffer octets = ByteBuffer.allocate(Long.BYTES);
+        canalPointDeControle.read(octets, 0);
+        return octets.getLong(0);
+    }
+}
@@ -8,14 +8,15 @@ import lombok.AllArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "carte_fidelite")
+@Table(name = "carte_fidelite", indexes = @Index(name = "idx_carte_fidelite_client", columnList = "client_id"))
 @Data // Lombok génère les getters, setters, toString, equals, hashCode
 @NoArgsConstructor // Lombok génère un constructeur sans arguments
 @AllArgsConstructor // Lombok génère un constructeur avec tous les arguments
 public class CarteFidelite {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "carte_fidelite_seq")
+    @SequenceGenerator(name = "carte_fidelite_seq", sequenceName = "carte_fidelite_seq", allocationSize = 50)
     private Long id;
 
     // NOUVEAU: Le champ 'numeroCarte' est maintenant le numéro à 6 chiffres
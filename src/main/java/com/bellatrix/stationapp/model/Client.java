@@ -15,7 +15,8 @@ import java.time.LocalDateTime; // Pour gérer les dates et heures
 public class Client {
 
     @Id // Indique que 'id' est la clé primaire
-    @GeneratedValue(strategy = GenerationType.IDENTITY) // Spécifie la stratégie d'auto-incrémentation
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "client_seq") // Séquence allouée par blocs (permet le batch JDBC)
+    @SequenceGenerator(name = "client_seq", sequenceName = "client_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "numero_telephone", unique = true, nullable = false, length = 20)
@@ -30,6 +31,7 @@ public class Client {
     @Column(name = "date_inscription", nullable = false)
     private LocalDateTime dateInscription;
 
-    @Column(name = "solde_points", nullable = false)
+    // Non modifiable par un save() : le solde ne change que via ClientRepository.ajouterSoldePoints (UPDATE atomique)
+    @Column(name = "solde_points", nullable = false, updatable = false)
     private Double soldePoints = 0.0; // Valeur par défaut à 0.0
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.bellatrix.stationapp.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Solde de points d'un client à une date donnée : la somme de tous ses mouvements datés jusqu'à dateInstantane incluse.
+ * Le solde à une date quelconque se calcule à partir de l'instantané précédent et des quelques mouvements suivants.
+ */
+@Entity
+@Table(name = "instantane_solde_points",
+        indexes = @Index(name = "idx_instantane_solde_points_client_date", columnList = "client_id, date_instantane"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InstantaneSoldePoints {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "instantane_solde_points_seq")
+    @SequenceGenerator(name = "instantane_solde_points_seq", sequenceName = "instantane_solde_points_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "client_id", nullable = false)
+    private Client client;
+
+    @Column(name = "date_instantane", nullable = false)
+    private LocalDateTime dateInstantane;
+
+    @Column(name = "solde", nullable = false)
+    private Double solde;
+
+    // Nombre de mouvements intégrés depuis l'instantané précédent
+    @Column(name = "nombre_mouvements", nullable = false)
+    private Long nombreMouvements;
+}
@@ -0,0 +1,28 @@
+package com.bellatrix.stationapp.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Token JWT révoqué avant son expiration (déconnexion), identifié par son claim jti.
+ * La ligne ne sert plus une fois le token expiré et est alors supprimée.
+ */
+@Entity
+@Table(name = "jeton_revoque", indexes = @Index(name = "idx_jeton_revoque_expiration", columnList = "expiration"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JetonRevoque {
+
+    @Id
+    @Column(name = "jti", nullable = false)
+    private UUID jti;
+
+    @Column(name = "expiration", nullable = false)
+    private LocalDateTime expiration;
+}
@@ -0,0 +1,52 @@
+package com.bellatrix.stationapp.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Écriture du grand livre des points : une ligne par variation du solde d'un client, jamais modifiée ni supprimée.
+ * Les points sont signés (positifs pour un gain, négatifs pour une utilisation ou une expiration).
+ */
+@Entity
+@Table(name = "mouvement_points",
+        indexes = {
+                @Index(name = "idx_mouvement_points_client_date", columnList = "client_id, date_mouvement"),
+                @Index(name = "idx_mouvement_points_transaction", columnList = "transaction_id")
+        })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MouvementPoints {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "mouvement_points_seq")
+    @SequenceGenerator(name = "mouvement_points_seq", sequenceName = "mouvement_points_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "client_id", nullable = false, updatable = false)
+    private Client client;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false, length = 20, updatable = false)
+    private TypeMouvementPoints type;
+
+    @Column(name = "points", nullable = false, updatable = false)
+    private Double points;
+
+    @Column(name = "date_mouvement", nullable = false, updatable = false)
+    private LocalDateTime dateMouvement;
+
+    // Transaction d'origine pour les gains et utilisations, null pour les ajustements et expirations.
+    // Pas de clé étrangère : transaction_carburant est partitionnée et sa clé primaire inclut la date (voir V6)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "transaction_id", updatable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private TransactionCarburant transaction;
+
+    @Column(name = "motif", length = 255, updatable = false)
+    private String motif;
+}
@@ -0,0 +1,61 @@
+package com.bellatrix.stationapp.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Totaux des ventes d'une station pour une journée, tenus à jour dans la même transaction que chaque vente.
+ * Les rapports de synthèse lisent quelques lignes par station et par jour au lieu de toutes les transactions :
+ * les totaux d'une journée sont répartis en tranches, pour que les ventes simultanées d'une station
+ * ne verrouillent pas toutes la même ligne.
+ */
+@Entity
+@Table(name = "daily_station_rollup")
+@IdClass(RecapitulatifJournalierStation.Cle.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecapitulatifJournalierStation {
+
+    @Id
+    @Column(name = "station_service_id")
+    private Long stationServiceId;
+
+    @Id
+    @Column(name = "jour")
+    private LocalDate jour;
+
+    @Id
+    @Column(name = "tranche")
+    private Short tranche;
+
+    @Column(name = "litres", nullable = false)
+    private Double litres;
+
+    // Montant encaissé, après réduction des rachats de points
+    @Column(name = "chiffre_affaires", nullable = false)
+    private Double chiffreAffaires;
+
+    @Column(name = "points_gagnes", nullable = false)
+    private Double pointsGagnes;
+
+    @Column(name = "points_utilises", nullable = false)
+    private Double pointsUtilises;
+
+    @Column(name = "nombre_transactions", nullable = false)
+    private Long nombreTransactions;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Cle implements Serializable {
+        private Long stationServiceId;
+        private LocalDate jour;
+        private Short tranche;
+    }
+}
@@ -16,7 +16,8 @@ import java.time.LocalDateTime;
 public class ReglePoints {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "regle_point_seq")
+    @SequenceGenerator(name = "regle_point_seq", sequenceName = "regle_point_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "points_par_litre", nullable = false)
@@ -13,7 +13,8 @@ import lombok.AllArgsConstructor;
 public class SeuilRachat {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seuil_rachat_seq")
+    @SequenceGenerator(name = "seuil_rachat_seq", sequenceName = "seuil_rachat_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "points_requis", nullable = false)
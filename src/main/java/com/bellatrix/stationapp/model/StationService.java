@@ -13,7 +13,8 @@ import lombok.AllArgsConstructor;
 public class StationService {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "station_service_seq")
+    @SequenceGenerator(name = "station_service_seq", sequenceName = "station_service_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "nom", nullable = false, length = 100)
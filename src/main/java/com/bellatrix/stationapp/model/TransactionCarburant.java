@@ -8,14 +8,23 @@ import lombok.AllArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "transaction_carburant")
+@Table(name = "transaction_carburant",
+        indexes = {
+                @Index(name = "idx_transaction_carburant_date_id", columnList = "date_transaction, id"),
+                @Index(name = "idx_transaction_carburant_client_date_id", columnList = "client_id, date_transaction, id"),
+                @Index(name = "idx_transaction_carburant_station_date", columnList = "station_service_id, date_transaction"),
+                @Index(name = "idx_transaction_carburant_utilisateur_date", columnList = "utilisateur_id, date_transaction"),
+                // Unicité tenue par la table transaction_cle_idempotence (la table est partitionnée par mois, voir V6)
+                @Index(name = "idx_transaction_carburant_cle_idempotence", columnList = "cle_idempotence")
+        })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class TransactionCarburant {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_carburant_seq")
+    @SequenceGenerator(name = "transaction_carburant_seq", sequenceName = "transaction_carburant_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -44,4 +53,8 @@ public class TransactionCarburant {
 
     @Column(name = "points_utilises", nullable = false)
     private Double pointsUtilises = 0.0;
+
+    // Clé fournie par le terminal pour rendre les renvois idempotents (unique, peut être null)
+    @Column(name = "cle_idempotence", length = 64)
+    private String cleIdempotence;
 }
\ No newline at end of file
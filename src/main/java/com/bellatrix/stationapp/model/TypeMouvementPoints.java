@@ -0,0 +1,8 @@
+package com.bellatrix.stationapp.model;
+
+public enum TypeMouvementPoints {
+    GAIN,          // Points gagnés lors d'un achat
+    UTILISATION,   // Points utilisés pour un rachat lors d'un achat
+    AJUSTEMENT,    // Correction manuelle (litige, geste commercial...)
+    EXPIRATION     // Points expirés
+}
@@ -19,7 +19,8 @@ import java.util.List;
 public class Utilisateur implements UserDetails { // <<< Implémente UserDetails
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "utilisateur_seq")
+    @SequenceGenerator(name = "utilisateur_seq", sequenceName = "utilisateur_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "username", unique = true, nullable = false, length = 50)
@@ -41,6 +42,10 @@ public class Utilisateur implements UserDetails { // <<< Implémente UserDetails
     @Column(name = "active", nullable = false)
     private Boolean active = true;
 
+    // Version des tokens JWT : les tokens émis avec une autre version sont refusés (voir VersionsJetons)
+    @Column(name = "version_jeton", nullable = false)
+    private Long versionJeton = 0L;
+
     // --- Implémentation des méthodes UserDetails ---
     // Ces méthodes sont nécessaires pour Spring Security
     // Elles ne devraient pas impacter ton application desktop.
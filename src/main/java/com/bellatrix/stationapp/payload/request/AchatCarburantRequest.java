@@ -0,0 +1,44 @@
+// src/main/java/com/bellatrix/stationapp/payload/request/AchatCarburantRequest.java
+package com.bellatrix.stationapp.payload.request;
+
+import com.bellatrix.stationapp.exception.RequeteInvalideException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Une vente de carburant telle qu'envoyée par un terminal de station.
+ * Utilisée par /api/transactions/achat et par l'endpoint d'ingestion par lot (/api/transactions/achats/batch).
+ * Jackson la lie directement depuis le JSON, sans passer par une Map intermédiaire.
+ *
+ * @param dateTransaction Date réelle de la vente (ventes bufferisées par la pompe). Si absente, la date du serveur est utilisée.
+ * @param cleIdempotence Clé unique générée par le terminal : un renvoi avec la même clé n'est enregistré qu'une fois.
+ */
+public record AchatCarburantRequest(
+        Long clientId,
+        Long stationServiceId,
+        Long utilisateurId,
+        Double litresAchetes,
+        Double montantTotal,
+        Boolean utiliserPoints,
+        LocalDateTime dateTransaction,
+        String cleIdempotence) {
+
+    /**
+     * Vérifie la présence des champs obligatoires d'une vente unitaire.
+     *
+     * @throws RequeteInvalideException avec la liste des champs manquants.
+     */
+    public void verifierChampsObligatoires() {
+        List<String> manquants = new ArrayList<>(5);
+        if (clientId == null) manquants.add("clientId");
+        if (stationServiceId == null) manquants.add("stationServiceId");
+        if (utilisateurId == null) manquants.add("utilisateurId");
+        if (litresAchetes == null) manquants.add("litresAchetes");
+        if (montantTotal == null) manquants.add("montantTotal");
+        if (!manquants.isEmpty()) {
+            throw new RequeteInvalideException("Champs obligatoires manquants.", manquants);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.bellatrix.stationapp.payload.request;
+
+import com.bellatrix.stationapp.model.TypeMouvementPoints;
+import lombok.Data;
+
+/**
+ * Ajustement manuel du solde de points d'un client (AJUSTEMENT ou EXPIRATION).
+ */
+@Data
+public class AjustementPointsRequest {
+    private TypeMouvementPoints type;
+    private Double points; // Négatif pour un retrait
+    private String motif;
+}
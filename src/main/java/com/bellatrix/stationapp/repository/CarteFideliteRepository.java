@@ -3,15 +3,38 @@ package com.bellatrix.stationapp.repository;
 
 import com.bellatrix.stationapp.model.CarteFidelite;
 import com.bellatrix.stationapp.model.Client;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface CarteFideliteRepository extends JpaRepository<CarteFidelite, Long> {
     // ANCIEN: Optional<CarteFidelite> findByCodeBarres(String codeBarres);
     // NOUVEAU:
+    @IndexUtilise("carte_fidelite_numero_carte_key")
     Optional<CarteFidelite> findByNumeroCarte(String numeroCarte); // <-- CHANGEMENT ICI
+    @IndexUtilise("idx_carte_fidelite_client")
     Optional<CarteFidelite> findByClient(Client client);
+
+    // Client et statut d'une carte, sans charger la carte ni le client (connexion par numéro de carte)
+    @Query("SELECT c.client.id, c.active FROM CarteFidelite c WHERE c.numeroCarte = :numeroCarte")
+    @IndexUtilise("carte_fidelite_numero_carte_key")
+    List<Object[]> findClientEtActiveByNumeroCarte(@Param("numeroCarte") String numeroCarte);
+
+    // Numéro, client et statut de toutes les cartes, lus en flux pour l'index des cartes en mémoire
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT c.numeroCarte, c.client.id, c.active FROM CarteFidelite c")
+    @IndexUtilise(sansIndex = "Lecture complète, au démarrage et à chaque rechargement de l'index des cartes")
+    Stream<Object[]> streamIndexCartes();
 }
\ No newline at end of file
@@ -4,6 +4,8 @@ package com.bellatrix.stationapp.repository;
 
 import com.bellatrix.stationapp.model.Client;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional; // Pour la recherche par numéro de téléphone
@@ -13,5 +15,14 @@ public interface ClientRepository extends JpaRepository<Client, Long> {
     // JpaRepository<T, ID> : T est le type de l'entité, ID est le type de sa clé primaire (Long pour Client)
 
     // Méthode personnalisée pour trouver un client par son numéro de téléphone
+    @IndexUtilise("client_numero_telephone_key")
     Optional<Client> findByNumeroTelephone(String numeroTelephone);
+
+    // Incrément (ou décrément) atomique du solde, en une seule instruction SQL.
+    // La garde dans le WHERE empêche le solde de devenir négatif : aucune ligne n'est modifiée dans ce cas.
+    // Retourne le nouveau solde, ou vide si le client n'existe pas ou si le solde serait insuffisant.
+    @Query(value = "UPDATE client SET solde_points = solde_points + :delta " +
+            "WHERE id = :id AND solde_points + :delta >= 0 RETURNING solde_points", nativeQuery = true)
+    @IndexUtilise("client_pkey")
+    Optional<Double> ajouterSoldePoints(@Param("id") Long id, @Param("delta") double delta);
 }
@@ -0,0 +1,24 @@
+package com.bellatrix.stationapp.repository;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Index sur lesquels s'appuie une méthode de repository (noms tels que créés par les migrations Flyway).
+ * Toute méthode déclarée dans un repository doit porter cette annotation : un test vérifie que les index
+ * cités existent dans db/migration, et échoue pour une requête sans index ni justification.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface IndexUtilise {
+
+    // Noms des index utilisés (y compris les clés primaires <table>_pkey et contraintes uniques <table>_<colonne>_key)
+    String[] value() default {};
+
+    // Raison pour laquelle aucun index n'est nécessaire (petite table de référence, parcours complet voulu...)
+    String sansIndex() default "";
+}
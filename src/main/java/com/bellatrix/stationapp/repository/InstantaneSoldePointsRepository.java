@@ -0,0 +1,69 @@
+package com.bellatrix.stationapp.repository;
+
+import com.bellatrix.stationapp.model.InstantaneSoldePoints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface InstantaneSoldePointsRepository extends JpaRepository<InstantaneSoldePoints, Long> {
+
+    // Clé du verrou consultatif (advisory lock) Postgres qui sépare les mouvements antidatés et la création des instantanés
+    long VERROU_INSTANTANES = 0x494E5354L;
+
+    // Verrous de transaction, libérés au commit ou au rollback. Les inscriptions antidatées le prennent en mode partagé
+    // (elles ne s'attendent pas entre elles), la création des instantanés en mode exclusif : elle attend que les
+    // inscriptions en cours soient validées et les fait attendre pendant qu'elle s'exécute.
+    @IndexUtilise(sansIndex = "Verrou consultatif, ne lit aucune table")
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock_shared(" + VERROU_INSTANTANES + ")", nativeQuery = true)
+    int verrouillerPourInscription();
+
+    @IndexUtilise(sansIndex = "Verrou consultatif, ne lit aucune table")
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(" + VERROU_INSTANTANES + ")", nativeQuery = true)
+    int verrouillerPourInstantanes();
+
+    // Dernier instantané d'un client à une date donnée
+    @IndexUtilise("idx_instantane_solde_points_client_date")
+    Optional<InstantaneSoldePoints> findFirstByClientIdAndDateInstantaneLessThanEqualOrderByDateInstantaneDesc(
+            Long clientId, LocalDateTime date);
+
+    // Un mouvement antidaté rend faux les instantanés postérieurs à sa date : ils sont supprimés et seront recalculés
+    @IndexUtilise("idx_instantane_solde_points_client_date")
+    @Modifying
+    @Query("DELETE FROM InstantaneSoldePoints i WHERE i.client.id = :clientId AND i.dateInstantane >= :date")
+    int supprimerDepuis(@Param("clientId") Long clientId, @Param("date") LocalDateTime date);
+
+    /**
+     * Crée un instantané pour chaque client ayant au moins :tousLes mouvements depuis son dernier instantané,
+     * en ne prenant que les mouvements datés jusqu'à :limite. Une seule instruction pour tous les clients.
+     */
+    @IndexUtilise({"idx_instantane_solde_points_client_date", "idx_mouvement_points_client_date"})
+    @Modifying
+    @Query(value = """
+            WITH dernier AS (
+                SELECT DISTINCT ON (client_id) client_id, date_instantane, solde
+                FROM instantane_solde_points
+                ORDER BY client_id, date_instantane DESC
+            ), nouveaux AS (
+                SELECT m.client_id,
+                       MAX(m.date_mouvement)               AS date_instantane,
+                       COALESCE(MAX(d.solde), 0) + SUM(m.points) AS solde,
+                       COUNT(*)                            AS nombre_mouvements
+                FROM mouvement_points m
+                LEFT JOIN dernier d ON d.client_id = m.client_id
+                WHERE (d.date_instantane IS NULL OR m.date_mouvement > d.date_instantane)
+                  AND m.date_mouvement <= :limite
+                GROUP BY m.client_id
+                HAVING COUNT(*) >= :tousLes
+            )
+            INSERT INTO instantane_solde_points (id, client_id, date_instantane, solde, nombre_mouvements)
+            SELECT nextval('instantane_solde_points_seq'), client_id, date_instantane, solde, nombre_mouvements
+            FROM nouveaux
+            """, nativeQuery = true)
+    int creerInstantanes(@Param("limite") LocalDateTime limite, @Param("tousLes") long tousLes);
+}
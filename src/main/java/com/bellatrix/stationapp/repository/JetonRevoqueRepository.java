@@ -0,0 +1,25 @@
+package com.bellatrix.stationapp.repository;
+
+import com.bellatrix.stationapp.model.JetonRevoque;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface JetonRevoqueRepository extends JpaRepository<JetonRevoque, UUID> {
+
+    // Révocations encore utiles (token pas encore expiré), relues au démarrage et à chaque rechargement
+    @IndexUtilise("idx_jeton_revoque_expiration")
+    List<JetonRevoque> findByExpirationAfter(LocalDateTime date);
+
+    @IndexUtilise("idx_jeton_revoque_expiration")
+    @Modifying
+    @Query("DELETE FROM JetonRevoque j WHERE j.expiration < :date")
+    int supprimerExpiresAvant(@Param("date") LocalDateTime date);
+}
@@ -0,0 +1,31 @@
+package com.bellatrix.stationapp.repository;
+
+import com.bellatrix.stationapp.model.MouvementPoints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface MouvementPointsRepository extends JpaRepository<MouvementPoints, Long> {
+
+    // Somme des mouvements d'un client dans l'intervalle ]debut, fin] (index client_id, date_mouvement)
+    @IndexUtilise("idx_mouvement_points_client_date")
+    @Query("SELECT COALESCE(SUM(m.points), 0) FROM MouvementPoints m " +
+            "WHERE m.client.id = :clientId AND m.dateMouvement > :debut AND m.dateMouvement <= :fin")
+    double sommePointsEntre(@Param("clientId") Long clientId, @Param("debut") LocalDateTime debut,
+                            @Param("fin") LocalDateTime fin);
+
+    @IndexUtilise("idx_mouvement_points_client_date")
+    @Query("SELECT COALESCE(SUM(m.points), 0) FROM MouvementPoints m " +
+            "WHERE m.client.id = :clientId AND m.dateMouvement <= :fin")
+    double sommePointsJusqua(@Param("clientId") Long clientId, @Param("fin") LocalDateTime fin);
+
+    // Historique d'un client sur une période, pour les audits et litiges
+    @IndexUtilise("idx_mouvement_points_client_date")
+    List<MouvementPoints> findByClientIdAndDateMouvementBetweenOrderByDateMouvementAscIdAsc(
+            Long clientId, LocalDateTime debut, LocalDateTime fin);
+}
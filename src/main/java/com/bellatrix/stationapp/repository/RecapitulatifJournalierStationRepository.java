@@ -0,0 +1,48 @@
+package com.bellatrix.stationapp.repository;
+
+import com.bellatrix.stationapp.dto.RecapitulatifStationDto;
+import com.bellatrix.stationapp.model.RecapitulatifJournalierStation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface RecapitulatifJournalierStationRepository
+        extends JpaRepository<RecapitulatifJournalierStation, RecapitulatifJournalierStation.Cle> {
+
+    // Ajoute des ventes aux totaux d'une tranche d'une station pour un jour, en créant la ligne si besoin
+    // (une seule instruction)
+    @IndexUtilise("daily_station_rollup_pkey")
+    @Modifying
+    @Query(value = """
+            INSERT INTO daily_station_rollup (station_service_id, jour, tranche, litres, chiffre_affaires,
+                                              points_gagnes, points_utilises, nombre_transactions)
+            VALUES (:stationId, :jour, :tranche, :litres, :chiffreAffaires, :pointsGagnes, :pointsUtilises,
+                    :nombreTransactions)
+            ON CONFLICT (station_service_id, jour, tranche) DO UPDATE SET
+                litres              = daily_station_rollup.litres + EXCLUDED.litres,
+                chiffre_affaires    = daily_station_rollup.chiffre_affaires + EXCLUDED.chiffre_affaires,
+                points_gagnes       = daily_station_rollup.points_gagnes + EXCLUDED.points_gagnes,
+                points_utilises     = daily_station_rollup.points_utilises + EXCLUDED.points_utilises,
+                nombre_transactions = daily_station_rollup.nombre_transactions + EXCLUDED.nombre_transactions
+            """, nativeQuery = true)
+    void cumuler(@Param("stationId") Long stationId, @Param("jour") LocalDate jour, @Param("tranche") short tranche,
+                 @Param("litres") double litres,
+                 @Param("chiffreAffaires") double chiffreAffaires, @Param("pointsGagnes") double pointsGagnes,
+                 @Param("pointsUtilises") double pointsUtilises, @Param("nombreTransactions") long nombreTransactions);
+
+    // Totaux par station sur une période (bornes incluses), toutes tranches additionnées
+    @IndexUtilise("idx_daily_station_rollup_jour")
+    @Query("SELECT new com.bellatrix.stationapp.dto.RecapitulatifStationDto(" +
+            "r.stationServiceId, s.nom, SUM(r.litres), SUM(r.chiffreAffaires), SUM(r.pointsGagnes), " +
+            "SUM(r.pointsUtilises), SUM(r.nombreTransactions)) " +
+            "FROM RecapitulatifJournalierStation r JOIN StationService s ON s.id = r.stationServiceId " +
+            "WHERE r.jour BETWEEN :debut AND :fin " +
+            "GROUP BY r.stationServiceId, s.nom ORDER BY r.stationServiceId")
+    List<RecapitulatifStationDto> totauxParStation(@Param("debut") LocalDate debut, @Param("fin") LocalDate fin);
+}
@@ -10,5 +10,6 @@ import java.util.Optional;
 @Repository
 public interface ReglePointRepository extends JpaRepository<ReglePoints, Long> {
     // Ajoute cette méthode si elle n'existe pas
+    @IndexUtilise(sansIndex = "Table de référence de quelques lignes ; la règle active est de plus servie par un cache")
     Optional<ReglePoints> findByActive(boolean active);
 }
\ No newline at end of file
@@ -9,5 +9,6 @@ import java.util.List;
 @Repository
 public interface SeuilRachatRepository extends JpaRepository<SeuilRachat, Long> {
     // Méthode pour obtenir tous les seuils de rachat triés par points requis
+    @IndexUtilise(sansIndex = "Table de référence de quelques lignes, lue entièrement pour l'index en mémoire")
     List<SeuilRachat> findAllByOrderByPointsRequisAsc();
 }
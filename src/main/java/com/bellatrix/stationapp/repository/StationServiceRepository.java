@@ -8,6 +8,7 @@ import java.util.Optional;
 
 @Repository
 public interface StationServiceRepository extends JpaRepository<StationService, Long> {
+    @IndexUtilise(sansIndex = "Table de référence de quelques dizaines de lignes")
     Optional<StationService> findByNom(String name);
     // Aucune méthode personnalisée requise pour l'instant
 
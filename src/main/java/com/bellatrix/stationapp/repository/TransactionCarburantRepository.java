@@ -1,28 +1,182 @@
 // src/main/java/com/bellatrix/stationapp/repository/TransactionCarburantRepository.java
 package com.bellatrix.stationapp.repository;
 
+import com.bellatrix.stationapp.dto.AgregatTransactions;
 import com.bellatrix.stationapp.model.Client; // Gardez cette importation
 import com.bellatrix.stationapp.model.TransactionCarburant;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionCarburantRepository extends JpaRepository<TransactionCarburant, Long> {
+    // Les listes sont mappées en TransactionCarburantDto, qui lit le client, la station et l'utilisateur :
+    // ces relations sont chargées dans la même requête (graphe d'entités) au lieu d'une requête par ligne.
+
+    @Override
+    @IndexUtilise(sansIndex = "Liste complète, conservée pour compatibilité (utiliser /page)")
+    @EntityGraph(attributePaths = {"client", "stationService", "utilisateur"})
+    List<TransactionCarburant> findAll();
+
     // Nouvelle méthode pour trouver les transactions par l'ID du client
     // Spring Data JPA peut dériver cette requête directement du nom de la méthode
+    @IndexUtilise("idx_transaction_carburant_client_date_id")
+    @EntityGraph(attributePaths = {"client", "stationService", "utilisateur"})
     List<TransactionCarburant> findByClientId(Long clientId); // <-- MODIFIÉ ici pour utiliser directement l'ID
 
-    // Méthodes pour les sommes agrégées (si vous voulez calculer des totaux dans le service)
-    @Query("SELECT SUM(t.pointsGagnes) FROM TransactionCarburant t WHERE t.client.id = :clientId")
-    Double sumPointsGagnesByClientId(Long clientId);
+    // Requêtes pour les rapports basés sur la date, dans l'ordre chronologique (id pour départager les ex æquo)
+    @IndexUtilise("idx_transaction_carburant_date_id")
+    @EntityGraph(attributePaths = {"client", "stationService", "utilisateur"})
+    List<TransactionCarburant> findByDateTransactionBetweenOrderByDateTransactionAscIdAsc(LocalDateTime startDate,
+                                                                                          LocalDateTime endDate);
+
+    // Rapports d'une seule station
+    @IndexUtilise("idx_transaction_carburant_station_date")
+    @EntityGraph(attributePaths = {"client", "stationService", "utilisateur"})
+    List<TransactionCarburant> findByStationServiceIdAndDateTransactionBetweenOrderByDateTransactionAscIdAsc(
+            Long stationServiceId, LocalDateTime startDate, LocalDateTime endDate);
+
+    // Lecture en flux pour les exports : le driver ramène les lignes par paquets (fetch size) au lieu de tout charger.
+    // À consommer dans une transaction, et à fermer (try-with-resources).
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t FROM TransactionCarburant t " +
+            "JOIN FETCH t.client JOIN FETCH t.stationService JOIN FETCH t.utilisateur " +
+            "WHERE t.dateTransaction BETWEEN :debut AND :fin ORDER BY t.dateTransaction, t.id")
+    @IndexUtilise("idx_transaction_carburant_date_id")
+    Stream<TransactionCarburant> streamByDateTransactionBetween(@Param("debut") LocalDateTime debut,
+                                                                @Param("fin") LocalDateTime fin);
+
+    // Pagination par clé (keyset) sur (dateTransaction, id) décroissants : la page suivante commence strictement
+    // après la dernière ligne renvoyée. Le coût d'une page ne dépend pas de sa profondeur, contrairement à OFFSET.
+    @Query("SELECT t FROM TransactionCarburant t " +
+            "JOIN FETCH t.client JOIN FETCH t.stationService JOIN FETCH t.utilisateur " +
+            "WHERE (t.dateTransaction, t.id) < (:date, :id) " +
+            "ORDER BY t.dateTransaction DESC, t.id DESC")
+    @IndexUtilise("idx_transaction_carburant_date_id")
+    List<TransactionCarburant> findPageApres(@Param("date") LocalDateTime date, @Param("id") Long id, Limit limite);
+
+    @Query("SELECT t FROM TransactionCarburant t " +
+            "JOIN FETCH t.client JOIN FETCH t.stationService JOIN FETCH t.utilisateur " +
+            "WHERE t.client.id = :clientId AND (t.dateTransaction, t.id) < (:date, :id) " +
+            "ORDER BY t.dateTransaction DESC, t.id DESC")
+    @IndexUtilise("idx_transaction_carburant_client_date_id")
+    List<TransactionCarburant> findPageParClientApres(@Param("clientId") Long clientId, @Param("date") LocalDateTime date,
+                                                      @Param("id") Long id, Limit limite);
+
+    @Query("SELECT t FROM TransactionCarburant t " +
+            "JOIN FETCH t.client JOIN FETCH t.stationService JOIN FETCH t.utilisateur " +
+            "WHERE t.dateTransaction BETWEEN :debut AND :fin AND (t.dateTransaction, t.id) < (:date, :id) " +
+            "ORDER BY t.dateTransaction DESC, t.id DESC")
+    @IndexUtilise("idx_transaction_carburant_date_id")
+    List<TransactionCarburant> findPageEntreApres(@Param("debut") LocalDateTime debut, @Param("fin") LocalDateTime fin,
+                                                  @Param("date") LocalDateTime date, @Param("id") Long id, Limit limite);
+
+    // Recherche par clé d'idempotence (renvois des terminaux)
+    @IndexUtilise("idx_transaction_carburant_cle_idempotence")
+    @EntityGraph(attributePaths = {"client", "stationService", "utilisateur"})
+    Optional<TransactionCarburant> findByCleIdempotence(String cleIdempotence);
+
+    @IndexUtilise("idx_transaction_carburant_cle_idempotence")
+    @EntityGraph(attributePaths = {"client", "stationService", "utilisateur"})
+    List<TransactionCarburant> findByCleIdempotenceIn(Collection<String> clesIdempotence);
+
+    // Réserve les clés d'idempotence des ventes avant la mise à jour des soldes (fonction créée par la migration V11).
+    // Une clé déjà réservée ou utilisée lève une violation de contrainte unique. dates : date de chaque vente, dans
+    // le même ordre que cles
+    @Query(value = "SELECT reserver_cles_idempotence(ARRAY[:cles], ARRAY[:dates])", nativeQuery = true)
+    @IndexUtilise(sansIndex = "Insertion par clé primaire dans transaction_cle_idempotence")
+    int reserverClesIdempotence(@Param("cles") List<String> cles, @Param("dates") List<LocalDateTime> dates);
+
+    // --- Rapports agrégés : GROUP BY calculés par la base, seuls les totaux sont renvoyés ---
+
+    String COLONNES_AGREGAT = """
+            SUM(t.litres_achetes)       AS "litres",
+            SUM(t.montant_total)        AS "chiffreAffaires",
+            SUM(t.points_gagnes)        AS "pointsGagnes",
+            SUM(t.points_utilises)      AS "pointsUtilises",
+            COUNT(*)                    AS "nombreTransactions",
+            AVG(t.montant_total)        AS "montantMoyen",
+            AVG(t.litres_achetes)       AS "litresMoyens",
+            COUNT(DISTINCT t.client_id) AS "clientsDistincts"
+            """;
+
+    // unite : 'day', 'week' ou 'month' (date_trunc de Postgres ; la semaine commence le lundi).
+    // La période est calculée dans une sous-requête : le paramètre n'apparaît qu'une fois dans la requête envoyée.
+    @Query(value = "SELECT to_char(t.periode, 'YYYY-MM-DD') AS \"cle\", " +
+            "CAST(NULL AS VARCHAR) AS \"libelle\", " + COLONNES_AGREGAT +
+            "FROM (SELECT date_trunc(:unite, date_transaction) AS periode, client_id, litres_achetes, montant_total, " +
+            "points_gagnes, points_utilises FROM transaction_carburant " +
+            "WHERE date_transaction BETWEEN :debut AND :fin) t " +
+            "GROUP BY t.periode ORDER BY t.periode",
+            nativeQuery = true)
+    @IndexUtilise("idx_transaction_carburant_date_id")
+    List<AgregatTransactions> agregerParPeriode(@Param("unite") String unite, @Param("debut") LocalDateTime debut,
+                                                @Param("fin") LocalDateTime fin);
+
+    @Query(value = "SELECT CAST(t.station_service_id AS VARCHAR) AS \"cle\", s.nom AS \"libelle\", " + COLONNES_AGREGAT +
+            "FROM transaction_carburant t JOIN station_service s ON s.id = t.station_service_id " +
+            "WHERE t.date_transaction BETWEEN :debut AND :fin " +
+            "GROUP BY t.station_service_id, s.nom ORDER BY \"chiffreAffaires\" DESC LIMIT :limite",
+            nativeQuery = true)
+    @IndexUtilise("idx_transaction_carburant_date_id")
+    List<AgregatTransactions> agregerParStation(@Param("debut") LocalDateTime debut, @Param("fin") LocalDateTime fin,
+                                                @Param("limite") int limite);
+
+    @Query(value = "SELECT CAST(t.utilisateur_id AS VARCHAR) AS \"cle\", u.username AS \"libelle\", " + COLONNES_AGREGAT +
+            "FROM transaction_carburant t JOIN utilisateur u ON u.id = t.utilisateur_id " +
+            "WHERE t.date_transaction BETWEEN :debut AND :fin " +
+            "GROUP BY t.utilisateur_id, u.username ORDER BY \"chiffreAffaires\" DESC LIMIT :limite",
+            nativeQuery = true)
+    @IndexUtilise("idx_transaction_carburant_date_id")
+    List<AgregatTransactions> agregerParEmploye(@Param("debut") LocalDateTime debut, @Param("fin") LocalDateTime fin,
+                                                @Param("limite") int limite);
+
+    @Query(value = "SELECT CAST(t.client_id AS VARCHAR) AS \"cle\", " +
+            "CONCAT_WS(' ', c.prenom, c.nom) AS \"libelle\", " + COLONNES_AGREGAT +
+            "FROM transaction_carburant t JOIN client c ON c.id = t.client_id " +
+            "WHERE t.date_transaction BETWEEN :debut AND :fin " +
+            "GROUP BY t.client_id, c.prenom, c.nom ORDER BY \"chiffreAffaires\" DESC LIMIT :limite",
+            nativeQuery = true)
+    @IndexUtilise("idx_transaction_carburant_date_id")
+    List<AgregatTransactions> agregerParClient(@Param("debut") LocalDateTime debut, @Param("fin") LocalDateTime fin,
+                                               @Param("limite") int limite);
+
+    // Faits des transactions d'ID supérieur à apresId, pour l'instantané analytique en colonnes : uniquement des
+    // nombres (id, jour depuis le 01/01/1970, station, client, litres, montant, points gagnés), lus en flux
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(value = "SELECT t.id, CAST(t.date_transaction AS DATE) - DATE '1970-01-01', t.station_service_id, " +
+            "t.client_id, t.litres_achetes, t.montant_total, t.points_gagnes " +
+            "FROM transaction_carburant t WHERE t.id > :apresId ORDER BY t.id",
+            nativeQuery = true)
+    @IndexUtilise("transaction_carburant_pkey")
+    Stream<Object[]> streamFaitsApres(@Param("apresId") long apresId);
 
-    @Query("SELECT SUM(t.pointsUtilises) FROM TransactionCarburant t WHERE t.client.id = :clientId")
-    Double sumPointsUtilisesByClientId(Long clientId);
+    // Maintenance des partitions mensuelles (fonctions créées par la migration V6, redéfinies par V10 et V12) ;
+    // renvoient le nombre de partitions. Le détachement libère aussi les clés d'idempotence des mois détachés
+    @Query(value = "SELECT creer_partitions_transaction_carburant(:debut, :fin)", nativeQuery = true)
+    @IndexUtilise(sansIndex = "Maintenance des partitions (DDL), ne lit pas les transactions")
+    int creerPartitions(@Param("debut") LocalDate debut, @Param("fin") LocalDate fin);
 
-    // Requêtes pour les rapports basés sur la date (déjà vu, mais je les remets ici pour clarté)
-    List<TransactionCarburant> findByDateTransactionBetween(LocalDateTime startDate, LocalDateTime endDate);
-}
\ No newline at end of file
+    @Query(value = "SELECT detacher_partitions_transaction_carburant(:avant)", nativeQuery = true)
+    @IndexUtilise(sansIndex = "Maintenance des partitions (DDL), ne lit que le catalogue")
+    int detacherPartitions(@Param("avant") LocalDate avant);
+}
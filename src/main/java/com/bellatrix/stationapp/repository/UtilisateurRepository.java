@@ -3,12 +3,21 @@ package com.bellatrix.stationapp.repository;
 
 import com.bellatrix.stationapp.model.Utilisateur;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
 
 @Repository
 public interface UtilisateurRepository extends JpaRepository<Utilisateur, Long> {
+    @IndexUtilise("utilisateur_username_key")
     Optional<Utilisateur> findByUsername(String username); // Très important pour Spring Security
+    @IndexUtilise("utilisateur_username_key")
     boolean existsByUsername(String username); // Utile pour l'enregistrement
+
+    // Version des tokens d'un utilisateur actif (vide si l'utilisateur n'existe pas ou est désactivé)
+    @IndexUtilise("utilisateur_pkey")
+    @Query("SELECT u.versionJeton FROM Utilisateur u WHERE u.id = :id AND u.active = true")
+    Optional<Long> findVersionJetonActif(@Param("id") Long id);
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.bellatrix.stationapp.security;
+
+import java.security.Principal;
+import java.time.Instant;
+
+/**
+ * Contenu d'un token JWT dont la signature et l'expiration ont été vérifiées.
+ * Sert aussi de principal aux requêtes authentifiées des utilisateurs (ADMIN, STATION_EMPLOYEE).
+ *
+ * @param sujet Le nom d'utilisateur, ou le numéro de carte pour un client web.
+ * @param role Le rôle porté par le token.
+ * @param expiration La date d'expiration du token.
+ * @param utilisateurId L'ID de l'utilisateur (null pour un client web ou un ancien token).
+ * @param stationId La station de l'utilisateur (null pour un admin global ou un client web).
+ * @param version La version des tokens de l'utilisateur à l'émission (null pour un client web ou un ancien token).
+ * @param identifiant Le claim jti, qui permet de révoquer ce token seul (null pour un ancien token).
+ */
+public record JetonVerifie(String sujet, String role, Instant expiration,
+                           Long utilisateurId, Long stationId, Long version, String identifiant) implements Principal {
+
+    @Override
+    public String getName() {
+        return sujet;
+    }
+}
@@ -0,0 +1,178 @@
+package com.bellatrix.stationapp.security;
+
+import com.bellatrix.stationapp.model.JetonRevoque;
+import com.bellatrix.stationapp.repository.JetonRevoqueRepository;
+import com.bellatrix.stationapp.service.ApresCommit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tokens JWT révoqués avant leur expiration (déconnexion), vérifiés à chaque requête sans accès à la base.
+ *
+ * Les révocations sont rangées par heure d'expiration du token : un token ne peut être cherché que dans le seau
+ * de sa propre heure d'expiration (recherche en O(1)), et un seau entier est abandonné dès que tous ses tokens
+ * ont expiré. Dans un seau, chaque jti (UUID) occupe deux long d'un tableau à adressage ouvert, sans objet par
+ * entrée ; le tableau est recopié à chaque révocation (rares) et lu sans verrou.
+ *
+ * Les révocations sont enregistrées dans la table jeton_revoque : elles sont relues au démarrage et à chaque
+ * rechargement, qui fait aussi connaître à cette instance les révocations faites par les autres.
+ * Les désactivations et changements de rôle d'un utilisateur passent par sa version de tokens (VersionsJetons).
+ */
+@Component
+public class JetonsRevoques {
+
+    private static final Logger logger = LoggerFactory.getLogger(JetonsRevoques.class);
+
+    private static final long SECONDES_PAR_SEAU = 3600;
+
+    private final JetonRevoqueRepository jetonRevoqueRepository;
+    // Heure d'expiration (secondes depuis 1970 / 3600) -> jti révoqués expirant dans cette heure
+    private final ConcurrentHashMap<Long, EnsembleIdentifiants> seaux = new ConcurrentHashMap<>();
+
+    @Autowired
+    public JetonsRevoques(JetonRevoqueRepository jetonRevoqueRepository) {
+        this.jetonRevoqueRepository = jetonRevoqueRepository;
+    }
+
+    /**
+     * Indique si ce token a été révoqué. Aucun accès à la base.
+     */
+    public boolean estRevoque(JetonVerifie jeton) {
+        if (jeton.identifiant() == null || seaux.isEmpty()) {
+            return false;
+        }
+        EnsembleIdentifiants seau = seaux.get(seau(jeton.expiration()));
+        if (seau == null) {
+            return false;
+        }
+        UUID jti = uuid(jeton.identifiant());
+        return jti != null && seau.contient(jti.getMostSignificantBits(), jti.getLeastSignificantBits());
+    }
+
+    /**
+     * Révoque ce token jusqu'à son expiration, sur cette instance dès le commit et sur les autres au prochain
+     * rechargement.
+     *
+     * @throws IllegalArgumentException si le token n'a pas de jti (émis avant l'ajout de ce claim).
+     */
+    @Transactional
+    public void revoquer(JetonVerifie jeton) {
+        UUID jti = jeton.identifiant() != null ? uuid(jeton.identifiant()) : null;
+        if (jti == null) {
+            throw new IllegalArgumentException("Ce token ne peut pas être révoqué (pas d'identifiant jti).");
+        }
+        jetonRevoqueRepository.save(new JetonRevoque(jti, LocalDateTime.ofInstant(jeton.expiration(), ZoneId.systemDefault())));
+        ApresCommit.executer(() -> ajouter(jti, jeton.expiration()));
+    }
+
+    /**
+     * Relit les révocations encore utiles (les ajouts sont idempotents) et supprime les révocations expirées,
+     * en mémoire et en base.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${application.security.jwt.revocations.rechargement-ms:30000}")
+    @Transactional
+    public void recharger() {
+        Instant maintenant = Instant.now();
+        long seauCourant = seau(maintenant);
+        seaux.keySet().removeIf(seau -> seau < seauCourant);
+        LocalDateTime date = LocalDateTime.ofInstant(maintenant, ZoneId.systemDefault());
+        int supprimees = jetonRevoqueRepository.supprimerExpiresAvant(date);
+        for (JetonRevoque revocation : jetonRevoqueRepository.findByExpirationAfter(date)) {
+            ajouter(revocation.getJti(), revocation.getExpiration().atZone(ZoneId.systemDefault()).toInstant());
+        }
+        if (supprimees > 0) {
+            logger.debug("{} révocation(s) de token expirée(s) supprimée(s).", supprimees);
+        }
+    }
+
+    private void ajouter(UUID jti, Instant expiration) {
+        seaux.computeIfAbsent(seau(expiration), s -> new EnsembleIdentifiants())
+                .ajouter(jti.getMostSignificantBits(), jti.getLeastSignificantBits());
+    }
+
+    private static long seau(Instant expiration) {
+        return expiration.getEpochSecond() / SECONDES_PAR_SEAU;
+    }
+
+    // Un jti mal formé ne vient pas de ce service : il ne peut pas avoir été révoqué
+    private static UUID uuid(String identifiant) {
+        try {
+            return UUID.fromString(identifiant);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Ensemble de UUID rangés par paires de long dans un tableau à adressage ouvert (sondage linéaire), rempli au
+     * plus à moitié. La paire (0, 0) marque une case vide : ce n'est jamais un UUID aléatoire.
+     * Les écritures publient un nouveau tableau ; les lectures ne prennent aucun verrou.
+     */
+    static final class EnsembleIdentifiants {
+        private volatile long[] cases = new long[2 * 16];
+        private int taille;
+
+        boolean contient(long poidsFort, long poidsFaible) {
+            long[] t = cases;
+            int nombreCases = t.length / 2;
+            for (int i = indice(poidsFort, poidsFaible, nombreCases); ; i = (i + 1) & (nombreCases - 1)) {
+                long fort = t[2 * i];
+                long faible = t[2 * i + 1];
+                if (fort == poidsFort && faible == poidsFaible) {
+                    return true;
+                }
+                if (fort == 0 && faible == 0) {
+                    return false;
+                }
+            }
+        }
+
+        synchronized void ajouter(long poidsFort, long poidsFaible) {
+            if ((poidsFort == 0 && poidsFaible == 0) || contient(poidsFort, poidsFaible)) {
+                return;
+            }
+            long[] t = cases;
+            long[] copie;
+            if (2 * (taille + 1) > t.length / 2) {
+                copie = new long[t.length * 2];
+                for (int i = 0; i < t.length / 2; i++) {
+                    if (t[2 * i] != 0 || t[2 * i + 1] != 0) {
+                        placer(copie, t[2 * i], t[2 * i + 1]);
+                    }
+                }
+            } else {
+                copie = Arrays.copyOf(t, t.length);
+            }
+            placer(copie, poidsFort, poidsFaible);
+            taille++;
+            cases = copie;
+        }
+
+        private static void placer(long[] t, long poidsFort, long poidsFaible) {
+            int nombreCases = t.length / 2;
+            int i = indice(poidsFort, poidsFaible, nombreCases);
+            while (t[2 * i] != 0 || t[2 * i + 1] != 0) {
+                i = (i + 1) & (nombreCases - 1);
+            }
+            t[2 * i] = poidsFort;
+            t[2 * i + 1] = poidsFaible;
+        }
+
+        // Les bits d'un UUID aléatoire sont déjà bien répartis : un simple mélange des deux moitiés suffit
+        private static int indice(long poidsFort, long poidsFaible, int nombreCases) {
+            long h = poidsFort ^ poidsFaible;
+            return (int) (h ^ (h >>> 32)) & (nombreCases - 1);
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.bellatrix.stationapp.security;
 
 import com.bellatrix.stationapp.service.UtilisateurService;
-import io.jsonwebtoken.Claims; // Importez Claims
 import io.jsonwebtoken.JwtException; // Importez JwtException
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -21,6 +20,7 @@ import org.slf4j.LoggerFactory; // Importez le LoggerFactory
 
 import java.io.IOException;
 import java.util.Collections; // Importez Collections
+import java.util.List;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -28,11 +28,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class); // Initialisez le Logger
 
     private final JwtService jwtService;
-    private final UtilisateurService userService; // Utilisé pour les rôles ADMIN/autres
+    private final UtilisateurService userService; // Utilisé pour les anciens tokens sans uid/ver
+    private final VersionsJetons versionsJetons;
+    private final JetonsRevoques jetonsRevoques;
 
-    public JwtAuthenticationFilter(JwtService jwtService, UtilisateurService userService) {
+    public JwtAuthenticationFilter(JwtService jwtService, UtilisateurService userService, VersionsJetons versionsJetons,
+                                   JetonsRevoques jetonsRevoques) {
         this.jwtService = jwtService;
         this.userService = userService;
+        this.versionsJetons = versionsJetons;
+        this.jetonsRevoques = jetonsRevoques;
     }
 
     @Override
@@ -43,7 +48,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     ) throws ServletException, IOException {
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
-        final String usernameFromToken; // Renommé pour plus de clarté
+        final JetonVerifie jeton;
 
         // 1. Vérifier si l'en-tête d'autorisation est présent et au bon format
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
@@ -53,24 +58,28 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         jwt = authHeader.substring(7); // Extraire le token JWT
 
-        // 2. Extraire le nom d'utilisateur (ou ID) du token
+        // 2. Vérifier le token (signature et expiration) et en extraire le contenu, en une seule lecture
         try {
-            usernameFromToken = jwtService.extractUsername(jwt);
-        } catch (JwtException e) {
+            jeton = jwtService.verifier(jwt);
+        } catch (JwtException | IllegalArgumentException e) {
             // Gérer les tokens JWT invalides ou expirés
             logger.warn("JWT invalide ou expiré: {}", e.getMessage());
             filterChain.doFilter(request, response);
             return;
         }
-
+        // Token révoqué (déconnexion) : vérifié en mémoire, sans accès à la base
+        if (jetonsRevoques.estRevoque(jeton)) {
+            logger.warn("Token JWT révoqué utilisé par: {}", jeton.sujet());
+            filterChain.doFilter(request, response);
+            return;
+        }
+        final String usernameFromToken = jeton.sujet();
 
         // 3. Procéder à l'authentification si le nom d'utilisateur est présent
         // et qu'aucune authentification n'est déjà présente dans le contexte de sécurité
         if (usernameFromToken != null && SecurityContextHolder.getContext().getAuthentication() == null) {
             try {
-                // Tenter d'extraire les claims pour obtenir le rôle
-                Claims claims = jwtService.extractAllClaims(jwt); // Assurez-vous que jwtService a cette méthode
-                String role = claims.get("role", String.class); // Assurez-vous que le rôle est bien dans les claims
+                String role = jeton.role();
 
                 // Log pour le débogage
                 logger.debug("Tentative d'authentification pour l'utilisateur: {} avec le rôle: {}", usernameFromToken, role);
@@ -93,12 +102,29 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                     SecurityContextHolder.getContext().setAuthentication(authToken);
                     logger.debug("Authentification réussie pour le client avec ID: {}", clientId);
 
-                } else { // Pour les autres rôles (ADMIN, etc.)
+                } else if (jeton.utilisateurId() != null && jeton.version() != null) { // Tokens utilisateurs récents
+                    // Le token signé porte l'ID, le rôle, la station et la version : pas de lecture de l'utilisateur.
+                    // Seule la version courante est contrôlée (cache à durée limitée) pour écarter les tokens
+                    // émis avant un changement de rôle, de mot de passe ou une désactivation.
+                    if (versionsJetons.estValide(jeton.utilisateurId(), jeton.version())) {
+                        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                                jeton, // Le principal est le contenu vérifié du token
+                                null,
+                                List.of(new SimpleGrantedAuthority("ROLE_" + role))
+                        );
+                        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                        SecurityContextHolder.getContext().setAuthentication(authToken);
+                        logger.debug("Authentification réussie pour l'utilisateur: {}", usernameFromToken);
+                    } else {
+                        logger.warn("Token JWT révoqué pour l'utilisateur: {}", usernameFromToken);
+                    }
+
+                } else { // Anciens tokens (émis avant l'ajout de uid/ver) : jusqu'à leur expiration
                     // On charge les UserDetails depuis le service utilisateur habituel
                     UserDetails userDetails = this.userService.loadUserByUsername(usernameFromToken);
 
-                    // Vérifier si le token est valide pour ces UserDetails
-                    if (jwtService.isTokenValid(jwt, userDetails)) {
+                    // Vérifier que le token appartient à cet utilisateur (déjà vérifié, pas de nouvelle lecture)
+                    if (jwtService.isTokenValid(jeton, userDetails)) {
                         UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                                 userDetails,
                                 null,
@@ -117,8 +143,6 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 // Pour les clients, nous la gérons différemment ci-dessus.
                 // Pour les autres cas (admin non trouvé par exemple), on log l'erreur.
                 logger.warn("Utilisateur non trouvé par le service utilisateur: {} - {}", usernameFromToken, e.getMessage());
-            } catch (JwtException e) {
-                logger.warn("Erreur de traitement du JWT: {}", e.getMessage());
             } catch (NumberFormatException e) { // Pour le cas où usernameFromToken n'est pas un Long
                 logger.error("Erreur de format de numéro lors de la conversion de l'ID client: {}", usernameFromToken, e);
             }
@@ -1,6 +1,8 @@
 package com.bellatrix.stationapp.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
@@ -13,18 +15,49 @@ import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Service
 public class JwtService {
 
-    // Clé secrète JWT lue depuis application.properties
-    @Value("${application.security.jwt.secret-key}")
-    private String secretKey;
+    // Claims des tokens utilisateurs, lus par JwtAuthenticationFilter sans accès à la base
+    static final String CLAIM_ROLE = "role";
+    static final String CLAIM_UTILISATEUR_ID = "uid";
+    static final String CLAIM_STATION_ID = "sid";
+    static final String CLAIM_VERSION = "ver";
+
+    // Clé de signature et parser construits une seule fois : ils sont immuables et partagés entre les requêtes
+    private final Key signInKey;
+    private final JwtParser parser;
 
     // Durée de validité du token JWT en millisecondes, lue depuis application.properties
-    @Value("${application.security.jwt.expiration}")
-    private long jwtExpiration;
+    private final long jwtExpiration;
+
+    /**
+     * @param secretKey Clé secrète JWT en Base64, lue depuis application.properties.
+     * @param jwtExpiration Durée de validité des tokens en millisecondes.
+     */
+    public JwtService(@Value("${application.security.jwt.secret-key}") String secretKey,
+                      @Value("${application.security.jwt.expiration}") long jwtExpiration) {
+        this.signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        this.parser = Jwts.parserBuilder().setSigningKey(signInKey).build();
+        this.jwtExpiration = jwtExpiration;
+    }
+
+    /**
+     * Vérifie la signature et l'expiration du token et en extrait le contenu, en une seule lecture.
+     * C'est la méthode à utiliser à chaque requête.
+     * @param token Le token JWT.
+     * @return Le contenu vérifié du token.
+     * @throws io.jsonwebtoken.JwtException si le token est mal formé, mal signé ou expiré.
+     */
+    public JetonVerifie verifier(String token) {
+        Claims claims = extractAllClaims(token);
+        return new JetonVerifie(claims.getSubject(), claims.get(CLAIM_ROLE, String.class), claims.getExpiration().toInstant(),
+                claims.get(CLAIM_UTILISATEUR_ID, Long.class), claims.get(CLAIM_STATION_ID, Long.class),
+                claims.get(CLAIM_VERSION, Long.class), claims.getId());
+    }
 
     /**
      * Extrait le nom d'utilisateur (subject) du token JWT.
@@ -56,7 +89,28 @@ public class JwtService {
      */
     public String generateToken(String username, String role) {
         Map<String, Object> claims = new HashMap<>();
-        claims.put("role", role); // Ajoute le rôle comme une claim personnalisée
+        claims.put(CLAIM_ROLE, role); // Ajoute le rôle comme une claim personnalisée
+        return buildToken(claims, username, jwtExpiration);
+    }
+
+    /**
+     * Génère le token d'un utilisateur (ADMIN, STATION_EMPLOYEE) avec tout ce dont le filtre a besoin pour
+     * authentifier ses requêtes sans relire l'utilisateur en base.
+     * @param username Le nom d'utilisateur.
+     * @param role Le rôle de l'utilisateur.
+     * @param utilisateurId L'ID de l'utilisateur.
+     * @param stationId La station de l'utilisateur (null pour un admin global).
+     * @param version La version des tokens de l'utilisateur (Utilisateur.versionJeton).
+     * @return Le token JWT généré.
+     */
+    public String generateToken(String username, String role, Long utilisateurId, Long stationId, long version) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_ROLE, role);
+        claims.put(CLAIM_UTILISATEUR_ID, utilisateurId);
+        if (stationId != null) {
+            claims.put(CLAIM_STATION_ID, stationId);
+        }
+        claims.put(CLAIM_VERSION, version);
         return buildToken(claims, username, jwtExpiration);
     }
 
@@ -87,39 +141,33 @@ public class JwtService {
                 .builder()
                 .setClaims(extraClaims)
                 .setSubject(username)
+                .setId(UUID.randomUUID().toString()) // jti : identifie le token pour pouvoir le révoquer (JetonsRevoques)
                 .setIssuedAt(new Date(System.currentTimeMillis())) // Date d'émission
                 .setExpiration(new Date(System.currentTimeMillis() + expiration)) // Date d'expiration
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256) // Signature avec la clé secrète
+                .signWith(signInKey, SignatureAlgorithm.HS256) // Signature avec la clé secrète
                 .compact();
     }
 
     /**
      * Valide un token JWT par rapport aux UserDetails fournis.
+     * Le parser rejette déjà les tokens expirés ; une seule lecture du token.
      * @param token Le token JWT à valider.
      * @param userDetails Les détails de l'utilisateur.
      * @return true si le token est valide pour l'utilisateur et non expiré, sinon false.
      */
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        try {
+            return isTokenValid(verifier(token), userDetails);
+        } catch (ExpiredJwtException e) {
+            return false;
+        }
     }
 
     /**
-     * Vérifie si le token est expiré.
-     * @param token Le token JWT.
-     * @return true si le token est expiré, sinon false.
+     * Vérifie qu'un token déjà vérifié appartient bien à l'utilisateur, sans relire le token.
      */
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    /**
-     * Extrait la date d'expiration du token.
-     * @param token Le token JWT.
-     * @return La date d'expiration.
-     */
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    public boolean isTokenValid(JetonVerifie jeton, UserDetails userDetails) {
+        return jeton.sujet() != null && jeton.sujet().equals(userDetails.getUsername());
     }
 
     /**
@@ -129,20 +177,8 @@ public class JwtService {
      * @return L'objet Claims contenant toutes les claims.
      */
     public Claims extractAllClaims(String token) { // Changement de 'private' à 'public'
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
+        return parser
                 .parseClaimsJws(token)
                 .getBody();
     }
-
-    /**
-     * Récupère la clé de signature à partir de la clé secrète Base64.
-     * @return L'objet Key utilisé pour la signature.
-     */
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
 }
\ No newline at end of file
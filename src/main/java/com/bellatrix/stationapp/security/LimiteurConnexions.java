@@ -0,0 +1,148 @@
+package com.bellatrix.stationapp.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Limite les tentatives de connexion par mot de passe, par nom d'utilisateur et par adresse IP (seaux à jetons).
+ * Une tentative refusée ici ne coûte ni requête ni calcul BCrypt.
+ *
+ * Chaque seau contient au plus "capacite" jetons et en regagne "par-minute" par minute ; une tentative en consomme un.
+ * Les seaux sont répartis en segments verrouillés séparément (pas de verrou global sous une rafale) et chaque segment
+ * évince ses seaux les moins récemment utilisés au-delà de sa part de application.security.connexion.taille-max.
+ * Les limites sont propres à chaque instance.
+ */
+@Component
+public class LimiteurConnexions {
+
+    private static final int SEGMENTS = 64;
+
+    private final SeauxJetons parUtilisateur;
+    private final SeauxJetons parIp;
+
+    @Autowired
+    public LimiteurConnexions(@Value("${application.security.connexion.utilisateur.capacite:5}") int capaciteUtilisateur,
+                              @Value("${application.security.connexion.utilisateur.par-minute:5}") double parMinuteUtilisateur,
+                              @Value("${application.security.connexion.ip.capacite:20}") int capaciteIp,
+                              @Value("${application.security.connexion.ip.par-minute:30}") double parMinuteIp,
+                              @Value("${application.security.connexion.taille-max:100000}") int tailleMax) {
+        this.parUtilisateur = new SeauxJetons(capaciteUtilisateur, parMinuteUtilisateur, tailleMax);
+        this.parIp = new SeauxJetons(capaciteIp, parMinuteIp, tailleMax);
+    }
+
+    /**
+     * Consomme un jeton pour cette adresse IP puis pour ce nom d'utilisateur.
+     *
+     * @return false si l'un des deux seaux est vide : la tentative doit être refusée (429).
+     */
+    public boolean autoriser(String username, String ip) {
+        return autoriser(username, ip, System.nanoTime());
+    }
+
+    // maintenant : horloge en nanosecondes (System.nanoTime), fournie par les tests
+    boolean autoriser(String username, String ip, long maintenant) {
+        return parIp.consommer(cleIp(ip), maintenant) && parUtilisateur.consommer(cleUtilisateur(username), maintenant);
+    }
+
+    /**
+     * Délai avant qu'une nouvelle tentative pour ce nom d'utilisateur et cette IP soit acceptée (en-tête Retry-After),
+     * sans consommer de jeton.
+     *
+     * @return Le nombre de secondes, arrondi au-dessus, au moins 1.
+     */
+    public long secondesAvantNouvelEssai(String username, String ip) {
+        return secondesAvantNouvelEssai(username, ip, System.nanoTime());
+    }
+
+    long secondesAvantNouvelEssai(String username, String ip, long maintenant) {
+        double attenteNanos = Math.max(parIp.attenteNanos(cleIp(ip), maintenant),
+                parUtilisateur.attenteNanos(cleUtilisateur(username), maintenant));
+        // Arrondi à la nanoseconde d'abord : l'erreur de calcul en double ne fait pas ajouter une seconde entière
+        long nanos = Math.round(attenteNanos);
+        return Math.max(1, (nanos + 999_999_999) / 1_000_000_000);
+    }
+
+    private static String cleIp(String ip) {
+        return ip != null ? ip : "";
+    }
+
+    private static String cleUtilisateur(String username) {
+        return username != null ? username.toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static final class SeauxJetons {
+        private final double capacite;
+        private final double jetonsParNano;
+        private final Map<String, Seau>[] segments;
+
+        @SuppressWarnings("unchecked")
+        SeauxJetons(int capacite, double parMinute, int tailleMax) {
+            if (capacite <= 0 || parMinute <= 0) {
+                throw new IllegalArgumentException("La capacité et le débit des seaux de connexion doivent être positifs.");
+            }
+            this.capacite = capacite;
+            this.jetonsParNano = parMinute / 60_000_000_000.0;
+            int tailleSegment = Math.max(1, tailleMax / SEGMENTS);
+            this.segments = new Map[SEGMENTS];
+            for (int i = 0; i < SEGMENTS; i++) {
+                segments[i] = new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, Seau> eldest) {
+                        return size() > tailleSegment;
+                    }
+                };
+            }
+        }
+
+        boolean consommer(String cle, long maintenant) {
+            Map<String, Seau> segment = segment(cle);
+            synchronized (segment) {
+                Seau seau = segment.get(cle);
+                if (seau == null) {
+                    // Un seau nouveau (ou évincé faute de place) repart plein
+                    segment.put(cle, new Seau(capacite - 1, maintenant));
+                    return true;
+                }
+                seau.jetons = Math.min(capacite, seau.jetons + (maintenant - seau.derniereRecharge) * jetonsParNano);
+                seau.derniereRecharge = maintenant;
+                if (seau.jetons < 1) {
+                    return false;
+                }
+                seau.jetons--;
+                return true;
+            }
+        }
+
+        // Temps nécessaire pour que le seau regagne un jeton entier (0 s'il en a déjà un, ou s'il n'existe pas)
+        double attenteNanos(String cle, long maintenant) {
+            Map<String, Seau> segment = segment(cle);
+            synchronized (segment) {
+                Seau seau = segment.get(cle);
+                if (seau == null) {
+                    return 0;
+                }
+                double jetons = Math.min(capacite, seau.jetons + (maintenant - seau.derniereRecharge) * jetonsParNano);
+                return jetons >= 1 ? 0 : (1 - jetons) / jetonsParNano;
+            }
+        }
+
+        private Map<String, Seau> segment(String cle) {
+            return segments[(cle.hashCode() & 0x7fffffff) % SEGMENTS];
+        }
+    }
+
+    private static final class Seau {
+        private double jetons;
+        private long derniereRecharge;
+
+        Seau(double jetons, long derniereRecharge) {
+            this.jetons = jetons;
+            this.derniereRecharge = derniereRecharge;
+        }
+    }
+}
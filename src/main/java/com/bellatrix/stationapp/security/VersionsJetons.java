@@ -0,0 +1,93 @@
+package com.bellatrix.stationapp.security;
+
+import com.bellatrix.stationapp.repository.UtilisateurRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versions de tokens en vigueur par utilisateur (ADMIN, STATION_EMPLOYEE), gardées en mémoire pour que
+ * l'authentification d'une requête ne demande aucun accès à la base.
+ *
+ * Une entrée expire au bout de application.security.jwt.versions.duree-ms : un changement fait par une autre
+ * instance est donc vu au plus tard après ce délai. Sur cette instance, UtilisateurService met l'entrée à jour
+ * dès le commit d'un changement de rôle, de statut ou de mot de passe.
+ *
+ * Une entrée en cache est lue sans aucun verrou : l'authentification des requêtes ne passe par aucun point de
+ * synchronisation commun. Au-delà de la taille maximale, les entrées expirées sont purgées, puis des entrées
+ * quelconques si cela ne suffit pas (elles seront relues en base).
+ */
+@Component
+public class VersionsJetons {
+
+    // Version d'un utilisateur supprimé ou désactivé : aucun token ne la porte
+    private static final long REVOQUE = -1;
+
+    private final UtilisateurRepository utilisateurRepository;
+    private final long dureeMs;
+    private final int tailleMax;
+    private final Map<Long, Etat> etats = new ConcurrentHashMap<>();
+    // Incrémentée à chaque mise à jour : un chargement démarré avant n'est pas publié
+    private final AtomicLong generation = new AtomicLong();
+
+    @Autowired
+    public VersionsJetons(UtilisateurRepository utilisateurRepository,
+                          @Value("${application.security.jwt.versions.duree-ms:60000}") long dureeMs,
+                          @Value("${application.security.jwt.versions.taille-max:10000}") int tailleMax) {
+        this.utilisateurRepository = utilisateurRepository;
+        this.dureeMs = dureeMs;
+        this.tailleMax = tailleMax;
+    }
+
+    /**
+     * Indique si un token de cette version est encore accepté pour cet utilisateur.
+     * Ne lit la base que si l'utilisateur n'est pas en cache ou si son entrée a expiré.
+     */
+    public boolean estValide(long utilisateurId, long version) {
+        long maintenant = System.currentTimeMillis();
+        Etat etat = etats.get(utilisateurId);
+        if (etat != null && etat.expireA() > maintenant) {
+            return etat.version() == version;
+        }
+        long generationAuChargement = generation.get();
+        long courante = utilisateurRepository.findVersionJetonActif(utilisateurId).orElse(REVOQUE);
+        Etat charge = new Etat(courante, maintenant + dureeMs);
+        // Publié seulement si aucune mise à jour n'a eu lieu pendant la lecture ; compute est atomique pour cette clé
+        // et ne peut donc pas écraser une mise à jour faite après la vérification
+        etats.compute(utilisateurId, (id, actuel) -> generation.get() == generationAuChargement ? charge : actuel);
+        limiterTaille();
+        return courante == version;
+    }
+
+    /**
+     * Enregistre la nouvelle version d'un utilisateur (à appeler après le commit du changement).
+     *
+     * @param version La nouvelle version, ou null si l'utilisateur a été supprimé ou désactivé.
+     */
+    public void mettreAJour(long utilisateurId, Long version) {
+        generation.incrementAndGet();
+        etats.put(utilisateurId, new Etat(version != null ? version : REVOQUE, System.currentTimeMillis() + dureeMs));
+        limiterTaille();
+    }
+
+    private void limiterTaille() {
+        if (etats.size() <= tailleMax) {
+            return;
+        }
+        long maintenant = System.currentTimeMillis();
+        etats.values().removeIf(etat -> etat.expireA() <= maintenant);
+        Iterator<Long> ids = etats.keySet().iterator();
+        while (etats.size() > tailleMax && ids.hasNext()) {
+            ids.next();
+            ids.remove();
+        }
+    }
+
+    private record Etat(long version, long expireA) {
+    }
+}
@@ -0,0 +1,28 @@
+package com.bellatrix.stationapp.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Exécute une action une fois la transaction courante validée.
+ * Utilisé pour mettre à jour les caches en mémoire uniquement avec des données réellement commitées.
+ * Sans transaction active, l'action est exécutée immédiatement.
+ */
+public final class ApresCommit {
+
+    private ApresCommit() {
+    }
+
+    public static void executer(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
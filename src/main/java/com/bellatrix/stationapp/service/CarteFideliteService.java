@@ -16,10 +16,12 @@ import java.util.Optional;
 public class CarteFideliteService {
 
     private final CarteFideliteRepository carteFideliteRepository;
+    private final IndexCartesFidelite indexCartes;
 
     @Autowired
-    public CarteFideliteService(CarteFideliteRepository carteFideliteRepository) {
+    public CarteFideliteService(CarteFideliteRepository carteFideliteRepository, IndexCartesFidelite indexCartes) {
         this.carteFideliteRepository = carteFideliteRepository;
+        this.indexCartes = indexCartes;
     }
 
     /**
@@ -47,7 +49,7 @@ public class CarteFideliteService {
         carte.setSoldePoints(points); // Utilise le champ soldePoints
         carte.setDateEmission(LocalDateTime.now());
         carte.setActive(true);
-        return carteFideliteRepository.save(carte);
+        return enregistrerEtIndexer(carte);
     }
 
     /**
@@ -61,6 +63,17 @@ public class CarteFideliteService {
         return carteFideliteRepository.findByNumeroCarte(numeroCarte);
     }
 
+    /**
+     * Client et statut de la carte portant ce numéro, pour la connexion des clients.
+     * Servi par l'index en mémoire : pas d'accès à la base pour une carte connue ou un numéro récemment inconnu.
+     *
+     * @param numeroCarte Le numéro de carte saisi.
+     * @return Le client et le statut de la carte, ou vide si aucune carte ne porte ce numéro.
+     */
+    public Optional<IndexCartesFidelite.CarteIndexee> trouverPourConnexion(String numeroCarte) {
+        return indexCartes.trouver(numeroCarte);
+    }
+
     /**
      * Récupère une carte de fidélité associée à un client donné.
      *
@@ -102,10 +115,13 @@ public class CarteFideliteService {
      */
     @Transactional
     public CarteFidelite majCarteFidelite(CarteFidelite carteFidelite) {
-        if (!carteFideliteRepository.existsById(carteFidelite.getId())) {
-            throw new IllegalArgumentException("Carte de fidélité avec l'ID " + carteFidelite.getId() + " non trouvée.");
+        String ancienNumero = carteFideliteRepository.findById(carteFidelite.getId())
+                .map(CarteFidelite::getNumeroCarte)
+                .orElseThrow(() -> new IllegalArgumentException("Carte de fidélité avec l'ID " + carteFidelite.getId() + " non trouvée."));
+        if (!ancienNumero.equals(carteFidelite.getNumeroCarte())) {
+            ApresCommit.executer(() -> indexCartes.actualiser(ancienNumero));
         }
-        return carteFideliteRepository.save(carteFidelite);
+        return enregistrerEtIndexer(carteFidelite);
     }
 
     /**
@@ -137,7 +153,7 @@ public class CarteFideliteService {
         CarteFidelite carte = carteFideliteRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Carte de fidélité avec l'ID " + id + " non trouvée."));
         carte.setActive(active);
-        return carteFideliteRepository.save(carte);
+        return enregistrerEtIndexer(carte);
     }
 
     /**
@@ -147,9 +163,19 @@ public class CarteFideliteService {
      */
     @Transactional
     public void supprimerCarteFidelite(Long id) {
-        if (!carteFideliteRepository.existsById(id)) {
-            throw new IllegalArgumentException("Carte de fidélité avec l'ID " + id + " non trouvée.");
-        }
+        String numeroCarte = carteFideliteRepository.findById(id)
+                .map(CarteFidelite::getNumeroCarte)
+                .orElseThrow(() -> new IllegalArgumentException("Carte de fidélité avec l'ID " + id + " non trouvée."));
         carteFideliteRepository.deleteById(id);
+        ApresCommit.executer(() -> indexCartes.actualiser(numeroCarte));
+    }
+
+    // L'index des cartes relit la carte après le commit : une transaction annulée n'y laisse aucune trace, et
+    // l'état indexé est celui de la base, même si les rappels de deux commits proches s'exécutent dans le désordre
+    private CarteFidelite enregistrerEtIndexer(CarteFidelite carte) {
+        CarteFidelite enregistree = carteFideliteRepository.save(carte);
+        String numeroCarte = enregistree.getNumeroCarte();
+        ApresCommit.executer(() -> indexCartes.actualiser(numeroCarte));
+        return enregistree;
     }
 }
\ No newline at end of file
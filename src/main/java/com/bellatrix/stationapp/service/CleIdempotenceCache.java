@@ -0,0 +1,38 @@
+package com.bellatrix.stationapp.service;
+
+import com.bellatrix.stationapp.dto.TransactionCarburantDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Cache borné des clés d'idempotence récemment enregistrées.
+ * Un renvoi d'un terminal trouvé ici est servi sans aucun accès à la base de données.
+ * Les clés les moins récemment utilisées sont évincées au-delà de la taille maximale ;
+ * la contrainte unique sur transaction_carburant.cle_idempotence reste la garantie finale.
+ */
+@Component
+public class CleIdempotenceCache {
+
+    private final Map<String, TransactionCarburantDto> transactionsParCle;
+
+    public CleIdempotenceCache(@Value("${application.transactions.idempotence.cache-taille:10000}") int tailleMax) {
+        this.transactionsParCle = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TransactionCarburantDto> eldest) {
+                return size() > tailleMax;
+            }
+        };
+    }
+
+    public synchronized Optional<TransactionCarburantDto> get(String cle) {
+        return Optional.ofNullable(transactionsParCle.get(cle));
+    }
+
+    public synchronized void put(String cle, TransactionCarburantDto transaction) {
+        transactionsParCle.put(cle, transaction);
+    }
+}
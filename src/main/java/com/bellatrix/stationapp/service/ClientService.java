@@ -9,6 +9,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -43,6 +44,12 @@ public class ClientService {
         return clientRepository.findById(id);
     }
 
+    // Charge plusieurs clients en une seule requête (utilisé par l'ingestion par lot)
+    @Transactional(readOnly = true)
+    public List<Client> getClientsByIds(Collection<Long> ids) {
+        return clientRepository.findAllById(ids);
+    }
+
     @Transactional(readOnly = true)
     public List<Client> getAllClients() {
         return clientRepository.findAll(); // findAll() est fourni par JpaRepository
@@ -53,11 +60,23 @@ public class ClientService {
         return clientRepository.findByNumeroTelephone(numeroTelephone);
     }
 
+    /**
+     * Ajoute (ou retire si négatif) des points au solde d'un client, de façon atomique côté base.
+     * Aucune lecture préalable ni verrou applicatif : des achats concurrents sur la même carte ne perdent
+     * aucune mise à jour, et un retrait qui rendrait le solde négatif est refusé par la même instruction.
+     *
+     * @param clientId L'ID du client.
+     * @param points Le nombre de points à ajouter (négatif pour un retrait).
+     * @return Le nouveau solde de points du client.
+     * @throws IllegalArgumentException si le client n'existe pas.
+     * @throws IllegalStateException si le solde deviendrait négatif.
+     */
     @Transactional
-    public Client mettreAJourSoldePoints(Client client, Double points) {
-        // Logique existante pour mettre à jour les points
-        client.setSoldePoints(client.getSoldePoints() + points);
-        return clientRepository.save(client);
+    public Double mettreAJourSoldePoints(Long clientId, Double points) {
+        return clientRepository.ajouterSoldePoints(clientId, points)
+                .orElseThrow(() -> clientRepository.existsById(clientId)
+                        ? new IllegalStateException("Solde de points insuffisant pour le client " + clientId + ".")
+                        : new IllegalArgumentException("Client non trouvé avec l'ID: " + clientId));
     }
 
     // --- NOUVELLES MÉTHODES AJOUTÉES ICI ---
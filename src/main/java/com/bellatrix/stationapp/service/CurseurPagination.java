@@ -0,0 +1,39 @@
+package com.bellatrix.stationapp.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position dans une liste de transactions triée par (dateTransaction, id) décroissants.
+ * Transmis au client sous forme opaque (base64url) : il le renvoie tel quel pour obtenir la page suivante.
+ */
+public record CurseurPagination(LocalDateTime dateTransaction, Long id) {
+
+    // Position de départ : avant toute transaction dans l'ordre décroissant
+    static final CurseurPagination DEBUT = new CurseurPagination(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    public String encoder() {
+        String valeur = dateTransaction + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valeur.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param curseur Le curseur renvoyé par le client, ou null pour la première page.
+     * @throws IllegalArgumentException si le curseur n'a pas été produit par {@link #encoder()}.
+     */
+    public static CurseurPagination decoder(String curseur) {
+        if (curseur == null || curseur.isEmpty()) {
+            return DEBUT;
+        }
+        try {
+            String valeur = new String(Base64.getUrlDecoder().decode(curseur), StandardCharsets.UTF_8);
+            int separateur = valeur.indexOf('|');
+            return new CurseurPagination(LocalDateTime.parse(valeur.substring(0, separateur)),
+                    Long.parseLong(valeur.substring(separateur + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Curseur de pagination invalide.");
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.bellatrix.stationapp.service;
+
+import com.bellatrix.stationapp.dto.TransactionCarburantDto;
+import com.bellatrix.stationapp.model.TransactionCarburant;
+import com.bellatrix.stationapp.repository.TransactionCarburantRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Export des transactions d'une période, écrit ligne par ligne sur le flux de la réponse.
+ * Les transactions sont lues en flux (fetch size JDBC) et le contexte de persistance est vidé régulièrement :
+ * la mémoire utilisée ne dépend pas de la longueur de la période.
+ */
+@Service
+public class ExportTransactionsService {
+
+    public enum FormatExport { NDJSON, CSV }
+
+    // Nombre de lignes écrites entre deux vidages du contexte de persistance
+    private static final int LIGNES_ENTRE_VIDAGES = 1000;
+
+    private static final String ENTETE_CSV = "id,dateTransaction,clientId,clientTelephone,stationServiceId,stationNom,"
+            + "utilisateurId,litresAchetes,montantTotal,pointsGagnes,pointsUtilises\n";
+
+    private final TransactionCarburantRepository transactionCarburantRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public ExportTransactionsService(TransactionCarburantRepository transactionCarburantRepository,
+                                     EntityManager entityManager,
+                                     ObjectMapper objectMapper) {
+        this.transactionCarburantRepository = transactionCarburantRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Écrit les transactions du premier au dernier jour inclus, dans l'ordre chronologique.
+     *
+     * @param debut Premier jour inclus.
+     * @param fin Dernier jour inclus.
+     * @param format NDJSON (un TransactionCarburantDto par ligne) ou CSV (colonnes à plat).
+     * @param sortie Le flux de la réponse. Il n'est pas fermé.
+     * @return Le nombre de transactions écrites.
+     * @throws UncheckedIOException si l'écriture échoue (client déconnecté...).
+     */
+    @Transactional(readOnly = true)
+    public long exporter(LocalDate debut, LocalDate fin, FormatExport format, OutputStream sortie) {
+        if (fin.isBefore(debut)) {
+            throw new IllegalArgumentException("La date de fin précède la date de début.");
+        }
+        try (Stream<TransactionCarburant> transactions = transactionCarburantRepository
+                .streamByDateTransactionBetween(debut.atStartOfDay(), fin.atTime(TransactionService.FIN_JOURNEE))) {
+            return format == FormatExport.CSV
+                    ? ecrireCsv(transactions.iterator(), sortie)
+                    : ecrireNdjson(transactions.iterator(), sortie);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Écriture de l'export interrompue.", e);
+        }
+    }
+
+    private long ecrireNdjson(Iterator<TransactionCarburant> transactions, OutputStream sortie) throws IOException {
+        // Pas de vidage du flux après chaque ligne : le tampon du générateur est vidé une seule fois, à la fin
+        ObjectWriter writer = objectMapper.writerFor(TransactionCarburantDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long lignes = 0;
+        try (JsonGenerator generateur = objectMapper.getFactory().createGenerator(sortie)) {
+            generateur.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            // Sans séparateur entre valeurs racines (une espace par défaut) : chaque ligne commence par sa valeur
+            generateur.setRootValueSeparator(null);
+            while (transactions.hasNext()) {
+                writer.writeValue(generateur, new TransactionCarburantDto(transactions.next()));
+                generateur.writeRaw('\n');
+                lignes = apresLigne(lignes);
+            }
+            generateur.flush();
+        }
+        return lignes;
+    }
+
+    private long ecrireCsv(Iterator<TransactionCarburant> transactions, OutputStream sortie) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(sortie, StandardCharsets.UTF_8));
+        writer.write(ENTETE_CSV);
+        long lignes = 0;
+        StringBuilder ligne = new StringBuilder(160);
+        while (transactions.hasNext()) {
+            TransactionCarburant t = transactions.next();
+            ligne.setLength(0);
+            ligne.append(t.getId()).append(',')
+                    .append(t.getDateTransaction()).append(',')
+                    .append(t.getClient().getId()).append(',');
+            echapperCsv(ligne, t.getClient().getNumeroTelephone()).append(',')
+                    .append(t.getStationService().getId()).append(',');
+            echapperCsv(ligne, t.getStationService().getNom()).append(',')
+                    .append(t.getUtilisateur().getId()).append(',')
+                    .append(t.getLitresAchetes()).append(',')
+                    .append(t.getMontantTotal()).append(',')
+                    .append(t.getPointsGagnes()).append(',')
+                    .append(t.getPointsUtilises()).append('\n');
+            writer.append(ligne);
+            lignes = apresLigne(lignes);
+        }
+        writer.flush();
+        return lignes;
+    }
+
+    // Vide le contexte de persistance régulièrement : les entités déjà écrites ne restent pas en mémoire
+    private long apresLigne(long lignes) {
+        lignes++;
+        if (lignes % LIGNES_ENTRE_VIDAGES == 0) {
+            entityManager.clear();
+        }
+        return lignes;
+    }
+
+    private static StringBuilder echapperCsv(StringBuilder ligne, String valeur) {
+        if (valeur == null) {
+            return ligne;
+        }
+        if (valeur.indexOf(',') < 0 && valeur.indexOf('"') < 0 && valeur.indexOf('\n') < 0
+                && valeur.indexOf('\r') < 0) {
+            return ligne.append(valeur);
+        }
+        return ligne.append('"').append(valeur.replace("\"", "\"\"")).append('"');
+    }
+}
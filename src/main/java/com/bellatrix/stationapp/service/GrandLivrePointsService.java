@@ -0,0 +1,179 @@
+package com.bellatrix.stationapp.service;
+
+import com.bellatrix.stationapp.model.Client;
+import com.bellatrix.stationapp.model.MouvementPoints;
+import com.bellatrix.stationapp.model.TransactionCarburant;
+import com.bellatrix.stationapp.model.TypeMouvementPoints;
+import com.bellatrix.stationapp.repository.InstantaneSoldePointsRepository;
+import com.bellatrix.stationapp.repository.MouvementPointsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Grand livre des points : chaque variation du solde d'un client y est inscrite (gain, utilisation, ajustement,
+ * expiration). Client.soldePoints reste le solde courant servi aux caisses ; le grand livre sert aux audits et aux
+ * litiges.
+ *
+ * Des instantanés du solde sont créés tous les N mouvements d'un client. Le solde à une date donnée se calcule
+ * à partir de l'instantané précédent et des mouvements qui le suivent, au lieu de parcourir tout l'historique.
+ */
+@Service
+public class GrandLivrePointsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GrandLivrePointsService.class);
+
+    private final MouvementPointsRepository mouvementPointsRepository;
+    private final InstantaneSoldePointsRepository instantaneSoldePointsRepository;
+    private final ClientService clientService;
+
+    // Nombre de mouvements d'un client entre deux instantanés
+    @Value("${application.points.instantane.tous-les:100}")
+    private long instantaneTousLes;
+
+    // Les instantanés ne couvrent que les mouvements plus anciens que cette marge : une vente en cours
+    // (datée de maintenant) ne peut donc jamais précéder un instantané existant
+    @Value("${application.points.instantane.marge-minutes:5}")
+    private long margeMinutes;
+
+    @Autowired
+    public GrandLivrePointsService(MouvementPointsRepository mouvementPointsRepository,
+                                   InstantaneSoldePointsRepository instantaneSoldePointsRepository,
+                                   ClientService clientService) {
+        this.mouvementPointsRepository = mouvementPointsRepository;
+        this.instantaneSoldePointsRepository = instantaneSoldePointsRepository;
+        this.clientService = clientService;
+    }
+
+    /**
+     * Inscrit les gains et utilisations de points des transactions qui viennent d'être enregistrées.
+     * Doit être appelée dans la même transaction que l'enregistrement des ventes.
+     *
+     * @param transactions Les transactions enregistrées (avec leur ID).
+     */
+    @Transactional
+    public void inscrireAchats(List<TransactionCarburant> transactions) {
+        List<MouvementPoints> mouvements = new ArrayList<>(transactions.size() * 2);
+        for (TransactionCarburant transaction : transactions) {
+            if (transaction.getPointsGagnes() != null && transaction.getPointsGagnes() != 0) {
+                mouvements.add(mouvement(transaction.getClient(), TypeMouvementPoints.GAIN, transaction.getPointsGagnes(),
+                        transaction.getDateTransaction(), transaction, null));
+            }
+            if (transaction.getPointsUtilises() != null && transaction.getPointsUtilises() != 0) {
+                mouvements.add(mouvement(transaction.getClient(), TypeMouvementPoints.UTILISATION, -transaction.getPointsUtilises(),
+                        transaction.getDateTransaction(), transaction, null));
+            }
+        }
+        inscrire(mouvements);
+    }
+
+    /**
+     * Ajuste le solde d'un client (ajustement manuel ou expiration) et inscrit le mouvement correspondant.
+     *
+     * @param clientId L'ID du client.
+     * @param type AJUSTEMENT ou EXPIRATION.
+     * @param points Les points à ajouter (négatif pour un retrait ; toujours négatif pour une expiration).
+     * @param motif La raison de l'ajustement.
+     * @return Le nouveau solde du client.
+     * @throws IllegalArgumentException si le client n'existe pas ou si le type ou les points sont invalides.
+     * @throws IllegalStateException si le solde deviendrait négatif.
+     */
+    @Transactional
+    public Double ajuster(Long clientId, TypeMouvementPoints type, Double points, String motif) {
+        if (type != TypeMouvementPoints.AJUSTEMENT && type != TypeMouvementPoints.EXPIRATION) {
+            throw new IllegalArgumentException("Seuls les ajustements et les expirations peuvent être saisis manuellement.");
+        }
+        if (points == null || points == 0 || (type == TypeMouvementPoints.EXPIRATION && points > 0)) {
+            throw new IllegalArgumentException("Nombre de points invalide pour un mouvement de type " + type + ".");
+        }
+        Double nouveauSolde = clientService.mettreAJourSoldePoints(clientId, points);
+        Client client = clientService.getClientById(clientId)
+                .orElseThrow(() -> new IllegalArgumentException("Client non trouvé avec l'ID: " + clientId));
+        mouvementPointsRepository.save(mouvement(client, type, points, LocalDateTime.now(), null, motif));
+        return nouveauSolde;
+    }
+
+    /**
+     * Solde de points d'un client à une date donnée : dernier instantané à cette date, plus les mouvements suivants.
+     *
+     * @param clientId L'ID du client.
+     * @param date La date à laquelle on veut le solde.
+     * @return Le solde du client à cette date.
+     */
+    @Transactional(readOnly = true)
+    public double soldeAu(Long clientId, LocalDateTime date) {
+        return instantaneSoldePointsRepository
+                .findFirstByClientIdAndDateInstantaneLessThanEqualOrderByDateInstantaneDesc(clientId, date)
+                .map(instantane -> instantane.getSolde()
+                        + mouvementPointsRepository.sommePointsEntre(clientId, instantane.getDateInstantane(), date))
+                .orElseGet(() -> mouvementPointsRepository.sommePointsJusqua(clientId, date));
+    }
+
+    /**
+     * Mouvements de points d'un client sur une période, dans l'ordre chronologique.
+     */
+    @Transactional(readOnly = true)
+    public List<MouvementPoints> getMouvements(Long clientId, LocalDateTime debut, LocalDateTime fin) {
+        return mouvementPointsRepository.findByClientIdAndDateMouvementBetweenOrderByDateMouvementAscIdAsc(clientId, debut, fin);
+    }
+
+    /**
+     * Crée les instantanés de solde des clients ayant accumulé assez de mouvements depuis le précédent.
+     */
+    @Scheduled(fixedDelayString = "${application.points.instantane.intervalle-ms:300000}")
+    @Transactional
+    public void creerInstantanes() {
+        // Pris avant de calculer la limite : les mouvements antidatés inscrits avant ce point sont alors validés,
+        // et les instantanés qu'ils ont rendus faux déjà supprimés
+        instantaneSoldePointsRepository.verrouillerPourInstantanes();
+        int crees = instantaneSoldePointsRepository.creerInstantanes(LocalDateTime.now().minusMinutes(margeMinutes),
+                instantaneTousLes);
+        if (crees > 0) {
+            logger.info("{} instantané(s) de solde de points créé(s).", crees);
+        }
+    }
+
+    private void inscrire(List<MouvementPoints> mouvements) {
+        if (mouvements.isEmpty()) {
+            return;
+        }
+        // Mouvements antidatés (ventes d'un lot différé) : les instantanés qui les suivent sont à recalculer
+        LocalDateTime limite = LocalDateTime.now().minusMinutes(margeMinutes);
+        Map<Long, LocalDateTime> plusAncienParClient = new HashMap<>();
+        for (MouvementPoints mouvement : mouvements) {
+            if (mouvement.getDateMouvement().isBefore(limite)) {
+                plusAncienParClient.merge(mouvement.getClient().getId(), mouvement.getDateMouvement(),
+                        (a, b) -> a.isBefore(b) ? a : b);
+            }
+        }
+        if (!plusAncienParClient.isEmpty()) {
+            // Jusqu'au commit, la création des instantanés ne peut pas s'intercaler entre cette suppression et
+            // l'insertion des mouvements, et recréer un instantané qui les ignore
+            instantaneSoldePointsRepository.verrouillerPourInscription();
+            plusAncienParClient.forEach(instantaneSoldePointsRepository::supprimerDepuis);
+        }
+        mouvementPointsRepository.saveAll(mouvements);
+    }
+
+    private static MouvementPoints mouvement(Client client, TypeMouvementPoints type, double points, LocalDateTime date,
+                                             TransactionCarburant transaction, String motif) {
+        MouvementPoints mouvement = new MouvementPoints();
+        mouvement.setClient(client);
+        mouvement.setType(type);
+        mouvement.setPoints(points);
+        mouvement.setDateMouvement(date);
+        mouvement.setTransaction(transaction);
+        mouvement.setMotif(motif);
+        return mouvement;
+    }
+}
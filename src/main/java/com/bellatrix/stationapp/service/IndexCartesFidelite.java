@@ -0,0 +1,238 @@
+package com.bellatrix.stationapp.service;
+
+import com.bellatrix.stationapp.repository.CarteFideliteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * Index en mémoire des cartes de fidélité, pour la connexion des clients par numéro de carte sans accès à la base.
+ *
+ * Les numéros de carte ont 6 chiffres : l'index est un tableau d'un million d'entrées dont la case est le numéro
+ * lui-même. Chaque case contient (clientId << 1) | active, ou 0 si aucune carte ne porte ce numéro.
+ *
+ * Il est chargé au démarrage puis rechargé à intervalle régulier (cartes modifiées par une autre instance) ;
+ * CarteFideliteService le fait relire la carte en base dès le commit de chaque modification faite sur cette instance.
+ * Un numéro absent de l'index, y compris un numéro hors format, est vérifié en base (carte créée ailleurs depuis le
+ * dernier chargement), puis retenu dans un cache négatif borné et à durée limitée : les numéros mal saisis aux bornes
+ * ne refont pas la requête. Un numéro plus long que la colonne numero_carte est refusé sans requête.
+ */
+@Component
+public class IndexCartesFidelite {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexCartesFidelite.class);
+
+    private static final int NUMEROS = 1_000_000;
+
+    // Longueur de la colonne carte_fidelite.numero_carte
+    private static final int LONGUEUR_MAX = 6;
+
+    // Verrous par numéro (répartis sur un nombre fixe d'objets) : relecture en base et écriture dans l'index
+    // d'un même numéro se font l'une après l'autre
+    private static final int VERROUS = 64;
+
+    private final CarteFideliteRepository carteFideliteRepository;
+    private final TransactionTemplate lectureSeule;
+    private final long negatifDureeMs;
+    private final Object[] verrous = new Object[VERROUS];
+    // Numéro inconnu -> instant d'expiration, évincé au-delà de la taille maximale
+    private final Map<String, Long> inconnus;
+    // Incrémentée à chaque modification (sous le verrou de inconnus) : un numéro lu absent en base avant une
+    // création n'est pas retenu comme inconnu
+    private long generation;
+
+    private volatile AtomicLongArray cartes;
+    // Modifications reçues pendant un rechargement, rejouées sur le nouvel index avant sa publication
+    private Map<Integer, Long> modificationsPendantRechargement;
+
+    /**
+     * Client et statut d'une carte de fidélité.
+     */
+    public record CarteIndexee(long clientId, boolean active) {
+    }
+
+    @Autowired
+    public IndexCartesFidelite(CarteFideliteRepository carteFideliteRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${application.cartes.index.negatif-duree-ms:30000}") long negatifDureeMs,
+                               @Value("${application.cartes.index.negatif-taille-max:10000}") int negatifTailleMax) {
+        this.carteFideliteRepository = carteFideliteRepository;
+        this.lectureSeule = new TransactionTemplate(transactionManager);
+        this.lectureSeule.setReadOnly(true);
+        this.negatifDureeMs = negatifDureeMs;
+        this.inconnus = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > negatifTailleMax;
+            }
+        };
+        for (int i = 0; i < VERROUS; i++) {
+            verrous[i] = new Object();
+        }
+    }
+
+    /**
+     * Cherche la carte portant ce numéro. Aucun accès à la base si le numéro est dans l'index ou dans le cache négatif.
+     *
+     * @param numeroCarte Le numéro de carte saisi.
+     * @return Le client et le statut de la carte, ou vide si aucune carte ne porte ce numéro.
+     */
+    public Optional<CarteIndexee> trouver(String numeroCarte) {
+        if (numeroCarte == null || numeroCarte.isEmpty() || numeroCarte.length() > LONGUEUR_MAX) {
+            // Aucune carte ne peut porter ce numéro
+            return Optional.empty();
+        }
+        int numero = numero(numeroCarte);
+        AtomicLongArray index = cartes;
+        if (numero >= 0 && index != null) {
+            long entree = index.get(numero);
+            if (entree != 0) {
+                return Optional.of(decoder(entree));
+            }
+        }
+        // Numéro hors format (jamais dans l'index), carte créée ailleurs depuis le chargement ou index pas encore chargé
+        long maintenant = System.currentTimeMillis();
+        long generationAvantLecture;
+        synchronized (inconnus) {
+            Long expireA = inconnus.get(numeroCarte);
+            if (expireA != null && expireA > maintenant) {
+                return Optional.empty();
+            }
+            generationAvantLecture = generation;
+        }
+        Optional<CarteIndexee> carte;
+        synchronized (verrou(numeroCarte)) {
+            carte = chercherEnBase(numeroCarte);
+            carte.ifPresent(trouvee -> ecrire(numeroCarte, encoder(trouvee.clientId(), trouvee.active())));
+        }
+        if (carte.isEmpty()) {
+            synchronized (inconnus) {
+                if (generationAvantLecture == generation) {
+                    inconnus.put(numeroCarte, maintenant + negatifDureeMs);
+                }
+            }
+        }
+        return carte;
+    }
+
+    /**
+     * Relit en base la carte portant ce numéro et met l'index à jour : carte créée, modifiée, supprimée ou dont le
+     * numéro a changé (à appeler après le commit).
+     * Deux modifications d'une même carte commitées de près peuvent voir leurs rappels s'exécuter dans le désordre :
+     * la relecture et l'écriture se font donc sous le verrou du numéro, et la dernière relecture voit les deux commits.
+     */
+    public void actualiser(String numeroCarte) {
+        synchronized (verrou(numeroCarte)) {
+            ecrire(numeroCarte, chercherEnBase(numeroCarte)
+                    .map(carte -> encoder(carte.clientId(), carte.active()))
+                    .orElse(0L));
+        }
+    }
+
+    /**
+     * Recharge l'index complet depuis la base. L'index précédent reste servi jusqu'à la fin du chargement.
+     * Lancé à intervalle régulier par {@link RechargementsEnFond}, hors du planificateur des tâches courtes.
+     */
+    public void recharger() {
+        long debut = System.currentTimeMillis();
+        synchronized (this) {
+            modificationsPendantRechargement = new HashMap<>();
+        }
+        AtomicLongArray nouvelIndex = new AtomicLongArray(NUMEROS);
+        int[] nombre = new int[1];
+        try {
+            lectureSeule.executeWithoutResult(statut -> {
+                try (Stream<Object[]> lignes = carteFideliteRepository.streamIndexCartes()) {
+                    lignes.forEach(ligne -> {
+                        int numero = numero((String) ligne[0]);
+                        if (numero >= 0) {
+                            nouvelIndex.set(numero, encoder(((Number) ligne[1]).longValue(), (Boolean) ligne[2]));
+                            nombre[0]++;
+                        }
+                    });
+                }
+            });
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                modificationsPendantRechargement = null;
+            }
+            logger.error("Rechargement de l'index des cartes de fidélité impossible, nouvel essai au prochain passage.", e);
+            return;
+        }
+        synchronized (this) {
+            modificationsPendantRechargement.forEach(nouvelIndex::set);
+            modificationsPendantRechargement = null;
+            cartes = nouvelIndex;
+        }
+        synchronized (inconnus) {
+            inconnus.clear();
+        }
+        logger.debug("Index des cartes de fidélité rechargé : {} carte(s) en {} ms.", nombre[0],
+                System.currentTimeMillis() - debut);
+    }
+
+    private synchronized void ecrire(String numeroCarte, long entree) {
+        int numero = numero(numeroCarte);
+        if (numero >= 0) {
+            if (cartes != null) {
+                cartes.set(numero, entree);
+            }
+            if (modificationsPendantRechargement != null) {
+                modificationsPendantRechargement.put(numero, entree);
+            }
+        }
+        synchronized (inconnus) {
+            generation++;
+            inconnus.remove(numeroCarte);
+        }
+    }
+
+    private Object verrou(String numeroCarte) {
+        return verrous[Math.floorMod(numeroCarte.hashCode(), VERROUS)];
+    }
+
+    private Optional<CarteIndexee> chercherEnBase(String numeroCarte) {
+        List<Object[]> lignes = carteFideliteRepository.findClientEtActiveByNumeroCarte(numeroCarte);
+        if (lignes.isEmpty()) {
+            return Optional.empty();
+        }
+        Object[] ligne = lignes.get(0);
+        return Optional.of(new CarteIndexee(((Number) ligne[0]).longValue(), (Boolean) ligne[1]));
+    }
+
+    private static long encoder(long clientId, Boolean active) {
+        return (clientId << 1) | (Boolean.TRUE.equals(active) ? 1 : 0);
+    }
+
+    private static CarteIndexee decoder(long entree) {
+        return new CarteIndexee(entree >>> 1, (entree & 1) == 1);
+    }
+
+    // Numéro de carte à 6 chiffres converti en case de l'index, ou -1 s'il n'a pas ce format
+    static int numero(String numeroCarte) {
+        if (numeroCarte == null || numeroCarte.length() != 6) {
+            return -1;
+        }
+        int numero = 0;
+        for (int i = 0; i < 6; i++) {
+            char c = numeroCarte.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            numero = numero * 10 + (c - '0');
+        }
+        return numero;
+    }
+}
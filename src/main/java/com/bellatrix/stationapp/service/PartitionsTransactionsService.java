@@ -0,0 +1,56 @@
+package com.bellatrix.stationapp.service;
+
+import com.bellatrix.stationapp.repository.TransactionCarburantRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+
+/**
+ * Maintenance des partitions mensuelles de transaction_carburant (voir la migration V6).
+ * Les partitions des prochains mois sont créées à l'avance, pour que les ventes n'arrivent jamais dans la partition
+ * par défaut ; les partitions plus anciennes que la durée de rétention sont détachées (conservées comme tables
+ * ordinaires, à archiver puis supprimer hors de l'application).
+ */
+@Service
+public class PartitionsTransactionsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionsTransactionsService.class);
+
+    private final TransactionCarburantRepository transactionCarburantRepository;
+
+    // Nombre de mois créés à l'avance après le mois courant
+    @Value("${application.transactions.partitions.mois-avance:3}")
+    private int moisAvance;
+
+    // Nombre de mois conservés avant le mois courant ; 0 : aucune partition n'est détachée
+    @Value("${application.transactions.partitions.retention-mois:0}")
+    private int retentionMois;
+
+    @Autowired
+    public PartitionsTransactionsService(TransactionCarburantRepository transactionCarburantRepository) {
+        this.transactionCarburantRepository = transactionCarburantRepository;
+    }
+
+    // Passe au démarrage, puis à intervalle régulier
+    @Scheduled(initialDelay = 0, fixedDelayString = "${application.transactions.partitions.intervalle-ms:86400000}")
+    @Transactional
+    public void maintenir() {
+        LocalDate moisCourant = LocalDate.now().withDayOfMonth(1);
+        int creees = transactionCarburantRepository.creerPartitions(moisCourant, moisCourant.plusMonths(moisAvance));
+        if (creees > 0) {
+            logger.info("{} partition(s) mensuelle(s) de transactions créée(s).", creees);
+        }
+        if (retentionMois > 0) {
+            int detachees = transactionCarburantRepository.detacherPartitions(moisCourant.minusMonths(retentionMois));
+            if (detachees > 0) {
+                logger.info("{} partition(s) de transactions de plus de {} mois détachée(s).", detachees, retentionMois);
+            }
+        }
+    }
+}
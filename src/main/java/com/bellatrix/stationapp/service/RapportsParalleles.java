@@ -0,0 +1,150 @@
+package com.bellatrix.stationapp.service;
+
+import com.bellatrix.stationapp.dto.TransactionCarburantDto;
+import com.bellatrix.stationapp.model.TransactionCarburant;
+import com.bellatrix.stationapp.repository.TransactionCarburantRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lecture des rapports de transactions sur de longues périodes : la période est découpée en mois (ou en semaines
+ * pour une période de moins d'un mois) lus en parallèle, chacun dans sa propre transaction en lecture seule,
+ * puis les morceaux, triés chacun par date, sont remis bout à bout dans l'ordre chronologique.
+ *
+ * Les lectures passent par un pool de threads de taille fixe, partagé par tous les rapports et plafonné à une
+ * fraction de la taille du pool Hikari pour laisser les connexions aux ventes. Sa file d'attente est bornée :
+ * quand elle est pleine, le thread de la requête fait la lecture lui-même, ce qui ralentit l'envoi des morceaux
+ * suivants au lieu d'accumuler des lectures en mémoire.
+ */
+@Component
+public class RapportsParalleles {
+
+    private static final Logger logger = LoggerFactory.getLogger(RapportsParalleles.class);
+
+    // Part des connexions du pool Hikari que les rapports peuvent occuper au plus
+    private static final int FRACTION_MAX_CONNEXIONS = 4;
+
+    // En dessous de cette durée (en jours), une période est lue en une seule requête
+    private static final long JOURS_MIN_DECOUPAGE = 8;
+
+    private final TransactionCarburantRepository transactionCarburantRepository;
+    private final TransactionTemplate lectureSeule;
+    private final ThreadPoolExecutor executeur;
+    private final int parallelisme;
+
+    @Autowired
+    public RapportsParalleles(TransactionCarburantRepository transactionCarburantRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${application.rapports.parallele.threads:4}") int threads,
+                              @Value("${application.rapports.parallele.file:32}") int file,
+                              @Value("${spring.datasource.hikari.maximum-pool-size:20}") int maxConcurrence) {
+        this.transactionCarburantRepository = transactionCarburantRepository;
+        this.lectureSeule = new TransactionTemplate(transactionManager);
+        this.lectureSeule.setReadOnly(true);
+        this.parallelisme = Math.max(1, Math.min(threads, maxConcurrence / FRACTION_MAX_CONNEXIONS));
+        if (parallelisme < threads) {
+            logger.warn("application.rapports.parallele.threads={} ramené à {} (au plus 1/{} de spring.datasource.hikari.maximum-pool-size={}).",
+                    threads, parallelisme, FRACTION_MAX_CONNEXIONS, maxConcurrence);
+        }
+        AtomicInteger numero = new AtomicInteger();
+        this.executeur = new ThreadPoolExecutor(parallelisme, parallelisme, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, file)), tache -> {
+            Thread thread = new Thread(tache, "rapports-" + numero.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Transactions d'une période (bornes incluses), éventuellement limitées à une station.
+     *
+     * @return Une liste non modifiable, dans l'ordre chronologique des sous-périodes.
+     */
+    public List<TransactionCarburantDto> charger(LocalDate debut, LocalDate fin, Long stationId) {
+        List<LocalDate[]> sousPeriodes = decouper(debut, fin);
+        if (sousPeriodes.size() == 1 || parallelisme == 1) {
+            return lire(debut, fin, stationId);
+        }
+        List<Future<List<TransactionCarburantDto>>> morceaux = new ArrayList<>(sousPeriodes.size());
+        for (LocalDate[] sousPeriode : sousPeriodes) {
+            morceaux.add(executeur.submit(() -> lire(sousPeriode[0], sousPeriode[1], stationId)));
+        }
+        List<TransactionCarburantDto> rapport = new ArrayList<>();
+        try {
+            for (Future<List<TransactionCarburantDto>> morceau : morceaux) {
+                rapport.addAll(morceau.get());
+            }
+        } catch (InterruptedException e) {
+            morceaux.forEach(morceau -> morceau.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Lecture du rapport interrompue.", e);
+        } catch (ExecutionException e) {
+            morceaux.forEach(morceau -> morceau.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Lecture du rapport impossible.", e.getCause());
+        }
+        return List.copyOf(rapport);
+    }
+
+    // Mois calendaires pour une période de plus d'un mois, semaines de 7 jours sinon
+    static List<LocalDate[]> decouper(LocalDate debut, LocalDate fin) {
+        long jours = ChronoUnit.DAYS.between(debut, fin) + 1;
+        List<LocalDate[]> sousPeriodes = new ArrayList<>();
+        if (jours < JOURS_MIN_DECOUPAGE) {
+            sousPeriodes.add(new LocalDate[]{debut, fin});
+            return sousPeriodes;
+        }
+        boolean parMois = jours > 31;
+        LocalDate courant = debut;
+        while (!courant.isAfter(fin)) {
+            LocalDate finMorceau = parMois
+                    ? courant.withDayOfMonth(courant.lengthOfMonth())
+                    : courant.plusDays(6);
+            if (finMorceau.isAfter(fin)) {
+                finMorceau = fin;
+            }
+            sousPeriodes.add(new LocalDate[]{courant, finMorceau});
+            courant = finMorceau.plusDays(1);
+        }
+        return sousPeriodes;
+    }
+
+    private List<TransactionCarburantDto> lire(LocalDate debut, LocalDate fin, Long stationId) {
+        LocalDateTime start = debut.atStartOfDay();
+        LocalDateTime end = fin.atTime(TransactionService.FIN_JOURNEE);
+        return lectureSeule.execute(statut -> {
+            List<TransactionCarburant> transactions = stationId == null
+                    ? transactionCarburantRepository.findByDateTransactionBetweenOrderByDateTransactionAscIdAsc(start, end)
+                    : transactionCarburantRepository.findByStationServiceIdAndDateTransactionBetweenOrderByDateTransactionAscIdAsc(
+                            stationId, start, end);
+            return transactions.stream()
+                    .map(TransactionCarburantDto::new)
+                    .toList();
+        });
+    }
+
+    @PreDestroy
+    public void arreter() {
+        executeur.shutdownNow();
+    }
+}
@@ -0,0 +1,133 @@
+package com.bellatrix.stationapp.service;
+
+import com.bellatrix.stationapp.dto.TransactionCarburantDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache des rapports de transactions des périodes closes (jours, semaines, mois, années entièrement passés),
+ * par période et station. Une période close ne change plus, sauf vente antidatée (correction, lot différé,
+ * journal vidé après minuit) : l'enregistrement d'une telle vente invalide les rapports qui couvrent son jour.
+ *
+ * La taille est bornée en nombre total de transactions gardées (et non en nombre de rapports) : un rapport annuel
+ * pèse autant que les rapports mensuels qu'il contient. Les rapports les moins récemment lus sont évincés d'abord.
+ *
+ * Un chargement démarré avant une invalidation n'est pas publié (génération), comme pour le cache de la règle
+ * active. L'invalidation est locale : avec plusieurs instances, chacune ne voit que les ventes qu'elle enregistre.
+ * Les rapports expirent donc aussi au bout de application.rapports.cache.duree-ms, délai au-delà duquel toutes
+ * les instances voient les ventes antidatées enregistrées par les autres.
+ *
+ * Un rapport gardé est servi tel quel à tous les appelants : la liste n'est pas modifiable, et les
+ * TransactionCarburantDto qu'elle contient, eux, le sont. Les appelants ne doivent pas les modifier (copier avant
+ * tout enrichissement), sous peine de corrompre le rapport servi aux appels suivants.
+ */
+@Component
+public class RapportsPeriodesClosesCache {
+
+    private final long transactionsMax;
+    private final long dureeMs;
+    private final Map<CleRapport, RapportGarde> rapports = new LinkedHashMap<>(16, 0.75f, true);
+    private long transactionsGardees;
+    private long generation;
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    public RapportsPeriodesClosesCache(@Value("${application.rapports.cache.transactions-max:200000}") long transactionsMax,
+                                       @Value("${application.rapports.cache.duree-ms:600000}") long dureeMs) {
+        this.transactionsMax = transactionsMax;
+        this.dureeMs = dureeMs;
+    }
+
+    /**
+     * Clé d'un rapport : période (bornes incluses) et station, null pour toutes les stations.
+     */
+    public record CleRapport(LocalDate debut, LocalDate fin, Long stationId) {
+
+        boolean couvre(LocalDate jour, Long stationVente) {
+            return !jour.isBefore(debut) && !jour.isAfter(fin) && (stationId == null || stationId.equals(stationVente));
+        }
+    }
+
+    /**
+     * Une période n'est close qu'une fois son dernier jour passé.
+     */
+    public static boolean estClose(LocalDate fin) {
+        return fin.isBefore(LocalDate.now());
+    }
+
+    /**
+     * Rapport gardé pour cette clé, s'il n'a pas expiré. Ses DTO sont partagés : ne pas les modifier.
+     */
+    public synchronized Optional<List<TransactionCarburantDto>> get(CleRapport cle) {
+        RapportGarde garde = rapports.get(cle);
+        if (garde != null && garde.expireA() <= System.currentTimeMillis()) {
+            rapports.remove(cle);
+            transactionsGardees -= garde.rapport().size();
+            garde = null;
+        }
+        (garde != null ? cacheHits : cacheMisses).increment();
+        return Optional.ofNullable(garde).map(RapportGarde::rapport);
+    }
+
+    /**
+     * Génération courante, à lire avant de charger un rapport et à passer à {@link #put}.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Garde un rapport chargé, sauf si une invalidation a eu lieu depuis le début du chargement
+     * ou s'il dépasse à lui seul la taille du cache.
+     *
+     * @param rapport Liste non modifiable, partagée entre tous les appelants avec ses DTO, qui ne doivent plus
+     *                être modifiés.
+     */
+    public synchronized void put(CleRapport cle, List<TransactionCarburantDto> rapport, long generationAuChargement) {
+        if (generationAuChargement != generation || rapport.size() > transactionsMax) {
+            return;
+        }
+        RapportGarde precedent = rapports.put(cle, new RapportGarde(rapport, System.currentTimeMillis() + dureeMs));
+        transactionsGardees += rapport.size() - (precedent != null ? precedent.rapport().size() : 0);
+        Iterator<RapportGarde> plusAnciens = rapports.values().iterator();
+        while (transactionsGardees > transactionsMax && plusAnciens.hasNext()) {
+            transactionsGardees -= plusAnciens.next().rapport().size();
+            plusAnciens.remove();
+        }
+    }
+
+    /**
+     * Invalide les rapports qui couvrent le jour d'une vente enregistrée dans une période close.
+     * À appeler après le commit de la vente.
+     */
+    public synchronized void invalider(LocalDate jour, Long stationId) {
+        generation++;
+        Iterator<Map.Entry<CleRapport, RapportGarde>> entrees = rapports.entrySet().iterator();
+        while (entrees.hasNext()) {
+            Map.Entry<CleRapport, RapportGarde> entree = entrees.next();
+            if (entree.getKey().couvre(jour, stationId)) {
+                transactionsGardees -= entree.getValue().rapport().size();
+                entrees.remove();
+            }
+        }
+    }
+
+    /**
+     * Compteurs du cache (hits / misses, rapports et transactions gardés).
+     */
+    public synchronized Map<String, Long> statistiques() {
+        return Map.of("hits", cacheHits.sum(), "misses", cacheMisses.sum(),
+                "rapports", (long) rapports.size(), "transactions", transactionsGardees);
+    }
+
+    private record RapportGarde(List<TransactionCarburantDto> rapport, long expireA) {
+    }
+}
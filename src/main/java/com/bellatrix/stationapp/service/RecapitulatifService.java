@@ -0,0 +1,100 @@
+package com.bellatrix.stationapp.service;
+
+import com.bellatrix.stationapp.dto.RecapitulatifPeriodeDto;
+import com.bellatrix.stationapp.dto.RecapitulatifStationDto;
+import com.bellatrix.stationapp.model.RecapitulatifJournalierStation;
+import com.bellatrix.stationapp.model.TransactionCarburant;
+import com.bellatrix.stationapp.repository.RecapitulatifJournalierStationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Récapitulatifs journaliers par station (table daily_station_rollup).
+ * Les totaux sont cumulés dans la même transaction que l'enregistrement des ventes ;
+ * les rapports de synthèse n'ont ainsi jamais à relire les transactions une à une.
+ *
+ * La ligne mise à jour reste verrouillée jusqu'au commit de la vente : pour que les ventes simultanées d'une même
+ * station ne s'attendent pas les unes les autres, les totaux de chaque station et de chaque jour sont répartis sur
+ * application.recapitulatifs.tranches lignes. Chaque enregistrement cumule dans une tranche tirée au hasard,
+ * les lectures additionnent les tranches.
+ */
+@Service
+public class RecapitulatifService {
+
+    // Ordre fixe des lignes mises à jour : deux lots concurrents verrouillent les lignes dans le même ordre
+    private static final Comparator<RecapitulatifJournalierStation.Cle> ORDRE_VERROUILLAGE =
+            Comparator.comparing(RecapitulatifJournalierStation.Cle::getStationServiceId)
+                    .thenComparing(RecapitulatifJournalierStation.Cle::getJour);
+
+    private final RecapitulatifJournalierStationRepository recapitulatifRepository;
+    private final int tranches;
+
+    @Autowired
+    public RecapitulatifService(RecapitulatifJournalierStationRepository recapitulatifRepository,
+                                @Value("${application.recapitulatifs.tranches:8}") int tranches) {
+        if (tranches <= 0 || tranches > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Le nombre de tranches des récapitulatifs doit être compris entre 1 et "
+                    + Short.MAX_VALUE + ".");
+        }
+        this.recapitulatifRepository = recapitulatifRepository;
+        this.tranches = tranches;
+    }
+
+    /**
+     * Ajoute des ventes qui viennent d'être enregistrées aux totaux de leur station et de leur jour.
+     * Les ventes sont d'abord regroupées : une seule mise à jour par station et par jour, quel que soit le lot,
+     * toutes dans la même tranche.
+     * Doit être appelée dans la même transaction que l'enregistrement des ventes.
+     */
+    @Transactional
+    public void cumuler(List<TransactionCarburant> transactions) {
+        short tranche = (short) ThreadLocalRandom.current().nextInt(tranches);
+        Map<RecapitulatifJournalierStation.Cle, RecapitulatifJournalierStation> totaux = new TreeMap<>(ORDRE_VERROUILLAGE);
+        for (TransactionCarburant transaction : transactions) {
+            RecapitulatifJournalierStation.Cle cle = new RecapitulatifJournalierStation.Cle(
+                    transaction.getStationService().getId(), transaction.getDateTransaction().toLocalDate(), tranche);
+            RecapitulatifJournalierStation total = totaux.computeIfAbsent(cle, c -> new RecapitulatifJournalierStation(
+                    c.getStationServiceId(), c.getJour(), c.getTranche(), 0.0, 0.0, 0.0, 0.0, 0L));
+            total.setLitres(total.getLitres() + transaction.getLitresAchetes());
+            total.setChiffreAffaires(total.getChiffreAffaires() + transaction.getMontantTotal());
+            total.setPointsGagnes(total.getPointsGagnes() + transaction.getPointsGagnes());
+            total.setPointsUtilises(total.getPointsUtilises() + transaction.getPointsUtilises());
+            total.setNombreTransactions(total.getNombreTransactions() + 1);
+        }
+        totaux.values().forEach(total -> recapitulatifRepository.cumuler(total.getStationServiceId(), total.getJour(),
+                total.getTranche(), total.getLitres(), total.getChiffreAffaires(), total.getPointsGagnes(), total.getPointsUtilises(),
+                total.getNombreTransactions()));
+    }
+
+    /**
+     * Totaux par station et pour tout le réseau sur une période, lus dans les récapitulatifs journaliers.
+     *
+     * @param debut Premier jour inclus.
+     * @param fin Dernier jour inclus.
+     */
+    @Transactional(readOnly = true)
+    public RecapitulatifPeriodeDto getRecapitulatif(LocalDate debut, LocalDate fin) {
+        if (fin.isBefore(debut)) {
+            throw new IllegalArgumentException("La date de fin précède la date de début.");
+        }
+        List<RecapitulatifStationDto> stations = recapitulatifRepository.totauxParStation(debut, fin);
+        RecapitulatifStationDto total = new RecapitulatifStationDto(null, null, 0.0, 0.0, 0.0, 0.0, 0L);
+        for (RecapitulatifStationDto station : stations) {
+            total.setLitres(total.getLitres() + station.getLitres());
+            total.setChiffreAffaires(total.getChiffreAffaires() + station.getChiffreAffaires());
+            total.setPointsGagnes(total.getPointsGagnes() + station.getPointsGagnes());
+            total.setPointsUtilises(total.getPointsUtilises() + station.getPointsUtilises());
+            total.setNombreTransactions(total.getNombreTransactions() + station.getNombreTransactions());
+        }
+        return new RecapitulatifPeriodeDto(debut, fin, stations, total);
+    }
+}
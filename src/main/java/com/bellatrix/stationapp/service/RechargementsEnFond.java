@@ -0,0 +1,82 @@
+package com.bellatrix.stationapp.service;
+
+import com.bellatrix.stationapp.analytique.InstantaneAnalytique;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rechargements complets des données tenues en mémoire (index des cartes de fidélité, instantané analytique).
+ * Ils lisent des tables entières : ils s'exécutent sur des threads à eux, et le planificateur des tâches @Scheduled
+ * (écriture du journal, révocations, partitions...) n'attend jamais leur fin.
+ * Un rechargement encore en cours n'est pas relancé : le passage est simplement ignoré.
+ */
+@Component
+public class RechargementsEnFond {
+
+    private static final Logger logger = LoggerFactory.getLogger(RechargementsEnFond.class);
+
+    // Un thread par rechargement : l'un ne retarde pas l'autre
+    private static final int THREADS = 2;
+
+    private final IndexCartesFidelite indexCartesFidelite;
+    private final InstantaneAnalytique instantaneAnalytique;
+    private final ExecutorService executeur;
+    private final Set<String> enCours = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public RechargementsEnFond(IndexCartesFidelite indexCartesFidelite, InstantaneAnalytique instantaneAnalytique) {
+        this.indexCartesFidelite = indexCartesFidelite;
+        this.instantaneAnalytique = instantaneAnalytique;
+        AtomicInteger numero = new AtomicInteger();
+        this.executeur = Executors.newFixedThreadPool(THREADS, tache -> {
+            Thread thread = new Thread(tache, "rechargements-" + numero.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${application.cartes.index.rechargement-ms:300000}")
+    public void rechargerIndexCartes() {
+        lancer("Index des cartes de fidélité", indexCartesFidelite::recharger);
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${application.analytique.intervalle-ms:10000}")
+    public void rafraichirInstantaneAnalytique() {
+        lancer("Instantané analytique", instantaneAnalytique::rafraichir);
+    }
+
+    private void lancer(String nom, Runnable rechargement) {
+        if (!enCours.add(nom)) {
+            logger.debug("{} : rechargement précédent encore en cours, passage ignoré.", nom);
+            return;
+        }
+        try {
+            executeur.execute(() -> {
+                try {
+                    rechargement.run();
+                } finally {
+                    enCours.remove(nom);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Arrêt de l'application en cours
+            enCours.remove(nom);
+        }
+    }
+
+    @PreDestroy
+    public void arreter() {
+        executeur.shutdownNow();
+    }
+}
@@ -9,13 +9,23 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
 public class ReglePointService {
 
     private final ReglePointRepository reglePointRepository;
 
+    // Cache en mémoire de la règle active : elle est lue à chaque vente mais ne change que quelques fois par an.
+    // Chaque écriture invalide le cache après commit en incrémentant la génération ; un chargement concurrent
+    // démarré avant l'invalidation ne peut donc pas republier une valeur périmée (compareAndSet sur l'entrée).
+    private final AtomicReference<EntreeCache> regleActiveCache = new AtomicReference<>(new EntreeCache(0, null));
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
     @Autowired
     public ReglePointService(ReglePointRepository reglePointRepository) {
         this.reglePointRepository = reglePointRepository;
@@ -47,20 +57,60 @@ public class ReglePointService {
         nouvelleRegle.setDateDebut(dateDebut);
         nouvelleRegle.setDateFin(dateFin);
         nouvelleRegle.setActive(active);
-        return reglePointRepository.save(nouvelleRegle);
+        ReglePoints enregistree = reglePointRepository.save(nouvelleRegle);
+        ApresCommit.executer(this::invaliderCacheRegleActive);
+        return enregistree;
     }
 
     /**
      * Récupère la règle de points actuellement active.
      * C'est la méthode que le DataLoader utilise pour vérifier l'existence.
+     * Servie depuis le cache en mémoire ; la base n'est interrogée qu'après une modification des règles.
+     * Chaque appel renvoie une copie détachée : modifier l'objet retourné n'affecte pas le cache.
      *
      * @return Un Optional contenant la règle de points active si elle existe, sinon vide.
      */
-    @Transactional(readOnly = true)
     public Optional<ReglePoints> getRegleActive() {
+        EntreeCache entree = regleActiveCache.get();
+        if (entree.regle() != null) {
+            cacheHits.increment();
+            return entree.regle().map(InstantaneRegle::versEntite);
+        }
+        cacheMisses.increment();
         // Supposons que tu as une méthode findByActive(boolean active) dans ton repository.
         // Assure-toi que cette méthode est bien définie dans ReglePointRepository.
-        return reglePointRepository.findByActive(true);
+        Optional<InstantaneRegle> chargee = reglePointRepository.findByActive(true).map(InstantaneRegle::new);
+        // Publié seulement si aucune écriture n'a invalidé le cache pendant le chargement
+        regleActiveCache.compareAndSet(entree, new EntreeCache(entree.generation(), chargee));
+        return chargee.map(InstantaneRegle::versEntite);
+    }
+
+    /**
+     * Compteurs du cache de la règle active (hits / misses).
+     *
+     * @return Une map avec les clés "hits" et "misses".
+     */
+    public Map<String, Long> getStatistiquesCacheRegleActive() {
+        return Map.of("hits", cacheHits.sum(), "misses", cacheMisses.sum());
+    }
+
+    private void invaliderCacheRegleActive() {
+        regleActiveCache.updateAndGet(entree -> new EntreeCache(entree.generation() + 1, null));
+    }
+
+    // État du cache : regle == null signifie "à recharger"
+    private record EntreeCache(long generation, Optional<InstantaneRegle> regle) {
+    }
+
+    // Copie immuable de la règle active
+    private record InstantaneRegle(Long id, Double pointsParLitre, LocalDateTime dateDebut, LocalDateTime dateFin) {
+        InstantaneRegle(ReglePoints regle) {
+            this(regle.getId(), regle.getPointsParLitre(), regle.getDateDebut(), regle.getDateFin());
+        }
+
+        ReglePoints versEntite() {
+            return new ReglePoints(id, pointsParLitre, dateDebut, dateFin, true);
+        }
     }
 
     /**
@@ -96,7 +146,9 @@ public class ReglePointService {
         if (!reglePointRepository.existsById(reglePoint.getId())) {
             throw new IllegalArgumentException("Règle de points avec l'ID " + reglePoint.getId() + " non trouvée.");
         }
-        return reglePointRepository.save(reglePoint);
+        ReglePoints enregistree = reglePointRepository.save(reglePoint);
+        ApresCommit.executer(this::invaliderCacheRegleActive);
+        return enregistree;
     }
 
     /**
@@ -110,5 +162,6 @@ public class ReglePointService {
             throw new IllegalArgumentException("Règle de points avec l'ID " + id + " non trouvée.");
         }
         reglePointRepository.deleteById(id);
+        ApresCommit.executer(this::invaliderCacheRegleActive);
     }
 }
\ No newline at end of file
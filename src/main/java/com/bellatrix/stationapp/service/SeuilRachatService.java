@@ -6,15 +6,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 public class SeuilRachatService {
 
     private final SeuilRachatRepository seuilRachatRepository;
 
+    // Index trié et immuable des seuils, pour trouver le meilleur seuil par recherche dichotomique sans accès à la base.
+    // Reconstruit après chaque modification des seuils (génération incrémentée après commit, comme pour la règle active).
+    private final AtomicReference<EntreeIndex> indexSeuils = new AtomicReference<>(new EntreeIndex(0, null));
+
     @Autowired
     public SeuilRachatService(SeuilRachatRepository seuilRachatRepository) {
         this.seuilRachatRepository = seuilRachatRepository;
@@ -26,7 +30,9 @@ public class SeuilRachatService {
         seuil.setPointsRequis(pointsRequis);
         seuil.setValeurMonetaire(valeurMonetaire);
         seuil.setDescription(description);
-        return seuilRachatRepository.save(seuil);
+        SeuilRachat enregistre = seuilRachatRepository.save(seuil);
+        ApresCommit.executer(this::invaliderIndex);
+        return enregistre;
     }
 
     @Transactional(readOnly = true)
@@ -34,13 +40,72 @@ public class SeuilRachatService {
         return seuilRachatRepository.findAllByOrderByPointsRequisAsc();
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Trouve le seuil le plus élevé que le client peut atteindre avec son solde.
+     * Recherche en O(log n) dans l'index en mémoire ; la base n'est lue que pour reconstruire l'index
+     * après une modification des seuils. Renvoie une copie : modifier l'objet retourné n'affecte pas l'index.
+     *
+     * @param soldePointsClient Le solde de points du client.
+     * @return Le meilleur seuil atteignable, ou vide si aucun.
+     */
     public Optional<SeuilRachat> getMeilleurSeuilPourClient(Double soldePointsClient) {
-        // Récupère tous les seuils de rachat et trouve le plus élevé que le client peut atteindre
-        return getAllSeuilsRachat().stream()
-                .filter(seuil -> soldePointsClient >= seuil.getPointsRequis())
-                .max(Comparator.comparingDouble(SeuilRachat::getPointsRequis)); // Prend le seuil le plus élevé atteignable
+        EntreeIndex entree = indexSeuils.get();
+        IndexSeuils index = entree.index();
+        if (index == null) {
+            index = new IndexSeuils(seuilRachatRepository.findAllByOrderByPointsRequisAsc());
+            // Publié seulement si aucune modification n'a invalidé l'index pendant la construction
+            indexSeuils.compareAndSet(entree, new EntreeIndex(entree.generation(), index));
+        }
+        return index.plancher(soldePointsClient);
+    }
+
+    // D'autres méthodes de mise à jour ou de suppression des seuils peuvent être ajoutées :
+    // elles doivent appeler ApresCommit.executer(this::invaliderIndex) pour reconstruire l'index.
+
+    private void invaliderIndex() {
+        indexSeuils.updateAndGet(entree -> new EntreeIndex(entree.generation() + 1, null));
     }
 
-    // D'autres méthodes de mise à jour ou de suppression des seuils peuvent être ajoutées
+    // État de l'index : index == null signifie "à reconstruire"
+    private record EntreeIndex(long generation, IndexSeuils index) {
+    }
+
+    /**
+     * Seuils triés par points requis croissants, stockés dans des tableaux immuables.
+     * plancher(solde) renvoie le dernier seuil dont les points requis sont inférieurs ou égaux au solde.
+     */
+    private static final class IndexSeuils {
+        private final double[] pointsRequis;
+        private final SeuilRachat[] seuils;
+
+        IndexSeuils(List<SeuilRachat> seuilsTries) {
+            this.pointsRequis = new double[seuilsTries.size()];
+            this.seuils = new SeuilRachat[seuilsTries.size()];
+            for (int i = 0; i < seuilsTries.size(); i++) {
+                SeuilRachat seuil = seuilsTries.get(i);
+                this.pointsRequis[i] = seuil.getPointsRequis();
+                this.seuils[i] = copie(seuil);
+            }
+        }
+
+        Optional<SeuilRachat> plancher(double solde) {
+            int bas = 0;
+            int haut = pointsRequis.length - 1;
+            int trouve = -1;
+            while (bas <= haut) {
+                int milieu = (bas + haut) >>> 1;
+                if (pointsRequis[milieu] <= solde) {
+                    trouve = milieu;
+                    bas = milieu + 1;
+                } else {
+                    haut = milieu - 1;
+                }
+            }
+            return trouve < 0 ? Optional.empty() : Optional.of(copie(seuils[trouve]));
+        }
+
+        private static SeuilRachat copie(SeuilRachat seuil) {
+            return new SeuilRachat(seuil.getId(), seuil.getPointsRequis(), seuil.getValeurMonetaire(), seuil.getDescription());
+        }
+    }
 }
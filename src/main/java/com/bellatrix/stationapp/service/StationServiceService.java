@@ -6,6 +6,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -47,6 +48,17 @@ public class StationServiceService {
         return stationServiceRepository.findById(id);
     }
 
+    /**
+     * Récupère plusieurs stations-service par leurs IDs en une seule requête.
+     *
+     * @param ids Les IDs des stations-service.
+     * @return La liste des stations-service trouvées.
+     */
+    @Transactional(readOnly = true)
+    public List<StationService> getStationServicesByIds(Collection<Long> ids) {
+        return stationServiceRepository.findAllById(ids);
+    }
+
     /**
      * Récupère toutes les stations-service.
      *
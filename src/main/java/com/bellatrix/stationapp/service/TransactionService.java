@@ -5,40 +5,155 @@ import com.bellatrix.stationapp.model.*; // Importe tous les modèles nécessair
 import com.bellatrix.stationapp.repository.TransactionCarburantRepository;
 import com.bellatrix.stationapp.dto.TransactionCarburantDto; // Importe le DTO
 import com.bellatrix.stationapp.dto.ClientDto; // Importe ClientDto si vous voulez l'utiliser dans un rapport DTO par exemple
+import com.bellatrix.stationapp.dto.AchatBatchResultatDto;
+import com.bellatrix.stationapp.dto.AgregatTransactions;
+import com.bellatrix.stationapp.dto.PageTransactionsDto;
+import com.bellatrix.stationapp.journal.EntreeJournal;
+import com.bellatrix.stationapp.journal.JournalTransactions;
+import com.bellatrix.stationapp.payload.request.AchatCarburantRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors; // Importe Collectors
 
 @Service
 public class TransactionService {
 
+    private static final Logger logger = LoggerFactory.getLogger(TransactionService.class);
+
     private final TransactionCarburantRepository transactionCarburantRepository;
     private final ClientService clientService; // Déjà injecté
     private final ReglePointService reglePointService; // Déjà injecté
     private final SeuilRachatService seuilRachatService; // Déjà injecté
+    private final StationServiceService stationServiceService;
+    private final UtilisateurService utilisateurService;
+    private final CleIdempotenceCache cleIdempotenceCache;
+    private final JournalTransactions journalTransactions;
+    private final GrandLivrePointsService grandLivrePointsService;
+    private final RecapitulatifService recapitulatifService;
+    private final RapportsPeriodesClosesCache rapportsCache;
+    private final RapportsParalleles rapportsParalleles;
+    // Écriture synchrone d'une vente après le commit du solde, quand elle n'a pas pu être journalisée
+    private final TransactionTemplate nouvelleTransaction;
+
+    // Longueur de la colonne transaction_carburant.cle_idempotence
+    private static final int LONGUEUR_MAX_CLE = 64;
+
+    // Borne haute inclusive d'une journée, à la précision des colonnes TIMESTAMP(6). LocalTime.MAX (nanosecondes)
+    // serait arrondi par le driver à minuit le lendemain : la requête lirait aussi le jour (et la partition) suivant
+    public static final LocalTime FIN_JOURNEE = LocalTime.MAX.truncatedTo(ChronoUnit.MICROS);
+
+    // Nombre maximum de ventes acceptées dans un seul lot
+    @Value("${application.transactions.batch.taille-max:1000}")
+    private int tailleMaxLot;
+
+    // Taille des pages des listes paginées (si non précisée par le client) et taille maximale autorisée
+    @Value("${application.pagination.taille-defaut:50}")
+    private int taillePageDefaut;
+
+    @Value("${application.pagination.taille-max:500}")
+    private int taillePageMax;
+
+    // Nombre maximum de groupes renvoyés par un rapport agrégé par station, employé ou client
+    @Value("${application.rapports.agregat.limite-max:1000}")
+    private int limiteMaxAgregat;
+
+    /**
+     * Regroupements possibles des rapports agrégés. Le paramètre d'URL correspondant est indiqué pour chacun.
+     */
+    public enum GroupementRapport {
+        JOUR("day"), SEMAINE("week"), MOIS("month"), STATION("station"), EMPLOYE("employee"), CLIENT("client");
+
+        private final String parametre;
+
+        GroupementRapport(String parametre) {
+            this.parametre = parametre;
+        }
+
+        public static GroupementRapport depuisParametre(String parametre) {
+            for (GroupementRapport groupement : values()) {
+                if (groupement.parametre.equalsIgnoreCase(parametre)) {
+                    return groupement;
+                }
+            }
+            throw new IllegalArgumentException("Regroupement inconnu : " + parametre);
+        }
+    }
 
     @Autowired
     public TransactionService(TransactionCarburantRepository transactionCarburantRepository,
                               ClientService clientService,
                               ReglePointService reglePointService,
-                              SeuilRachatService seuilRachatService) {
+                              SeuilRachatService seuilRachatService,
+                              StationServiceService stationServiceService,
+                              UtilisateurService utilisateurService,
+                              CleIdempotenceCache cleIdempotenceCache,
+                              JournalTransactions journalTransactions,
+                              GrandLivrePointsService grandLivrePointsService,
+                              RecapitulatifService recapitulatifService,
+                              RapportsPeriodesClosesCache rapportsCache,
+                              RapportsParalleles rapportsParalleles,
+                              PlatformTransactionManager transactionManager) {
         this.transactionCarburantRepository = transactionCarburantRepository;
         this.clientService = clientService;
         this.reglePointService = reglePointService;
         this.seuilRachatService = seuilRachatService;
+        this.stationServiceService = stationServiceService;
+        this.utilisateurService = utilisateurService;
+        this.cleIdempotenceCache = cleIdempotenceCache;
+        this.journalTransactions = journalTransactions;
+        this.grandLivrePointsService = grandLivrePointsService;
+        this.recapitulatifService = recapitulatifService;
+        this.rapportsCache = rapportsCache;
+        this.rapportsParalleles = rapportsParalleles;
+        this.nouvelleTransaction = new TransactionTemplate(transactionManager);
+        this.nouvelleTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
     }
 
     @Transactional
     public TransactionCarburant enregistrerAchatCarburant(
             Client client, StationService station, Utilisateur utilisateur,
             Double litresAchetes, Double montantTotal, boolean utiliserPoints) {
+        return enregistrerAchatCarburant(client, station, utilisateur, litresAchetes, montantTotal, utiliserPoints, null);
+    }
+
+    /**
+     * Enregistre un achat en l'associant à la clé d'idempotence fournie par le terminal.
+     * L'appelant doit d'abord vérifier la clé avec {@link #trouverTransactionParCleIdempotence(String)}. La clé est
+     * réservée en base avant la mise à jour du solde : en cas d'envoi concurrent de la même clé, ou de renvoi d'une
+     * vente encore dans le journal, la contrainte unique fait échouer la seconde transaction sans toucher au solde.
+     *
+     * Quand le journal des transactions est actif, seule la mise à jour du solde est écrite en base de façon synchrone :
+     * la vente est inscrite dans le journal local après le commit du solde (durable avant le retour) et écrite plus
+     * tard par {@link com.bellatrix.stationapp.journal.EcrivainJournal}. La transaction renvoyée n'a alors pas encore
+     * d'ID.
+     */
+    @Transactional
+    public TransactionCarburant enregistrerAchatCarburant(
+            Client client, StationService station, Utilisateur utilisateur,
+            Double litresAchetes, Double montantTotal, boolean utiliserPoints, String cleIdempotence) {
 
         // La logique existante est maintenue, avec une légère modification
         // pour utiliser le soldePoints du client directement pour la vérification des seuils
@@ -48,32 +163,387 @@ public class TransactionService {
         if (litresAchetes <= 0 || montantTotal <= 0) {
             throw new IllegalArgumentException("Les litres achetés et le montant total doivent être positifs.");
         }
-
-        double pointsGagnes = 0.0;
-        double pointsUtilises = 0.0;
-        double montantReduction = 0.0;
+        verifierCleIdempotence(cleIdempotence);
 
         // 1. Calcul des points gagnés
         ReglePoints regleActive = reglePointService.getRegleActive()
                 .orElseThrow(() -> new IllegalStateException("Aucune règle de points active trouvée."));
-        pointsGagnes = litresAchetes * regleActive.getPointsParLitre();
 
         // 2. Gestion de l'utilisation des points (rachat)
         // Utilisation du solde de points actuel du client pour la vérification
+        CalculPoints calcul = calculerPoints(litresAchetes, montantTotal, client.getSoldePoints(), utiliserPoints,
+                regleActive, seuilRachatService::getMeilleurSeuilPourClient);
+
+        LocalDateTime maintenant = LocalDateTime.now();
+        if (cleIdempotence != null) {
+            transactionCarburantRepository.reserverClesIdempotence(List.of(cleIdempotence), List.of(maintenant));
+        }
+
+        // Mettre à jour le solde du client (déduction des points utilisés ET ajout des points gagnés)
+        // en une seule instruction SQL atomique : pas de perte de mise à jour entre achats concurrents,
+        // et la garde refuse le rachat si le solde a été consommé entre-temps.
+        // Le nouveau solde est reporté sur l'entité uniquement pour la réponse (colonne non modifiable par save()).
+        Double nouveauSolde = clientService.mettreAJourSoldePoints(client.getId(), calcul.pointsNets());
+        client.setSoldePoints(nouveauSolde);
+
+
+        // 3. Enregistrement de la transaction
+        TransactionCarburant transaction = construireTransaction(client, station, utilisateur,
+                maintenant, litresAchetes, montantTotal, calcul);
+        transaction.setCleIdempotence(cleIdempotence);
+
+        if (journalTransactions.estActif()) {
+            if (journalTransactions.aDeLaPlace()) {
+                journaliserApresCommit(transaction);
+                return transaction;
+            }
+            // Journal plein (écrivain en retard ou base indisponible) : retour à l'écriture synchrone
+            logger.warn("Journal des transactions plein, enregistrement synchrone de la vente.");
+        }
+
+        TransactionCarburant enregistree = transactionCarburantRepository.save(transaction);
+        apresEnregistrement(List.of(enregistree));
+        if (cleIdempotence != null) {
+            TransactionCarburantDto dto = new TransactionCarburantDto(enregistree);
+            ApresCommit.executer(() -> cleIdempotenceCache.put(cleIdempotence, dto));
+        }
+        return enregistree;
+    }
+
+    /**
+     * Inscrit la vente dans le journal local une fois la mise à jour du solde commitée. Une vente sans clé en reçoit
+     * une : c'est elle qui rend le rejeu du journal sans effet sur les lignes déjà écrites.
+     *
+     * Une transaction annulée ne laisse donc rien dans le journal, et le fsync ne se fait plus en tenant la connexion
+     * ni le verrou de la ligne du client. L'appelant attend toujours que la vente soit durable avant de recevoir la
+     * réponse. Si le journal s'est rempli entre-temps (ou est fermé), la vente est écrite en base dans une nouvelle
+     * transaction. Seul un arrêt brutal entre le commit et le fsync perd la ligne de la vente (pas son effet sur le
+     * solde) ; le terminal reçoit alors une erreur.
+     */
+    private void journaliserApresCommit(TransactionCarburant transaction) {
+        if (transaction.getCleIdempotence() == null) {
+            transaction.setCleIdempotence("journal-" + UUID.randomUUID());
+        }
+        TransactionCarburantDto dto = new TransactionCarburantDto(transaction);
+        ApresCommit.executer(() -> {
+            Optional<EntreeJournal> entree;
+            try {
+                entree = journalTransactions.ajouter(
+                        transaction.getClient().getId(),
+                        transaction.getStationService().getId(),
+                        transaction.getUtilisateur().getId(),
+                        transaction.getDateTransaction(),
+                        transaction.getLitresAchetes(),
+                        transaction.getMontantTotal(),
+                        transaction.getPointsGagnes(),
+                        transaction.getPointsUtilises(),
+                        transaction.getCleIdempotence());
+            } catch (IllegalStateException e) {
+                logger.error("Journal des transactions indisponible, enregistrement synchrone de la vente {}.",
+                        transaction.getCleIdempotence(), e);
+                entree = Optional.empty();
+            }
+            if (entree.isEmpty()) {
+                logger.warn("Journal des transactions plein, enregistrement synchrone de la vente.");
+                nouvelleTransaction.executeWithoutResult(statut ->
+                        apresEnregistrement(List.of(transactionCarburantRepository.save(transaction))));
+            }
+            // Les renvois de cette clé sont servis par le cache tant que l'écrivain n'a pas écrit la ligne
+            cleIdempotenceCache.put(dto.getCleIdempotence(), dto);
+        });
+    }
+
+    /**
+     * Écrit dans transaction_carburant un lot d'entrées du journal, en une seule transaction et en insertions groupées.
+     * Les soldes ont déjà été mis à jour lors de la vente : seules les lignes de transaction et leurs mouvements
+     * de points sont créés.
+     * Les entrées dont la clé existe déjà en base (rejeu après un crash), ou figure déjà plus tôt dans le lot, sont
+     * ignorées : une entrée en double ne fait pas échouer tout le lot.
+     *
+     * @param entrees Les entrées du journal, dans l'ordre des séquences.
+     */
+    @Transactional
+    public void persisterEntreesJournal(List<EntreeJournal> entrees) {
+        Set<String> cles = new HashSet<>();
+        Set<Long> clientIds = new HashSet<>();
+        Set<Long> stationIds = new HashSet<>();
+        Set<Long> utilisateurIds = new HashSet<>();
+        for (EntreeJournal entree : entrees) {
+            cles.add(entree.cleIdempotence());
+            clientIds.add(entree.clientId());
+            stationIds.add(entree.stationServiceId());
+            utilisateurIds.add(entree.utilisateurId());
+        }
+        Set<String> dejaEcrites = transactionCarburantRepository.findByCleIdempotenceIn(cles).stream()
+                .map(TransactionCarburant::getCleIdempotence)
+                .collect(Collectors.toSet());
+        Map<Long, Client> clients = indexerParId(clientService.getClientsByIds(clientIds), Client::getId);
+        Map<Long, StationService> stations = indexerParId(stationServiceService.getStationServicesByIds(stationIds), StationService::getId);
+        Map<Long, Utilisateur> utilisateurs = indexerParId(utilisateurService.getUtilisateursByIds(utilisateurIds), Utilisateur::getId);
+
+        List<TransactionCarburant> aEnregistrer = new ArrayList<>(entrees.size());
+        Set<String> clesDuLot = new HashSet<>();
+        for (EntreeJournal entree : entrees) {
+            if (dejaEcrites.contains(entree.cleIdempotence())) {
+                continue;
+            }
+            if (!clesDuLot.add(entree.cleIdempotence())) {
+                logger.error("Entrée {} du journal ignorée : clé {} déjà présente dans le lot.",
+                        entree.sequence(), entree.cleIdempotence());
+                continue;
+            }
+            Client client = clients.get(entree.clientId());
+            StationService station = stations.get(entree.stationServiceId());
+            Utilisateur utilisateur = utilisateurs.get(entree.utilisateurId());
+            if (client == null || station == null || utilisateur == null) {
+                // Entité supprimée depuis la vente : on ne bloque pas le journal pour autant
+                logger.error("Entrée {} du journal ignorée : client, station ou utilisateur introuvable ({}).",
+                        entree.sequence(), entree);
+                continue;
+            }
+            // Le montant journalisé est déjà net de la réduction
+            TransactionCarburant transaction = construireTransaction(client, station, utilisateur, entree.dateTransaction(),
+                    entree.litresAchetes(), entree.montantTotal(),
+                    new CalculPoints(entree.pointsGagnes(), entree.pointsUtilises(), 0.0));
+            transaction.setCleIdempotence(entree.cleIdempotence());
+            aEnregistrer.add(transaction);
+        }
+        List<TransactionCarburant> enregistrees = transactionCarburantRepository.saveAll(aEnregistrer);
+        apresEnregistrement(enregistrees);
+        List<TransactionCarburantDto> dtos = enregistrees.stream()
+                .map(TransactionCarburantDto::new)
+                .collect(Collectors.toList());
+        ApresCommit.executer(() -> dtos.forEach(dto -> cleIdempotenceCache.put(dto.getCleIdempotence(), dto)));
+    }
+
+    /**
+     * Retrouve une transaction déjà enregistrée avec cette clé d'idempotence.
+     * Le cache des clés récentes est consulté en premier ; la base n'est interrogée qu'en cas d'absence.
+     *
+     * @param cleIdempotence La clé envoyée par le terminal.
+     * @return La transaction d'origine si la clé a déjà été utilisée, sinon vide.
+     */
+    @Transactional(readOnly = true)
+    public Optional<TransactionCarburantDto> trouverTransactionParCleIdempotence(String cleIdempotence) {
+        if (cleIdempotence == null) {
+            return Optional.empty();
+        }
+        Optional<TransactionCarburantDto> enCache = cleIdempotenceCache.get(cleIdempotence);
+        if (enCache.isPresent()) {
+            return enCache;
+        }
+        Optional<TransactionCarburantDto> existante = transactionCarburantRepository.findByCleIdempotence(cleIdempotence)
+                .map(TransactionCarburantDto::new);
+        existante.ifPresent(dto -> cleIdempotenceCache.put(cleIdempotence, dto));
+        return existante;
+    }
+
+    /**
+     * Enregistre un lot de ventes envoyé par un terminal de station, dans une seule transaction de base de données.
+     * Les clients, stations et utilisateurs sont chargés une seule fois pour tout le lot ; la règle de points
+     * active et les seuils de rachat sont servis par leurs caches en mémoire.
+     * Les points sont appliqués client par client dans l'ordre du lot.
+     * Une vente invalide est rejetée individuellement sans empêcher l'enregistrement des autres.
+     *
+     * @param achats Les ventes à enregistrer, dans l'ordre où elles ont eu lieu.
+     * @return Le résultat de chaque vente, dans le même ordre que le lot reçu.
+     * @throws IllegalArgumentException si le lot est vide ou dépasse la taille maximale autorisée.
+     * @throws IllegalStateException si aucune règle de points n'est active.
+     */
+    @Transactional
+    public List<AchatBatchResultatDto> enregistrerAchatsCarburantEnLot(List<AchatCarburantRequest> achats) {
+        if (achats == null || achats.isEmpty()) {
+            throw new IllegalArgumentException("Le lot de ventes est vide.");
+        }
+        if (achats.size() > tailleMaxLot) {
+            throw new IllegalArgumentException("Le lot dépasse la taille maximale autorisée (" + tailleMaxLot + " ventes).");
+        }
+
+        // 1. Résolution des entités liées une seule fois pour tout le lot
+        Set<Long> clientIds = new HashSet<>();
+        Set<Long> stationIds = new HashSet<>();
+        Set<Long> utilisateurIds = new HashSet<>();
+        for (AchatCarburantRequest achat : achats) {
+            if (achat == null) {
+                continue;
+            }
+            if (achat.clientId() != null) clientIds.add(achat.clientId());
+            if (achat.stationServiceId() != null) stationIds.add(achat.stationServiceId());
+            if (achat.utilisateurId() != null) utilisateurIds.add(achat.utilisateurId());
+        }
+        Map<Long, Client> clients = indexerParId(clientService.getClientsByIds(clientIds), Client::getId);
+        Map<Long, StationService> stations = indexerParId(stationServiceService.getStationServicesByIds(stationIds), StationService::getId);
+        Map<Long, Utilisateur> utilisateurs = indexerParId(utilisateurService.getUtilisateursByIds(utilisateurIds), Utilisateur::getId);
+
+        ReglePoints regleActive = reglePointService.getRegleActive()
+                .orElseThrow(() -> new IllegalStateException("Aucune règle de points active trouvée."));
+        Map<String, TransactionCarburantDto> dejaEnregistrees = trouverTransactionsParCles(achats);
+
+        // 2. Validation et calcul vente par vente, en suivant le solde de chaque client en mémoire
+        List<AchatBatchResultatDto> resultats = new ArrayList<>(achats.size());
+        List<TransactionCarburant> aEnregistrer = new ArrayList<>(achats.size());
+        List<Integer> indexEnregistres = new ArrayList<>(achats.size());
+        Map<Long, Double> pointsNetsParClient = new LinkedHashMap<>();
+        Map<String, Integer> clesDuLot = new HashMap<>(); // Clé -> position dans aEnregistrer
+        Map<Integer, Integer> doublonsDuLot = new HashMap<>(); // Index du doublon -> position dans aEnregistrer
+        LocalDateTime maintenant = LocalDateTime.now();
+
+        for (int i = 0; i < achats.size(); i++) {
+            AchatCarburantRequest achat = achats.get(i);
+            try {
+                if (achat == null) {
+                    throw new IllegalArgumentException("Vente vide.");
+                }
+                String cle = achat.cleIdempotence();
+                verifierCleIdempotence(cle);
+                if (cle != null && dejaEnregistrees.containsKey(cle)) {
+                    resultats.add(AchatBatchResultatDto.dejaEnregistre(i, dejaEnregistrees.get(cle)));
+                    continue;
+                }
+                if (cle != null && clesDuLot.containsKey(cle)) {
+                    doublonsDuLot.put(i, clesDuLot.get(cle));
+                    resultats.add(null); // Complété avec la transaction d'origine après la sauvegarde
+                    continue;
+                }
+                Client client = trouver(clients, achat.clientId(), "Client introuvable.");
+                StationService station = trouver(stations, achat.stationServiceId(), "Station-service introuvable.");
+                Utilisateur utilisateur = trouver(utilisateurs, achat.utilisateurId(), "Utilisateur introuvable.");
+                if (achat.litresAchetes() == null || achat.montantTotal() == null
+                        || achat.litresAchetes() <= 0 || achat.montantTotal() <= 0) {
+                    throw new IllegalArgumentException("Les litres achetés et le montant total doivent être positifs.");
+                }
+                LocalDateTime dateTransaction = achat.dateTransaction() != null ? achat.dateTransaction() : maintenant;
+                if (dateTransaction.isAfter(maintenant.plusMinutes(5))) {
+                    throw new IllegalArgumentException("La date de la vente est dans le futur.");
+                }
+
+                CalculPoints calcul = calculerPoints(achat.litresAchetes(), achat.montantTotal(),
+                        client.getSoldePoints(), Boolean.TRUE.equals(achat.utiliserPoints()),
+                        regleActive, seuilRachatService::getMeilleurSeuilPourClient);
+
+                // Solde suivi en mémoire pour les ventes suivantes du même client dans le lot
+                client.setSoldePoints(client.getSoldePoints() + calcul.pointsNets());
+                pointsNetsParClient.merge(client.getId(), calcul.pointsNets(), Double::sum);
+                TransactionCarburant transaction = construireTransaction(client, station, utilisateur, dateTransaction,
+                        achat.litresAchetes(), achat.montantTotal(), calcul);
+                transaction.setCleIdempotence(cle);
+                if (cle != null) {
+                    clesDuLot.put(cle, aEnregistrer.size());
+                }
+                aEnregistrer.add(transaction);
+                indexEnregistres.add(i);
+                resultats.add(null); // Complété après la sauvegarde, une fois l'ID connu
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                resultats.add(AchatBatchResultatDto.rejete(i, e.getMessage()));
+            }
+        }
+
+        // 3. Écritures groupées : réservation des clés, un incrément atomique par client pour tout le lot, puis les
+        // transactions. Si une clé a été réservée ou un rachat concurrent a consommé les points entre-temps,
+        // tout le lot est annulé.
+        if (!clesDuLot.isEmpty()) {
+            List<String> cles = new ArrayList<>(clesDuLot.size());
+            List<LocalDateTime> dates = new ArrayList<>(clesDuLot.size());
+            clesDuLot.forEach((cle, position) -> {
+                cles.add(cle);
+                dates.add(aEnregistrer.get(position).getDateTransaction());
+            });
+            transactionCarburantRepository.reserverClesIdempotence(cles, dates);
+        }
+        pointsNetsParClient.forEach((clientId, pointsNets) -> {
+            Double nouveauSolde = clientService.mettreAJourSoldePoints(clientId, pointsNets);
+            clients.get(clientId).setSoldePoints(nouveauSolde);
+        });
+        List<TransactionCarburant> enregistrees = transactionCarburantRepository.saveAll(aEnregistrer);
+        apresEnregistrement(enregistrees);
+        List<TransactionCarburantDto> dtos = new ArrayList<>(enregistrees.size());
+        for (int k = 0; k < enregistrees.size(); k++) {
+            int index = indexEnregistres.get(k);
+            TransactionCarburantDto dto = new TransactionCarburantDto(enregistrees.get(k));
+            dtos.add(dto);
+            resultats.set(index, AchatBatchResultatDto.enregistre(index, dto));
+        }
+        doublonsDuLot.forEach((index, position) ->
+                resultats.set(index, AchatBatchResultatDto.dejaEnregistre(index, dtos.get(position))));
+        ApresCommit.executer(() -> dtos.stream()
+                .filter(dto -> dto.getCleIdempotence() != null)
+                .forEach(dto -> cleIdempotenceCache.put(dto.getCleIdempotence(), dto)));
+        return resultats;
+    }
+
+    // Écritures dérivées des ventes enregistrées, dans la même transaction : grand livre des points et récapitulatifs
+    private void apresEnregistrement(List<TransactionCarburant> enregistrees) {
+        grandLivrePointsService.inscrireAchats(enregistrees);
+        recapitulatifService.cumuler(enregistrees);
+        // Ventes datées d'une période close : les rapports en cache qui couvrent leur jour sont périmés.
+        // La clôture est évaluée après le commit : une vente de 23:59:59 commitée après minuit invalide bien son jour
+        Map<LocalDate, Set<Long>> stationsParJour = new HashMap<>();
+        for (TransactionCarburant transaction : enregistrees) {
+            stationsParJour.computeIfAbsent(transaction.getDateTransaction().toLocalDate(), j -> new HashSet<>())
+                    .add(transaction.getStationService().getId());
+        }
+        ApresCommit.executer(() -> stationsParJour.forEach((jour, stations) -> {
+            if (RapportsPeriodesClosesCache.estClose(jour)) {
+                stations.forEach(stationId -> rapportsCache.invalider(jour, stationId));
+            }
+        }));
+    }
+
+    private static void verifierCleIdempotence(String cleIdempotence) {
+        if (cleIdempotence != null && (cleIdempotence.isBlank() || cleIdempotence.length() > LONGUEUR_MAX_CLE)) {
+            throw new IllegalArgumentException("La clé d'idempotence doit contenir entre 1 et " + LONGUEUR_MAX_CLE + " caractères.");
+        }
+    }
+
+    // Résout en une seule requête les clés du lot absentes du cache des clés récentes
+    private Map<String, TransactionCarburantDto> trouverTransactionsParCles(List<AchatCarburantRequest> achats) {
+        Map<String, TransactionCarburantDto> trouvees = new HashMap<>();
+        Set<String> aChercher = new HashSet<>();
+        for (AchatCarburantRequest achat : achats) {
+            if (achat == null || achat.cleIdempotence() == null) {
+                continue;
+            }
+            String cle = achat.cleIdempotence();
+            cleIdempotenceCache.get(cle).ifPresentOrElse(dto -> trouvees.put(cle, dto), () -> aChercher.add(cle));
+        }
+        if (!aChercher.isEmpty()) {
+            for (TransactionCarburant transaction : transactionCarburantRepository.findByCleIdempotenceIn(aChercher)) {
+                trouvees.put(transaction.getCleIdempotence(), new TransactionCarburantDto(transaction));
+            }
+        }
+        return trouvees;
+    }
+
+    // Résultat du calcul des points pour une vente
+    private record CalculPoints(double pointsGagnes, double pointsUtilises, double montantReduction) {
+        double pointsNets() {
+            return pointsGagnes - pointsUtilises;
+        }
+    }
+
+    /**
+     * Calcule les points gagnés et, si demandé, le rachat applicable pour une vente.
+     * Partagé entre l'enregistrement unitaire et l'enregistrement par lot.
+     */
+    private CalculPoints calculerPoints(double litresAchetes, double montantTotal, double soldePoints,
+                                        boolean utiliserPoints, ReglePoints regleActive,
+                                        Function<Double, Optional<SeuilRachat>> meilleurSeuilPour) {
+        double pointsGagnes = litresAchetes * regleActive.getPointsParLitre();
+        double pointsUtilises = 0.0;
+        double montantReduction = 0.0;
+
         if (utiliserPoints) {
-            Optional<SeuilRachat> meilleurSeuil = seuilRachatService.getMeilleurSeuilPourClient(client.getSoldePoints());
+            Optional<SeuilRachat> meilleurSeuil = meilleurSeuilPour.apply(soldePoints);
 
             if (meilleurSeuil.isPresent()) {
                 SeuilRachat seuil = meilleurSeuil.get();
-                if (client.getSoldePoints() >= seuil.getPointsRequis()) {
+                if (soldePoints >= seuil.getPointsRequis()) {
                     pointsUtilises = seuil.getPointsRequis();
                     montantReduction = seuil.getValeurMonetaire();
                     // Assurez-vous que la réduction ne dépasse pas le montant total
                     if (montantReduction > montantTotal) {
                         montantReduction = montantTotal;
                     }
-                    // Déduction des points du solde du client via ClientService
-                    // clientService.mettreAJourSoldePoints(client, -pointsUtilises); // Déjà fait dans TransactionService
                 } else {
                     throw new IllegalStateException("Le client n'a pas assez de points pour le rachat avec le seuil sélectionné.");
                 }
@@ -82,27 +552,38 @@ public class TransactionService {
                 throw new IllegalStateException("Aucun seuil de rachat applicable trouvé.");
             }
         }
+        return new CalculPoints(pointsGagnes, pointsUtilises, montantReduction);
+    }
 
-        // Mettre à jour le solde du client (déduction des points utilisés ET ajout des points gagnés)
-        // La méthode mettreAJourSoldePoints de ClientService doit être appelée ici.
-        // Puisque clientService.mettreAJourSoldePoints retourne un Client, nous le mettons à jour.
-        // Si des points ont été utilisés, la déduction se fait avant l'ajout des points gagnés.
-        double pointsNets = pointsGagnes - pointsUtilises;
-        client = clientService.mettreAJourSoldePoints(client, pointsNets);
-
-
-        // 3. Enregistrement de la transaction
+    private TransactionCarburant construireTransaction(Client client, StationService station, Utilisateur utilisateur,
+                                                       LocalDateTime dateTransaction, double litresAchetes,
+                                                       double montantTotal, CalculPoints calcul) {
         TransactionCarburant transaction = new TransactionCarburant();
         transaction.setClient(client);
         transaction.setStationService(station);
         transaction.setUtilisateur(utilisateur);
-        transaction.setDateTransaction(LocalDateTime.now());
+        transaction.setDateTransaction(dateTransaction);
         transaction.setLitresAchetes(litresAchetes);
-        transaction.setMontantTotal(montantTotal - montantReduction); // Montant après réduction
-        transaction.setPointsGagnes(pointsGagnes);
-        transaction.setPointsUtilises(pointsUtilises);
+        transaction.setMontantTotal(montantTotal - calcul.montantReduction()); // Montant après réduction
+        transaction.setPointsGagnes(calcul.pointsGagnes());
+        transaction.setPointsUtilises(calcul.pointsUtilises());
+        return transaction;
+    }
+
+    private static <T> Map<Long, T> indexerParId(List<T> entites, Function<T, Long> id) {
+        Map<Long, T> index = new HashMap<>(entites.size() * 2);
+        for (T entite : entites) {
+            index.put(id.apply(entite), entite);
+        }
+        return index;
+    }
 
-        return transactionCarburantRepository.save(transaction);
+    private static <T> T trouver(Map<Long, T> index, Long id, String messageSiAbsent) {
+        T entite = id != null ? index.get(id) : null;
+        if (entite == null) {
+            throw new IllegalArgumentException(messageSiAbsent);
+        }
+        return entite;
     }
 
     // MODIFIÉ : Retourne une liste de DTOs et assure que les relations sont chargées
@@ -137,43 +618,172 @@ public class TransactionService {
 
     // NOUVELLES MÉTHODES : Rapports de transactions
 
-    @Transactional(readOnly = true)
+    // Les rapports des périodes closes sont servis depuis RapportsPeriodesClosesCache ; stationId null : toutes les stations.
+    // Pas de transaction englobante : un rapport trouvé en cache ne prend aucune connexion à la base
+
     public List<TransactionCarburantDto> getDailyTransactionsReport(LocalDate date) {
-        LocalDateTime startOfDay = date.atStartOfDay();
-        LocalDateTime endOfDay = date.atTime(LocalTime.MAX);
-        return transactionCarburantRepository.findByDateTransactionBetween(startOfDay, endOfDay).stream()
-                .map(TransactionCarburantDto::new)
-                .collect(Collectors.toList());
+        return getDailyTransactionsReport(date, null);
+    }
+
+    public List<TransactionCarburantDto> getDailyTransactionsReport(LocalDate date, Long stationId) {
+        return rapportPeriode(date, date, stationId);
     }
 
-    @Transactional(readOnly = true)
     public List<TransactionCarburantDto> getWeeklyTransactionsReport(LocalDate startDate, LocalDate endDate) {
-        LocalDateTime startOfWeek = startDate.atStartOfDay();
-        LocalDateTime endOfWeek = endDate.atTime(LocalTime.MAX);
-        return transactionCarburantRepository.findByDateTransactionBetween(startOfWeek, endOfWeek).stream()
-                .map(TransactionCarburantDto::new)
-                .collect(Collectors.toList());
+        return getWeeklyTransactionsReport(startDate, endDate, null);
+    }
+
+    public List<TransactionCarburantDto> getWeeklyTransactionsReport(LocalDate startDate, LocalDate endDate, Long stationId) {
+        return rapportPeriode(startDate, endDate, stationId);
     }
 
-    @Transactional(readOnly = true)
     public List<TransactionCarburantDto> getMonthlyTransactionsReport(int year, int month) {
+        return getMonthlyTransactionsReport(year, month, null);
+    }
+
+    public List<TransactionCarburantDto> getMonthlyTransactionsReport(int year, int month, Long stationId) {
         LocalDate startOfMonth = LocalDate.of(year, month, 1);
         LocalDate endOfMonth = startOfMonth.plusMonths(1).minusDays(1); // Dernier jour du mois
-        LocalDateTime start = startOfMonth.atStartOfDay();
-        LocalDateTime end = endOfMonth.atTime(LocalTime.MAX);
-        return transactionCarburantRepository.findByDateTransactionBetween(start, end).stream()
-                .map(TransactionCarburantDto::new)
-                .collect(Collectors.toList());
+        return rapportPeriode(startOfMonth, endOfMonth, stationId);
     }
 
-    @Transactional(readOnly = true)
     public List<TransactionCarburantDto> getAnnualTransactionsReport(int year) {
-        LocalDate startOfYear = LocalDate.of(year, 1, 1);
-        LocalDate endOfYear = LocalDate.of(year, 12, 31);
-        LocalDateTime start = startOfYear.atStartOfDay();
-        LocalDateTime end = endOfYear.atTime(LocalTime.MAX);
-        return transactionCarburantRepository.findByDateTransactionBetween(start, end).stream()
+        return getAnnualTransactionsReport(year, null);
+    }
+
+    public List<TransactionCarburantDto> getAnnualTransactionsReport(int year, Long stationId) {
+        return rapportPeriode(LocalDate.of(year, 1, 1), LocalDate.of(year, 12, 31), stationId);
+    }
+
+    /**
+     * Transactions d'une période, éventuellement limitées à une station.
+     * Une période close est lue une seule fois puis servie depuis le cache, tant qu'aucune vente antidatée
+     * n'y est enregistrée ; la période en cours est toujours relue. Les longues périodes sont lues par morceaux
+     * en parallèle (voir {@link RapportsParalleles}).
+     *
+     * @return Une liste non modifiable ; pour une période close, ses DTO sont partagés avec les autres appelants
+     *         et ne doivent pas être modifiés.
+     */
+    private List<TransactionCarburantDto> rapportPeriode(LocalDate debut, LocalDate fin, Long stationId) {
+        if (!RapportsPeriodesClosesCache.estClose(fin)) {
+            return rapportsParalleles.charger(debut, fin, stationId);
+        }
+        RapportsPeriodesClosesCache.CleRapport cle = new RapportsPeriodesClosesCache.CleRapport(debut, fin, stationId);
+        Optional<List<TransactionCarburantDto>> enCache = rapportsCache.get(cle);
+        if (enCache.isPresent()) {
+            return enCache.get();
+        }
+        long generation = rapportsCache.generation();
+        List<TransactionCarburantDto> rapport = rapportsParalleles.charger(debut, fin, stationId);
+        rapportsCache.put(cle, rapport, generation);
+        return rapport;
+    }
+
+    /**
+     * Compteurs du cache des rapports des périodes closes.
+     */
+    public Map<String, Long> getStatistiquesCacheRapports() {
+        return rapportsCache.statistiques();
+    }
+
+    /**
+     * Rapport agrégé : totaux, moyennes et nombre de clients distincts par groupe, calculés par la base.
+     * Seules quelques lignes sont renvoyées, quel que soit le nombre de transactions de la période.
+     *
+     * @param debut Premier jour inclus.
+     * @param fin Dernier jour inclus.
+     * @param groupement Le regroupement (jour, semaine, mois, station, employé ou client).
+     * @param limite Nombre maximum de groupes pour les regroupements par station, employé ou client (les plus gros
+     *               chiffres d'affaires d'abord) ; ignoré pour les regroupements par période.
+     * @throws IllegalArgumentException si la période ou la limite est invalide.
+     */
+    @Transactional(readOnly = true)
+    public List<AgregatTransactions> getRapportAgrege(LocalDate debut, LocalDate fin, GroupementRapport groupement, int limite) {
+        if (fin.isBefore(debut)) {
+            throw new IllegalArgumentException("La date de fin précède la date de début.");
+        }
+        if (limite <= 0 || limite > limiteMaxAgregat) {
+            throw new IllegalArgumentException("La limite doit être comprise entre 1 et " + limiteMaxAgregat + ".");
+        }
+        LocalDateTime start = debut.atStartOfDay();
+        LocalDateTime end = fin.atTime(FIN_JOURNEE);
+        return switch (groupement) {
+            case JOUR -> transactionCarburantRepository.agregerParPeriode("day", start, end);
+            case SEMAINE -> transactionCarburantRepository.agregerParPeriode("week", start, end);
+            case MOIS -> transactionCarburantRepository.agregerParPeriode("month", start, end);
+            case STATION -> transactionCarburantRepository.agregerParStation(start, end, limite);
+            case EMPLOYE -> transactionCarburantRepository.agregerParEmploye(start, end, limite);
+            case CLIENT -> transactionCarburantRepository.agregerParClient(start, end, limite);
+        };
+    }
+
+    // --- Listes paginées par curseur (keyset sur dateTransaction, id ; les plus récentes d'abord) ---
+
+    /**
+     * Une page de toutes les transactions.
+     *
+     * @param curseur Le curseur renvoyé avec la page précédente, ou null pour la première page.
+     * @param taille Nombre de transactions par page, ou null pour la taille par défaut.
+     * @throws IllegalArgumentException si le curseur ou la taille est invalide.
+     */
+    @Transactional(readOnly = true)
+    public PageTransactionsDto getTransactionsPage(String curseur, Integer taille) {
+        CurseurPagination position = CurseurPagination.decoder(curseur);
+        int n = verifierTaillePage(taille);
+        return page(transactionCarburantRepository.findPageApres(position.dateTransaction(), position.id(), Limit.of(n + 1)), n);
+    }
+
+    /**
+     * Une page de l'historique d'un client.
+     *
+     * @throws IllegalArgumentException si le client n'existe pas, ou si le curseur ou la taille est invalide.
+     */
+    @Transactional(readOnly = true)
+    public PageTransactionsDto getTransactionsPageByClientId(Long clientId, String curseur, Integer taille) {
+        CurseurPagination position = CurseurPagination.decoder(curseur);
+        int n = verifierTaillePage(taille);
+        if (clientService.getClientById(clientId).isEmpty()) {
+            throw new IllegalArgumentException("Client non trouvé avec l'ID: " + clientId);
+        }
+        return page(transactionCarburantRepository.findPageParClientApres(clientId, position.dateTransaction(),
+                position.id(), Limit.of(n + 1)), n);
+    }
+
+    /**
+     * Une page des transactions d'une période (rapports journalier, hebdomadaire, mensuel et annuel).
+     *
+     * @param debut Premier jour inclus.
+     * @param fin Dernier jour inclus.
+     * @throws IllegalArgumentException si le curseur ou la taille est invalide.
+     */
+    @Transactional(readOnly = true)
+    public PageTransactionsDto getTransactionsReportPage(LocalDate debut, LocalDate fin, String curseur, Integer taille) {
+        CurseurPagination position = CurseurPagination.decoder(curseur);
+        int n = verifierTaillePage(taille);
+        return page(transactionCarburantRepository.findPageEntreApres(debut.atStartOfDay(), fin.atTime(FIN_JOURNEE),
+                position.dateTransaction(), position.id(), Limit.of(n + 1)), n);
+    }
+
+    private int verifierTaillePage(Integer taille) {
+        int n = taille != null ? taille : taillePageDefaut;
+        if (n <= 0 || n > taillePageMax) {
+            throw new IllegalArgumentException("La taille de page doit être comprise entre 1 et " + taillePageMax + ".");
+        }
+        return n;
+    }
+
+    // Une ligne de plus que la taille demandée est lue : sa présence indique qu'il existe une page suivante
+    private static PageTransactionsDto page(List<TransactionCarburant> lignes, int taille) {
+        boolean suivante = lignes.size() > taille;
+        List<TransactionCarburant> contenu = suivante ? lignes.subList(0, taille) : lignes;
+        List<TransactionCarburantDto> transactions = contenu.stream()
                 .map(TransactionCarburantDto::new)
                 .collect(Collectors.toList());
+        String curseurSuivant = null;
+        if (suivante) {
+            TransactionCarburant derniere = contenu.get(contenu.size() - 1);
+            curseurSuivant = new CurseurPagination(derniere.getDateTransaction(), derniere.getId()).encoder();
+        }
+        return new PageTransactionsDto(transactions, curseurSuivant);
     }
-}
\ No newline at end of file
+}
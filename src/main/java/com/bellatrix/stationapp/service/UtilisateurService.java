@@ -4,27 +4,33 @@ package com.bellatrix.stationapp.service;
 import com.bellatrix.stationapp.model.Role;
 import com.bellatrix.stationapp.model.Utilisateur;
 import com.bellatrix.stationapp.repository.UtilisateurRepository;
+import com.bellatrix.stationapp.security.VersionsJetons;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Service
-public class UtilisateurService implements UserDetailsService {
+public class UtilisateurService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UtilisateurRepository utilisateurRepository;
     private final PasswordEncoder passwordEncoder; // Correctement injecté
+    private final VersionsJetons versionsJetons;
 
     @Autowired
-    public UtilisateurService(UtilisateurRepository utilisateurRepository, PasswordEncoder passwordEncoder) {
+    public UtilisateurService(UtilisateurRepository utilisateurRepository, PasswordEncoder passwordEncoder,
+                              VersionsJetons versionsJetons) {
         this.utilisateurRepository = utilisateurRepository;
         this.passwordEncoder = passwordEncoder;
+        this.versionsJetons = versionsJetons;
     }
 
     // --- Méthodes pour Spring Security (loadUserByUsername est essentielle) ---
@@ -32,18 +38,19 @@ public class UtilisateurService implements UserDetailsService {
     @Override
     @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        // --- LOG DE DEBUG ICI ---
-        System.out.println("--- DEBUG AUTH (loadUserByUsername) ---");
-        System.out.println("Attempting to load user for authentication: '" + username + "'");
-        // --- FIN LOG DE DEBUG ---
-
         return utilisateurRepository.findByUsername(username)
-                .orElseThrow(() -> {
-                    // --- LOG DE DEBUG ICI EN CAS D'ERREUR ---
-                    System.err.println("ERROR: User not found during authentication attempt: '" + username + "'");
-                    // --- FIN LOG DE DEBUG ---
-                    return new UsernameNotFoundException("Utilisateur non trouvé avec le nom d'utilisateur: " + username);
-                });
+                .orElseThrow(() -> new UsernameNotFoundException("Utilisateur non trouvé avec le nom d'utilisateur: " + username));
+    }
+
+    // Appelée par DaoAuthenticationProvider après une connexion réussie quand le hash a un coût BCrypt inférieur
+    // à application.security.bcrypt.force : le mot de passe ne change pas, les tokens existants restent valides
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        Utilisateur utilisateur = utilisateurRepository.findByUsername(user.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("Utilisateur non trouvé avec le nom d'utilisateur: " + user.getUsername()));
+        utilisateur.setPasswordHash(newPassword); // Déjà haché par le PasswordEncoder
+        return utilisateurRepository.save(utilisateur);
     }
 
     @Transactional
@@ -52,16 +59,7 @@ public class UtilisateurService implements UserDetailsService {
             throw new IllegalArgumentException("Nom d'utilisateur déjà pris.");
         }
 
-        // --- LOGS DE DEBUG ICI ---
-        System.out.println("--- DEBUG HASHING (registerNewUtilisateur) ---");
-        System.out.println("Username to register: '" + username + "'");
-        // !!! ATTENTION: NE JAMAIS LOGGUER UN MOT DE PASSE EN CLAIR EN PRODUCTION !!!
-        // C'est uniquement pour le débogage.
-        System.out.println("Password (plain) received for hashing: '" + password + "'");
         String hashedPassword = passwordEncoder.encode(password);
-        System.out.println("Hashed password (generated): '" + hashedPassword + "'");
-        System.out.println("----------------------------------------------");
-        // --- FIN LOGS DE DEBUG ---
 
         Utilisateur nouvelUtilisateur = new Utilisateur();
         nouvelUtilisateur.setUsername(username);
@@ -85,6 +83,11 @@ public class UtilisateurService implements UserDetailsService {
         return utilisateurRepository.findById(id);
     }
 
+    @Transactional(readOnly = true)
+    public List<Utilisateur> getUtilisateursByIds(Collection<Long> ids) {
+        return utilisateurRepository.findAllById(ids);
+    }
+
     @Transactional(readOnly = true)
     public Optional<Utilisateur> getUtilisateurByUsername(String username) {
         return utilisateurRepository.findByUsername(username);
@@ -103,7 +106,9 @@ public class UtilisateurService implements UserDetailsService {
         Utilisateur existingUser = utilisateurRepository.findById(utilisateur.getId())
                 .orElseThrow(() -> new IllegalArgumentException("Utilisateur non trouvé."));
         utilisateur.setPasswordHash(existingUser.getPasswordHash());
-        return utilisateurRepository.save(utilisateur);
+        // Le rôle, le statut ou la station peuvent changer : les tokens existants sont révoqués
+        utilisateur.setVersionJeton(existingUser.getVersionJeton() + 1);
+        return enregistrerEtRevoquerJetons(utilisateur);
     }
 
     @Transactional
@@ -112,6 +117,7 @@ public class UtilisateurService implements UserDetailsService {
             throw new IllegalArgumentException("Utilisateur avec l'ID " + id + " non trouvé.");
         }
         utilisateurRepository.deleteById(id);
+        ApresCommit.executer(() -> versionsJetons.mettreAJour(id, null));
     }
 
     @Transactional
@@ -119,7 +125,8 @@ public class UtilisateurService implements UserDetailsService {
         Utilisateur utilisateur = utilisateurRepository.findById(id)
                 .orElseThrow(() -> new UsernameNotFoundException("Utilisateur non trouvé avec l'ID: " + id));
         utilisateur.setRole(newRole);
-        return utilisateurRepository.save(utilisateur);
+        utilisateur.setVersionJeton(utilisateur.getVersionJeton() + 1);
+        return enregistrerEtRevoquerJetons(utilisateur);
     }
 
     @Transactional
@@ -127,7 +134,8 @@ public class UtilisateurService implements UserDetailsService {
         Utilisateur utilisateur = utilisateurRepository.findById(id)
                 .orElseThrow(() -> new UsernameNotFoundException("Utilisateur non trouvé avec l'ID: " + id));
         utilisateur.setActive(active);
-        return utilisateurRepository.save(utilisateur);
+        utilisateur.setVersionJeton(utilisateur.getVersionJeton() + 1);
+        return enregistrerEtRevoquerJetons(utilisateur);
     }
 
     @Transactional
@@ -135,6 +143,17 @@ public class UtilisateurService implements UserDetailsService {
         Utilisateur utilisateur = utilisateurRepository.findById(id)
                 .orElseThrow(() -> new UsernameNotFoundException("Utilisateur non trouvé avec l'ID: " + id));
         utilisateur.setPasswordHash(passwordEncoder.encode(newPassword));
-        return utilisateurRepository.save(utilisateur);
+        utilisateur.setVersionJeton(utilisateur.getVersionJeton() + 1);
+        return enregistrerEtRevoquerJetons(utilisateur);
+    }
+
+    // Les tokens émis avec l'ancienne version sont refusés dès le commit (sur cette instance ; ailleurs à l'expiration
+    // du cache des versions)
+    private Utilisateur enregistrerEtRevoquerJetons(Utilisateur utilisateur) {
+        Utilisateur enregistre = utilisateurRepository.save(utilisateur);
+        Long id = enregistre.getId();
+        Long version = Boolean.TRUE.equals(enregistre.getActive()) ? enregistre.getVersionJeton() : null;
+        ApresCommit.executer(() -> versionsJetons.mettreAJour(id, version));
+        return enregistre;
     }
 }
\ No newline at end of file
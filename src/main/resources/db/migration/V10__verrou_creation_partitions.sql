@@ -0,0 +1,31 @@
+-- Création des partitions mensuelles (V6) : la partition par défaut est verrouillée avant d'en déplacer les ventes
+-- du mois. Sans ce verrou, une vente du mois insérée entre le déplacement et l'ATTACH arrivait dans la partition
+-- par défaut, et l'ATTACH échouait (contrainte de la partition par défaut violée).
+-- Le verrou n'est pris que pour un mois à créer et dure jusqu'à la fin de la transaction : les ventes qui visent
+-- la partition par défaut attendent la création, celles des partitions existantes ne sont pas bloquées.
+-- V6 étant déjà appliquée, la fonction est redéfinie ici.
+CREATE OR REPLACE FUNCTION creer_partitions_transaction_carburant(debut DATE, fin DATE) RETURNS INTEGER
+LANGUAGE plpgsql AS $$
+DECLARE
+    mois    DATE := date_trunc('month', debut)::date;
+    suivant DATE;
+    nom     TEXT;
+    creees  INTEGER := 0;
+BEGIN
+    WHILE mois <= fin LOOP
+        suivant := (mois + INTERVAL '1 month')::date;
+        nom := 'transaction_carburant_' || to_char(mois, 'YYYY_MM');
+        IF to_regclass(nom) IS NULL THEN
+            LOCK TABLE transaction_carburant_defaut IN ACCESS EXCLUSIVE MODE;
+            EXECUTE format('CREATE TABLE %I (LIKE transaction_carburant INCLUDING DEFAULTS)', nom);
+            EXECUTE format('WITH deplacees AS (DELETE FROM transaction_carburant_defaut '
+                           'WHERE date_transaction >= %L AND date_transaction < %L RETURNING *) '
+                           'INSERT INTO %I SELECT * FROM deplacees', mois, suivant, nom);
+            EXECUTE format('ALTER TABLE transaction_carburant ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                           nom, mois, suivant);
+            creees := creees + 1;
+        END IF;
+        mois := suivant;
+    END LOOP;
+    RETURN creees;
+END $$;
@@ -0,0 +1,36 @@
+-- Réservation des clés d'idempotence au moment de la vente, dans la transaction qui met à jour le solde.
+-- Avec le journal des transactions, la ligne de la vente n'est écrite que plus tard : sans réservation, deux envois
+-- concurrents de la même clé (ou le renvoi d'une clé pas encore écrite et sortie du cache) créditaient le solde
+-- deux fois. Une clé réservée a une ligne dans transaction_cle_idempotence sans transaction_id ; l'insertion de la
+-- vente (trigger de V6, redéfini ici) complète cette ligne au lieu d'échouer.
+ALTER TABLE transaction_cle_idempotence ALTER COLUMN transaction_id DROP NOT NULL;
+
+-- Réserve des clés (une seule requête pour un lot) ; une clé déjà réservée ou utilisée fait échouer l'appel
+-- avec une violation de la clé primaire. Renvoie le nombre de clés réservées.
+CREATE OR REPLACE FUNCTION reserver_cles_idempotence(cles VARCHAR[], dates TIMESTAMP[]) RETURNS INTEGER
+LANGUAGE sql AS $$
+    WITH reservees AS (
+        INSERT INTO transaction_cle_idempotence (cle_idempotence, date_transaction)
+        SELECT cle, date_transaction FROM unnest(cles, dates) AS r (cle, date_transaction)
+        RETURNING 1
+    )
+    SELECT CAST(COUNT(*) AS INTEGER) FROM reservees
+$$;
+
+CREATE OR REPLACE FUNCTION reserver_cle_idempotence_transaction() RETURNS TRIGGER
+LANGUAGE plpgsql AS $$
+BEGIN
+    IF NEW.cle_idempotence IS NOT NULL THEN
+        INSERT INTO transaction_cle_idempotence AS r (cle_idempotence, transaction_id, date_transaction)
+        VALUES (NEW.cle_idempotence, NEW.id, NEW.date_transaction)
+        ON CONFLICT (cle_idempotence) DO UPDATE
+            SET transaction_id = EXCLUDED.transaction_id, date_transaction = EXCLUDED.date_transaction
+            WHERE r.transaction_id IS NULL;
+        -- Clé déjà portée par une autre vente : même erreur qu'une insertion en double
+        IF NOT FOUND THEN
+            RAISE EXCEPTION 'Clé d''idempotence déjà utilisée : %', NEW.cle_idempotence
+                USING ERRCODE = 'unique_violation', CONSTRAINT = 'transaction_cle_idempotence_pkey';
+        END IF;
+    END IF;
+    RETURN NULL;
+END $$;
@@ -0,0 +1,50 @@
+-- Les clés d'idempotence réservées (V6, V11) suivent la vie des ventes : une vente supprimée libère sa clé, et le
+-- détachement des partitions d'un mois libère les clés des ventes de ce mois. Sans cela, un terminal qui renvoyait
+-- une ancienne clé après la purge recevait un conflit (409) au lieu de la vente d'origine, et la table grossissait
+-- sans limite.
+
+-- Purge par mois lors du détachement
+CREATE INDEX IF NOT EXISTS idx_transaction_cle_idempotence_date
+    ON transaction_cle_idempotence (date_transaction);
+
+CREATE OR REPLACE FUNCTION liberer_cle_idempotence_transaction() RETURNS TRIGGER
+LANGUAGE plpgsql AS $$
+BEGIN
+    IF OLD.cle_idempotence IS NOT NULL THEN
+        DELETE FROM transaction_cle_idempotence
+        WHERE cle_idempotence = OLD.cle_idempotence AND transaction_id = OLD.id;
+    END IF;
+    RETURN NULL;
+END $$;
+
+CREATE TRIGGER trg_transaction_carburant_liberer_cle_idempotence
+    AFTER DELETE ON transaction_carburant
+    FOR EACH ROW EXECUTE FUNCTION liberer_cle_idempotence_transaction();
+
+-- V6 redéfinie : un DETACH PARTITION ne déclenche pas les triggers de suppression, les clés du mois détaché
+-- (y compris celles réservées par une vente jamais écrite) sont supprimées ici
+CREATE OR REPLACE FUNCTION detacher_partitions_transaction_carburant(avant DATE) RETURNS INTEGER
+LANGUAGE plpgsql AS $$
+DECLARE
+    partition TEXT;
+    mois      DATE;
+    detachees INTEGER := 0;
+BEGIN
+    FOR partition IN
+        SELECT c.relname
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'transaction_carburant'::regclass
+          AND c.relname ~ '^transaction_carburant_[0-9]{4}_[0-9]{2}$'
+        ORDER BY c.relname
+    LOOP
+        mois := to_date(substr(partition, 23), 'YYYY_MM');
+        IF mois + INTERVAL '1 month' <= avant THEN
+            EXECUTE format('ALTER TABLE transaction_carburant DETACH PARTITION %I', partition);
+            DELETE FROM transaction_cle_idempotence
+            WHERE date_transaction >= mois AND date_transaction < mois + INTERVAL '1 month';
+            detachees := detachees + 1;
+        END IF;
+    END LOOP;
+    RETURN detachees;
+END $$;
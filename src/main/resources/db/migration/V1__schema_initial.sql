@@ -0,0 +1,68 @@
+-- Schéma initial, tel que généré jusqu'ici par spring.jpa.hibernate.ddl-auto=update.
+-- Idempotent : sur une base existante (baseline Flyway en version 0), les tables déjà présentes sont conservées.
+
+CREATE TABLE IF NOT EXISTS client (
+    id               BIGINT       NOT NULL PRIMARY KEY,
+    numero_telephone VARCHAR(20)  NOT NULL UNIQUE,
+    nom              VARCHAR(100),
+    prenom           VARCHAR(100),
+    date_inscription TIMESTAMP(6) NOT NULL,
+    solde_points     FLOAT(53)    NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS station_service (
+    id      BIGINT       NOT NULL PRIMARY KEY,
+    nom     VARCHAR(100) NOT NULL,
+    adresse VARCHAR(255),
+    ville   VARCHAR(100)
+);
+
+CREATE TABLE IF NOT EXISTS utilisateur (
+    id                 BIGINT       NOT NULL PRIMARY KEY,
+    username           VARCHAR(50)  NOT NULL UNIQUE,
+    password_hash      VARCHAR(255) NOT NULL,
+    role               VARCHAR(50)  NOT NULL,
+    station_service_id BIGINT REFERENCES station_service (id),
+    active             BOOLEAN      NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS carte_fidelite (
+    id            BIGINT       NOT NULL PRIMARY KEY,
+    numero_carte  VARCHAR(6)   NOT NULL UNIQUE,
+    client_id     BIGINT       NOT NULL REFERENCES client (id),
+    date_emission TIMESTAMP(6) NOT NULL,
+    active        BOOLEAN      NOT NULL,
+    solde_points  FLOAT(53)    NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS regle_point (
+    id               BIGINT       NOT NULL PRIMARY KEY,
+    points_par_litre FLOAT(53)    NOT NULL,
+    date_debut       TIMESTAMP(6) NOT NULL,
+    date_fin         TIMESTAMP(6),
+    active           BOOLEAN      NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS seuil_rachat (
+    id               BIGINT    NOT NULL PRIMARY KEY,
+    points_requis    FLOAT(53) NOT NULL,
+    valeur_monetaire FLOAT(53) NOT NULL,
+    description      VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS transaction_carburant (
+    id                 BIGINT       NOT NULL PRIMARY KEY,
+    client_id          BIGINT       NOT NULL REFERENCES client (id),
+    station_service_id BIGINT       NOT NULL REFERENCES station_service (id),
+    utilisateur_id     BIGINT       NOT NULL REFERENCES utilisateur (id),
+    date_transaction   TIMESTAMP(6) NOT NULL,
+    litres_achetes     FLOAT(53)    NOT NULL,
+    montant_total      FLOAT(53)    NOT NULL,
+    points_gagnes      FLOAT(53)    NOT NULL,
+    points_utilises    FLOAT(53)    NOT NULL,
+    cle_idempotence    VARCHAR(64)
+);
+
+-- Bases créées avant l'ajout des clés d'idempotence
+ALTER TABLE transaction_carburant ADD COLUMN IF NOT EXISTS cle_idempotence VARCHAR(64);
+CREATE UNIQUE INDEX IF NOT EXISTS uk_transaction_carburant_cle_idempotence ON transaction_carburant (cle_idempotence);
@@ -0,0 +1,22 @@
+-- Passage des identifiants IDENTITY aux séquences allouées par blocs de 50 (optimiseur "pooled" d'Hibernate),
+-- ce qui permet à Hibernate de regrouper les INSERT en batch JDBC.
+--
+-- Sûr sur une base existante : chaque séquence est positionnée après le plus grand id déjà présent.
+-- Avec l'optimiseur pooled, la valeur renvoyée par nextval est la borne haute du bloc ; on la place donc
+-- à MAX(id) + 50 pour que le premier id alloué soit MAX(id) + 1.
+-- Les colonnes IDENTITY existantes sont laissées telles quelles : elles acceptent les id fournis par Hibernate.
+
+DO $$
+DECLARE
+    nom_table TEXT;
+    max_id    BIGINT;
+BEGIN
+    FOREACH nom_table IN ARRAY ARRAY['client', 'station_service', 'utilisateur', 'carte_fidelite',
+                                     'regle_point', 'seuil_rachat', 'transaction_carburant'] LOOP
+        EXECUTE format('CREATE SEQUENCE IF NOT EXISTS %I START WITH 1 INCREMENT BY 50', nom_table || '_seq');
+        EXECUTE format('SELECT COALESCE(MAX(id), 0) FROM %I', nom_table) INTO max_id;
+        IF max_id > 0 THEN
+            PERFORM setval(nom_table || '_seq', max_id + 50, false);
+        END IF;
+    END LOOP;
+END $$;
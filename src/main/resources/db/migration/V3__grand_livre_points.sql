@@ -0,0 +1,47 @@
+-- Grand livre des points (mouvement_points) et instantanés de solde (instantane_solde_points).
+--
+-- Reprise de l'existant : chaque transaction donne un mouvement GAIN et, le cas échéant, un mouvement UTILISATION.
+-- Un mouvement AJUSTEMENT par client rattrape l'écart avec client.solde_points (points initiaux, corrections
+-- passées...), de sorte que la somme du grand livre soit égale au solde courant.
+
+CREATE SEQUENCE IF NOT EXISTS mouvement_points_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS instantane_solde_points_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS mouvement_points (
+    id             BIGINT       NOT NULL PRIMARY KEY,
+    client_id      BIGINT       NOT NULL REFERENCES client (id),
+    type           VARCHAR(20)  NOT NULL,
+    points         FLOAT(53)    NOT NULL,
+    date_mouvement TIMESTAMP(6) NOT NULL,
+    transaction_id BIGINT REFERENCES transaction_carburant (id),
+    motif          VARCHAR(255)
+);
+
+CREATE INDEX IF NOT EXISTS idx_mouvement_points_client_date ON mouvement_points (client_id, date_mouvement);
+
+CREATE TABLE IF NOT EXISTS instantane_solde_points (
+    id                BIGINT       NOT NULL PRIMARY KEY,
+    client_id         BIGINT       NOT NULL REFERENCES client (id),
+    date_instantane   TIMESTAMP(6) NOT NULL,
+    solde             FLOAT(53)    NOT NULL,
+    nombre_mouvements BIGINT       NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_instantane_solde_points_client_date ON instantane_solde_points (client_id, date_instantane);
+
+INSERT INTO mouvement_points (id, client_id, type, points, date_mouvement, transaction_id)
+SELECT nextval('mouvement_points_seq'), t.client_id, 'GAIN', t.points_gagnes, t.date_transaction, t.id
+FROM transaction_carburant t
+WHERE t.points_gagnes <> 0;
+
+INSERT INTO mouvement_points (id, client_id, type, points, date_mouvement, transaction_id)
+SELECT nextval('mouvement_points_seq'), t.client_id, 'UTILISATION', -t.points_utilises, t.date_transaction, t.id
+FROM transaction_carburant t
+WHERE t.points_utilises <> 0;
+
+INSERT INTO mouvement_points (id, client_id, type, points, date_mouvement, motif)
+SELECT nextval('mouvement_points_seq'), c.id, 'AJUSTEMENT', c.solde_points - COALESCE(m.total, 0), now(),
+       'Reprise du solde lors de la création du grand livre'
+FROM client c
+LEFT JOIN (SELECT client_id, SUM(points) AS total FROM mouvement_points GROUP BY client_id) m ON m.client_id = c.id
+WHERE c.solde_points - COALESCE(m.total, 0) <> 0;
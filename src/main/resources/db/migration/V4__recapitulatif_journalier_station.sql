@@ -0,0 +1,24 @@
+-- Récapitulatifs journaliers par station (daily_station_rollup), tenus à jour à chaque vente.
+-- Reprise de l'existant : les totaux sont calculés une fois à partir de toutes les transactions déjà enregistrées.
+
+CREATE TABLE IF NOT EXISTS daily_station_rollup (
+    station_service_id  BIGINT    NOT NULL REFERENCES station_service (id),
+    jour                DATE      NOT NULL,
+    litres              FLOAT(53) NOT NULL,
+    chiffre_affaires    FLOAT(53) NOT NULL,
+    points_gagnes       FLOAT(53) NOT NULL,
+    points_utilises     FLOAT(53) NOT NULL,
+    nombre_transactions BIGINT    NOT NULL,
+    PRIMARY KEY (station_service_id, jour)
+);
+
+-- Les rapports de synthèse filtrent sur la période pour toutes les stations
+CREATE INDEX IF NOT EXISTS idx_daily_station_rollup_jour ON daily_station_rollup (jour);
+
+INSERT INTO daily_station_rollup (station_service_id, jour, litres, chiffre_affaires, points_gagnes,
+                                  points_utilises, nombre_transactions)
+SELECT station_service_id, CAST(date_transaction AS DATE), SUM(litres_achetes), SUM(montant_total),
+       SUM(points_gagnes), SUM(points_utilises), COUNT(*)
+FROM transaction_carburant
+GROUP BY station_service_id, CAST(date_transaction AS DATE)
+ON CONFLICT (station_service_id, jour) DO NOTHING;
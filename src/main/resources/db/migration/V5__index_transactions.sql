@@ -0,0 +1,24 @@
+-- Index alignés sur les requêtes des repositories (voir @IndexUtilise sur chaque méthode).
+
+-- Rapports par période, exports en flux, agrégats et pagination par curseur : filtre et tri sur (date_transaction, id)
+CREATE INDEX IF NOT EXISTS idx_transaction_carburant_date_id
+    ON transaction_carburant (date_transaction, id);
+
+-- Historique d'un client (liste complète et pagination par curseur)
+CREATE INDEX IF NOT EXISTS idx_transaction_carburant_client_date_id
+    ON transaction_carburant (client_id, date_transaction, id);
+
+-- Agrégats et clés étrangères par station et par employé
+CREATE INDEX IF NOT EXISTS idx_transaction_carburant_station_date
+    ON transaction_carburant (station_service_id, date_transaction);
+
+CREATE INDEX IF NOT EXISTS idx_transaction_carburant_utilisateur_date
+    ON transaction_carburant (utilisateur_id, date_transaction);
+
+-- Carte d'un client (CarteFideliteRepository.findByClient)
+CREATE INDEX IF NOT EXISTS idx_carte_fidelite_client
+    ON carte_fidelite (client_id);
+
+-- Clé étrangère du grand livre vers les transactions
+CREATE INDEX IF NOT EXISTS idx_mouvement_points_transaction
+    ON mouvement_points (transaction_id);
@@ -0,0 +1,142 @@
+-- Partitionnement mensuel de transaction_carburant sur date_transaction (partitionnement natif Postgres).
+--
+-- Les rapports par période ne lisent plus que les partitions des mois concernés, et la rétention se fait en
+-- détachant une partition entière au lieu de supprimer des lignes (pas de VACUUM sur la table complète).
+--
+-- Contraintes du partitionnement :
+-- - la clé primaire doit contenir la clé de partition : elle devient (id, date_transaction) ;
+-- - une contrainte d'unicité aussi : l'unicité des clés d'idempotence est donc tenue par la table
+--   transaction_cle_idempotence, alimentée par un trigger à chaque insertion ;
+-- - une clé étrangère ne peut pas viser transaction_carburant (id) seul : celle de mouvement_points est supprimée.
+--
+-- Reprise de l'existant : les lignes sont copiées dans la nouvelle table, puis l'ancienne est supprimée.
+-- Opération ponctuelle, à passer hors des heures d'ouverture sur une base volumineuse.
+
+ALTER TABLE transaction_carburant RENAME TO transaction_carburant_avant_partitionnement;
+
+CREATE TABLE transaction_carburant (
+    id                 BIGINT       NOT NULL,
+    client_id          BIGINT       NOT NULL,
+    station_service_id BIGINT       NOT NULL,
+    utilisateur_id     BIGINT       NOT NULL,
+    date_transaction   TIMESTAMP(6) NOT NULL,
+    litres_achetes     FLOAT(53)    NOT NULL,
+    montant_total      FLOAT(53)    NOT NULL,
+    points_gagnes      FLOAT(53)    NOT NULL,
+    points_utilises    FLOAT(53)    NOT NULL,
+    cle_idempotence    VARCHAR(64)
+) PARTITION BY RANGE (date_transaction);
+
+-- Reçoit les ventes hors des partitions mensuelles existantes ; ses lignes sont déplacées à la création du mois
+CREATE TABLE transaction_carburant_defaut PARTITION OF transaction_carburant DEFAULT;
+
+-- Crée les partitions mensuelles (transaction_carburant_AAAA_MM) du mois de debut au mois de fin inclus.
+-- Les ventes du mois déjà arrivées dans la partition par défaut sont déplacées dans la nouvelle partition.
+-- Les partitions existantes, ou détachées mais conservées, sont laissées telles quelles.
+CREATE OR REPLACE FUNCTION creer_partitions_transaction_carburant(debut DATE, fin DATE) RETURNS INTEGER
+LANGUAGE plpgsql AS $$
+DECLARE
+    mois    DATE := date_trunc('month', debut)::date;
+    suivant DATE;
+    nom     TEXT;
+    creees  INTEGER := 0;
+BEGIN
+    WHILE mois <= fin LOOP
+        suivant := (mois + INTERVAL '1 month')::date;
+        nom := 'transaction_carburant_' || to_char(mois, 'YYYY_MM');
+        IF to_regclass(nom) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I (LIKE transaction_carburant INCLUDING DEFAULTS)', nom);
+            EXECUTE format('WITH deplacees AS (DELETE FROM transaction_carburant_defaut '
+                           'WHERE date_transaction >= %L AND date_transaction < %L RETURNING *) '
+                           'INSERT INTO %I SELECT * FROM deplacees', mois, suivant, nom);
+            EXECUTE format('ALTER TABLE transaction_carburant ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                           nom, mois, suivant);
+            creees := creees + 1;
+        END IF;
+        mois := suivant;
+    END LOOP;
+    RETURN creees;
+END $$;
+
+-- Détache les partitions mensuelles entièrement antérieures à la date donnée. Elles restent en base comme
+-- tables ordinaires (archivage, export, puis DROP TABLE) mais ne sont plus lues par l'application.
+CREATE OR REPLACE FUNCTION detacher_partitions_transaction_carburant(avant DATE) RETURNS INTEGER
+LANGUAGE plpgsql AS $$
+DECLARE
+    partition TEXT;
+    detachees INTEGER := 0;
+BEGIN
+    FOR partition IN
+        SELECT c.relname
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'transaction_carburant'::regclass
+          AND c.relname ~ '^transaction_carburant_[0-9]{4}_[0-9]{2}$'
+        ORDER BY c.relname
+    LOOP
+        IF to_date(substr(partition, 23), 'YYYY_MM') + INTERVAL '1 month' <= avant THEN
+            EXECUTE format('ALTER TABLE transaction_carburant DETACH PARTITION %I', partition);
+            detachees := detachees + 1;
+        END IF;
+    END LOOP;
+    RETURN detachees;
+END $$;
+
+-- Partitions de la première vente connue jusqu'à trois mois après aujourd'hui (la tâche planifiée prend le relais)
+SELECT creer_partitions_transaction_carburant(
+        COALESCE((SELECT MIN(date_transaction) FROM transaction_carburant_avant_partitionnement), now())::date,
+        (now() + INTERVAL '3 months')::date);
+
+INSERT INTO transaction_carburant (id, client_id, station_service_id, utilisateur_id, date_transaction,
+                                   litres_achetes, montant_total, points_gagnes, points_utilises, cle_idempotence)
+SELECT id, client_id, station_service_id, utilisateur_id, date_transaction,
+       litres_achetes, montant_total, points_gagnes, points_utilises, cle_idempotence
+FROM transaction_carburant_avant_partitionnement;
+
+-- Supprime aussi la clé étrangère mouvement_points.transaction_id
+DROP TABLE transaction_carburant_avant_partitionnement CASCADE;
+
+ALTER TABLE transaction_carburant ADD CONSTRAINT transaction_carburant_pkey PRIMARY KEY (id, date_transaction);
+ALTER TABLE transaction_carburant ADD FOREIGN KEY (client_id) REFERENCES client (id);
+ALTER TABLE transaction_carburant ADD FOREIGN KEY (station_service_id) REFERENCES station_service (id);
+ALTER TABLE transaction_carburant ADD FOREIGN KEY (utilisateur_id) REFERENCES utilisateur (id);
+
+-- Index de V5, recréés sur la table partitionnée (et donc sur chaque partition)
+CREATE INDEX IF NOT EXISTS idx_transaction_carburant_date_id
+    ON transaction_carburant (date_transaction, id);
+CREATE INDEX IF NOT EXISTS idx_transaction_carburant_client_date_id
+    ON transaction_carburant (client_id, date_transaction, id);
+CREATE INDEX IF NOT EXISTS idx_transaction_carburant_station_date
+    ON transaction_carburant (station_service_id, date_transaction);
+CREATE INDEX IF NOT EXISTS idx_transaction_carburant_utilisateur_date
+    ON transaction_carburant (utilisateur_id, date_transaction);
+-- Recherche d'une vente par sa clé (renvoi d'un terminal) ; l'unicité est tenue par transaction_cle_idempotence
+CREATE INDEX IF NOT EXISTS idx_transaction_carburant_cle_idempotence
+    ON transaction_carburant (cle_idempotence);
+
+-- Unicité globale des clés d'idempotence : un renvoi concurrent échoue sur la clé primaire de cette table,
+-- avec la même erreur de contrainte unique qu'avant le partitionnement
+CREATE TABLE IF NOT EXISTS transaction_cle_idempotence (
+    cle_idempotence  VARCHAR(64)  NOT NULL PRIMARY KEY,
+    transaction_id   BIGINT       NOT NULL,
+    date_transaction TIMESTAMP(6) NOT NULL
+);
+
+INSERT INTO transaction_cle_idempotence (cle_idempotence, transaction_id, date_transaction)
+SELECT cle_idempotence, id, date_transaction
+FROM transaction_carburant
+WHERE cle_idempotence IS NOT NULL;
+
+CREATE OR REPLACE FUNCTION reserver_cle_idempotence_transaction() RETURNS TRIGGER
+LANGUAGE plpgsql AS $$
+BEGIN
+    IF NEW.cle_idempotence IS NOT NULL THEN
+        INSERT INTO transaction_cle_idempotence (cle_idempotence, transaction_id, date_transaction)
+        VALUES (NEW.cle_idempotence, NEW.id, NEW.date_transaction);
+    END IF;
+    RETURN NULL;
+END $$;
+
+CREATE TRIGGER trg_transaction_carburant_cle_idempotence
+    AFTER INSERT ON transaction_carburant
+    FOR EACH ROW EXECUTE FUNCTION reserver_cle_idempotence_transaction();
@@ -0,0 +1,3 @@
+-- Version des tokens d'un utilisateur : incrémentée à chaque changement de rôle, de statut, de mot de passe...
+-- Un token porte la version en vigueur à sa création ; il est refusé dès que la version de l'utilisateur change.
+ALTER TABLE utilisateur ADD COLUMN IF NOT EXISTS version_jeton BIGINT NOT NULL DEFAULT 0;
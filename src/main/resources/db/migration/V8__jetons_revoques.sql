@@ -0,0 +1,8 @@
+-- Tokens JWT révoqués avant leur expiration (déconnexion), identifiés par leur claim jti.
+-- Relue au démarrage par chaque instance ; les lignes sont supprimées une fois le token expiré.
+CREATE TABLE IF NOT EXISTS jeton_revoque (
+    jti        UUID         NOT NULL PRIMARY KEY,
+    expiration TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_jeton_revoque_expiration ON jeton_revoque (expiration);
@@ -0,0 +1,8 @@
+-- Récapitulatifs journaliers répartis en tranches : chaque vente cumule ses totaux dans une des lignes
+-- (station, jour, tranche) au lieu de l'unique ligne (station, jour), que toutes les ventes d'une station
+-- verrouillaient jusqu'à leur commit. Les lectures additionnent les tranches.
+-- Les lignes existantes deviennent la tranche 0.
+ALTER TABLE daily_station_rollup ADD COLUMN IF NOT EXISTS tranche SMALLINT NOT NULL DEFAULT 0;
+
+ALTER TABLE daily_station_rollup DROP CONSTRAINT daily_station_rollup_pkey;
+ALTER TABLE daily_station_rollup ADD CONSTRAINT daily_station_rollup_pkey PRIMARY KEY (station_service_id, jour, tranche);
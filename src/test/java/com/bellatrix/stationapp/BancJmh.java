@@ -0,0 +1,65 @@
+package com.bellatrix.stationapp;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Lance les benchmarks JMH d'une classe depuis un test JUnit (tag "charge").
+ * Les résultats sont enregistrés dans target/jmh/ : NomDeLaClasse.txt (sortie de JMH) et NomDeLaClasse.json,
+ * à conserver pour comparer deux versions. Le profileur GC mesure les octets alloués par opération.
+ */
+public final class BancJmh {
+
+	private BancJmh() {
+	}
+
+	public static Collection<RunResult> lancer(Class<?> benchmark) throws RunnerException {
+		File dossier = new File("target/jmh");
+		dossier.mkdirs();
+		return new Runner(new OptionsBuilder()
+				.include("^" + Pattern.quote(benchmark.getName()) + "\\.")
+				.forks(1)
+				.warmupIterations(3)
+				.warmupTime(TimeValue.seconds(2))
+				.measurementIterations(5)
+				.measurementTime(TimeValue.seconds(2))
+				.addProfiler(GCProfiler.class)
+				.output(new File(dossier, benchmark.getSimpleName() + ".txt").getPath())
+				.result(new File(dossier, benchmark.getSimpleName() + ".json").getPath())
+				.resultFormat(ResultFormatType.JSON)
+				.build()).run();
+	}
+
+	/**
+	 * Résultat du benchmark dont le nom de méthode est donné.
+	 */
+	public static RunResult resultat(Collection<RunResult> resultats, String methode) {
+		return resultats.stream()
+				.filter(r -> r.getParams().getBenchmark().endsWith("." + methode))
+				.findFirst()
+				.orElseThrow(() -> new IllegalStateException("Benchmark " + methode + " absent des résultats."));
+	}
+
+	/**
+	 * Octets alloués par opération (gc.alloc.rate.norm du profileur GC).
+	 */
+	public static double octetsParOperation(RunResult resultat) {
+		for (Map.Entry<String, Result> secondaire : resultat.getSecondaryResults().entrySet()) {
+			if (secondaire.getKey().endsWith("gc.alloc.rate.norm")) {
+				return secondaire.getValue().getScore();
+			}
+		}
+		throw new IllegalStateException("Allocation par opération absente : le profileur GC n'a pas été lancé.");
+	}
+}
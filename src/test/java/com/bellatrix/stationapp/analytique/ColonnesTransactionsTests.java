@@ -0,0 +1,59 @@
+package com.bellatrix.stationapp.analytique;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Vérifie la numérotation dense et l'agrandissement des colonnes, et qu'une vue publiée reste figée pendant que
+ * le constructeur continue d'ajouter des lignes.
+ */
+class ColonnesTransactionsTests {
+
+	@Test
+	void numeroteStationsEtClientsAuDelaDeLaCapaciteInitiale() {
+		ColonnesTransactions.Constructeur constructeur = new ColonnesTransactions.Constructeur();
+		// 3000 lignes, 3 stations et 1500 clients : plusieurs agrandissements des tableaux
+		for (int i = 0; i < 3000; i++) {
+			constructeur.ajouter(3000 - i, 19_800 + i % 7, 10 + i % 3, 1_000 + i % 1500, i, 2.0 * i, 0.1 * i);
+		}
+		ColonnesTransactions colonnes = constructeur.publier();
+
+		assertEquals(3000, colonnes.taille);
+		assertEquals(3, colonnes.nombreStations);
+		assertEquals(1500, colonnes.nombreClients);
+		// Les ID ne sont pas ajoutés dans l'ordre : le plus grand est retenu
+		assertEquals(3000, colonnes.dernierId);
+		for (long stationId = 10; stationId < 13; stationId++) {
+			assertEquals(stationId, colonnes.idsStations[colonnes.numeroStation(stationId)]);
+		}
+		assertEquals(-1, colonnes.numeroStation(99));
+		assertEquals(-1, colonnes.numeroClient(99));
+		int ligne = 2345;
+		assertEquals(19_800 + ligne % 7, colonnes.jours[ligne]);
+		assertEquals(10 + ligne % 3, colonnes.idsStations[colonnes.stations[ligne]]);
+		assertEquals(1_000 + ligne % 1500, colonnes.idsClients[colonnes.clients[ligne]]);
+		assertEquals(2.0 * ligne, colonnes.montants[ligne]);
+	}
+
+	@Test
+	void vuePublieeNeVoitPasLesLignesAjouteesEnsuite() {
+		ColonnesTransactions.Constructeur constructeur = new ColonnesTransactions.Constructeur();
+		constructeur.ajouter(1, 19_800, 10, 100, 5, 7.5, 0.5);
+		ColonnesTransactions avant = constructeur.publier();
+
+		for (int i = 2; i <= 2000; i++) {
+			constructeur.ajouter(i, 19_801, 20, 100 + i, 1, 1, 0);
+		}
+		ColonnesTransactions apres = constructeur.publier();
+
+		assertEquals(1, avant.taille);
+		assertEquals(1, avant.nombreStations);
+		assertEquals(1, avant.nombreClients);
+		assertEquals(1, avant.dernierId);
+		assertEquals(7.5, avant.montants[0]);
+		assertEquals(2000, apres.taille);
+		assertEquals(2, apres.nombreStations);
+		assertEquals(2000, apres.dernierId);
+	}
+}
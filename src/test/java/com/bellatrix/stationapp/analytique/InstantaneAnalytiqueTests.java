@@ -0,0 +1,104 @@
+package com.bellatrix.stationapp.analytique;
+
+import com.bellatrix.stationapp.dto.TotauxDashboardDto;
+import com.bellatrix.stationapp.repository.TransactionCarburantRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Vérifie les totaux, la série journalière et le classement des clients de l'instantané analytique, sur un jeu
+ * de faits fixe. N'a pas besoin de base de données : les faits sont fournis par un repository simulé.
+ */
+class InstantaneAnalytiqueTests {
+
+	private static final double PRECISION = 1e-9;
+
+	private static final LocalDate JOUR = LocalDate.of(2024, 3, 10);
+
+	private InstantaneAnalytique instantane;
+
+	@BeforeEach
+	void charger() {
+		TransactionCarburantRepository repository = mock(TransactionCarburantRepository.class);
+		// id, jour (depuis 1970), station, client, litres, montant, points
+		when(repository.streamFaitsApres(0L)).thenReturn(Stream.of(
+				fait(1, JOUR, 10, 100, 10, 15, 1),
+				fait(2, JOUR, 10, 200, 20, 30, 2),
+				fait(3, JOUR.plusDays(1), 20, 100, 5, 7.5, 0.5),
+				fait(4, JOUR.plusDays(1), 10, 300, 40, 60, 4),
+				fait(5, JOUR.plusDays(3), 20, 200, 8, 12, 0.8),
+				// Hors période
+				fait(6, JOUR.minusDays(1), 10, 300, 100, 150, 10)));
+		instantane = new InstantaneAnalytique(repository, mock(PlatformTransactionManager.class), true, 3_600_000);
+		instantane.rafraichir();
+	}
+
+	@Test
+	void totauxDeLaPeriode() {
+		verifier(instantane.totaux(JOUR, JOUR.plusDays(3), null, null), null, 83, 124.5, 8.3, 5);
+		verifier(instantane.totaux(JOUR, JOUR.plusDays(3), 10L, null), null, 70, 105, 7, 3);
+		verifier(instantane.totaux(JOUR, JOUR.plusDays(3), null, 100L), null, 15, 22.5, 1.5, 2);
+		verifier(instantane.totaux(JOUR, JOUR.plusDays(3), 20L, 200L), null, 8, 12, 0.8, 1);
+		// Station sans aucune vente
+		verifier(instantane.totaux(JOUR, JOUR.plusDays(3), 99L, null), null, 0, 0, 0, 0);
+	}
+
+	@Test
+	void parJourAUneLigneParJourMemeSansVente() {
+		List<TotauxDashboardDto> serie = instantane.parJour(JOUR, JOUR.plusDays(3), null);
+
+		assertEquals(4, serie.size());
+		verifier(serie.get(0), "2024-03-10", 30, 45, 3, 2);
+		verifier(serie.get(1), "2024-03-11", 45, 67.5, 4.5, 2);
+		verifier(serie.get(2), "2024-03-12", 0, 0, 0, 0);
+		verifier(serie.get(3), "2024-03-13", 8, 12, 0.8, 1);
+	}
+
+	@Test
+	void parJourLimiteAUneStation() {
+		List<TotauxDashboardDto> serie = instantane.parJour(JOUR, JOUR.plusDays(3), 20L);
+
+		verifier(serie.get(0), "2024-03-10", 0, 0, 0, 0);
+		verifier(serie.get(1), "2024-03-11", 5, 7.5, 0.5, 1);
+		verifier(serie.get(3), "2024-03-13", 8, 12, 0.8, 1);
+	}
+
+	@Test
+	void meilleursClientsParChiffreAffairesDecroissant() {
+		List<TotauxDashboardDto> deux = instantane.meilleursClients(JOUR, JOUR.plusDays(3), null, 2);
+		assertEquals(List.of("300", "200"), deux.stream().map(TotauxDashboardDto::getCle).toList());
+		verifier(deux.get(0), "300", 40, 60, 4, 1);
+		verifier(deux.get(1), "200", 28, 42, 2.8, 2);
+
+		// Limite supérieure au nombre de clients : tous, toujours dans l'ordre
+		assertEquals(List.of("300", "200", "100"), instantane.meilleursClients(JOUR, JOUR.plusDays(3), null, 10)
+				.stream().map(TotauxDashboardDto::getCle).toList());
+		// Vente hors période du client 300 non comptée, station 10 seulement
+		assertEquals(List.of("300", "200", "100"), instantane.meilleursClients(JOUR, JOUR.plusDays(3), 10L, 3)
+				.stream().map(TotauxDashboardDto::getCle).toList());
+		verifier(instantane.meilleursClients(JOUR, JOUR.plusDays(3), 10L, 3).get(2), "100", 10, 15, 1, 1);
+	}
+
+	private static Object[] fait(long id, LocalDate jour, long stationId, long clientId, double litres, double montant,
+								 double points) {
+		return new Object[]{id, (int) jour.toEpochDay(), stationId, clientId, litres, montant, points};
+	}
+
+	private static void verifier(TotauxDashboardDto totaux, String cle, double litres, double chiffreAffaires,
+								 double pointsGagnes, long nombreTransactions) {
+		assertEquals(cle, totaux.getCle());
+		assertEquals(litres, totaux.getLitres(), PRECISION);
+		assertEquals(chiffreAffaires, totaux.getChiffreAffaires(), PRECISION);
+		assertEquals(pointsGagnes, totaux.getPointsGagnes(), PRECISION);
+		assertEquals(nombreTransactions, totaux.getNombreTransactions());
+	}
+}
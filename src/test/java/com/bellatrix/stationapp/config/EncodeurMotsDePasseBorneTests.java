@@ -0,0 +1,120 @@
+package com.bellatrix.stationapp.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Vérifie qu'un pool de hachage saturé refuse les calculs par une RejectedExecutionException, y compris à travers
+ * DaoAuthenticationProvider (et non une erreur d'authentification, qui donnerait un 401).
+ * N'a pas besoin de base de données : l'encodeur cible bloque jusqu'à la fin du test.
+ */
+class EncodeurMotsDePasseBorneTests {
+
+	private static final long ATTENTE_MAX_MS = 200;
+
+	private final CountDownLatch demarre = new CountDownLatch(1);
+	private final CountDownLatch liberer = new CountDownLatch(1);
+
+	private EncodeurMotsDePasseBorne encodeur;
+
+	@BeforeEach
+	void saturer() throws InterruptedException {
+		encodeur = new EncodeurMotsDePasseBorne(new EncodeurBloquant(), 1, 1, ATTENTE_MAX_MS);
+		// Le seul thread du pool reste occupé, même après l'abandon de ce premier appel
+		Thread occupant = new Thread(() -> {
+			try {
+				encodeur.matches("occupant", "hache");
+			} catch (RejectedExecutionException e) {
+				// Attendu : l'appel abandonne, le calcul continue de bloquer le thread
+			}
+		});
+		occupant.setDaemon(true);
+		occupant.start();
+		demarre.await();
+	}
+
+	@AfterEach
+	void liberer() {
+		liberer.countDown();
+		encodeur.shutdown();
+	}
+
+	@Test
+	void calculNonCommenceATempsRefuse() {
+		long debut = System.nanoTime();
+		assertThrows(RejectedExecutionException.class, () -> encodeur.matches("motdepasse", "hache"));
+		long ms = (System.nanoTime() - debut) / 1_000_000;
+		assertTrue(ms >= ATTENTE_MAX_MS && ms < 10 * ATTENTE_MAX_MS, ms + " ms");
+	}
+
+	@Test
+	void saturationTraverseDaoAuthenticationProvider() {
+		DaoAuthenticationProvider fournisseur = new DaoAuthenticationProvider();
+		fournisseur.setPasswordEncoder(encodeur);
+		fournisseur.setUserDetailsService(username -> {
+			if (!username.equals("agent1")) {
+				throw new UsernameNotFoundException(username);
+			}
+			return User.withUsername("agent1").password("hache").roles("ADMIN").build();
+		});
+		ProviderManager authentification = new ProviderManager(fournisseur);
+
+		assertThrows(RejectedExecutionException.class, () -> authentification.authenticate(
+				new UsernamePasswordAuthenticationToken("agent1", "motdepasse")));
+	}
+
+	@Test
+	void parametresInvalidesRefuses() {
+		PasswordEncoder cible = new EncodeurBloquant();
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+				() -> new EncodeurMotsDePasseBorne(cible, 0, 1, ATTENTE_MAX_MS));
+		assertEquals("Le pool de hachage des mots de passe doit avoir au moins un thread et une place en file.",
+				e.getMessage());
+	}
+
+	// Bloque jusqu'à la fin du test, sans céder à l'interruption envoyée quand un appel abandonne
+	private class EncodeurBloquant implements PasswordEncoder {
+
+		@Override
+		public String encode(CharSequence motDePasse) {
+			bloquer();
+			return "hache";
+		}
+
+		@Override
+		public boolean matches(CharSequence motDePasse, String hache) {
+			bloquer();
+			return true;
+		}
+
+		private void bloquer() {
+			demarre.countDown();
+			boolean interrompu = false;
+			while (true) {
+				try {
+					liberer.await();
+					break;
+				} catch (InterruptedException e) {
+					interrompu = true;
+				}
+			}
+			if (interrompu) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
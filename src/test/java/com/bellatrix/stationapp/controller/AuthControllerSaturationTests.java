@@ -0,0 +1,111 @@
+package com.bellatrix.stationapp.controller;
+
+import com.bellatrix.stationapp.config.EncodeurMotsDePasseBorne;
+import com.bellatrix.stationapp.security.LimiteurConnexions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Vérifie qu'une connexion refusée faute de place dans le pool de hachage des mots de passe reçoit un 429 avec
+ * Retry-After, et non un 401 ou un 500, que l'utilisateur existe ou non. Le contrôleur est appelé directement,
+ * avec le vrai DaoAuthenticationProvider ; n'a pas besoin de base de données.
+ */
+class AuthControllerSaturationTests {
+
+	private static final long ATTENTE_MAX_MS = 200;
+
+	private final CountDownLatch demarre = new CountDownLatch(1);
+	private final CountDownLatch liberer = new CountDownLatch(1);
+
+	private EncodeurMotsDePasseBorne encodeur;
+	private AuthController authController;
+
+	@BeforeEach
+	void saturer() throws InterruptedException {
+		encodeur = new EncodeurMotsDePasseBorne(new PasswordEncoder() {
+			@Override
+			public String encode(CharSequence motDePasse) {
+				return bloquer("hache");
+			}
+
+			@Override
+			public boolean matches(CharSequence motDePasse, String hache) {
+				return bloquer(true);
+			}
+		}, 1, 1, ATTENTE_MAX_MS);
+		// Le seul thread du pool reste occupé jusqu'à la fin du test
+		Thread occupant = new Thread(() -> {
+			try {
+				encodeur.matches("occupant", "hache");
+			} catch (RuntimeException e) {
+				// Attendu : l'appel abandonne, le calcul continue de bloquer le thread
+			}
+		});
+		occupant.setDaemon(true);
+		occupant.start();
+		demarre.await();
+
+		DaoAuthenticationProvider fournisseur = new DaoAuthenticationProvider();
+		fournisseur.setPasswordEncoder(encodeur);
+		fournisseur.setUserDetailsService(username -> {
+			if (!username.equals("agent1")) {
+				throw new UsernameNotFoundException(username);
+			}
+			return User.withUsername("agent1").password("hache").roles("ADMIN").build();
+		});
+		authController = new AuthController(new ProviderManager(fournisseur), null, null, null,
+				new LimiteurConnexions(5, 5, 20, 30, 100_000), null, ATTENTE_MAX_MS);
+	}
+
+	@AfterEach
+	void liberer() {
+		liberer.countDown();
+		encodeur.shutdown();
+	}
+
+	@Test
+	void utilisateurConnuRecoit429() {
+		verifier429(authController.authenticateUtilisateur(Map.of("username", "agent1", "password", "motdepasse"),
+				new MockHttpServletRequest()));
+	}
+
+	@Test
+	void utilisateurInconnuRecoit429() {
+		verifier429(authController.authenticateUtilisateur(Map.of("username", "inconnu", "password", "motdepasse"),
+				new MockHttpServletRequest()));
+	}
+
+	private static void verifier429(ResponseEntity<?> reponse) {
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS, reponse.getStatusCode());
+		// Attente maximale de 200 ms arrondie à la seconde
+		assertEquals("1", reponse.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+	}
+
+	// Bloque jusqu'à la fin du test, sans céder à l'interruption envoyée quand un appel abandonne
+	private <T> T bloquer(T resultat) {
+		demarre.countDown();
+		while (true) {
+			try {
+				liberer.await();
+				return resultat;
+			} catch (InterruptedException e) {
+				// Ignorée : le thread du pool doit rester occupé
+			}
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package com.bellatrix.stationapp.controller;
+
+import com.bellatrix.stationapp.BancJmh;
+import com.bellatrix.stationapp.payload.request.AchatCarburantRequest;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.results.RunResult;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Benchmark JMH de la lecture du corps de /achat : Map<String, Object> puis toString()/valueOf sur chaque champ
+ * (avant), contre liaison directe sur AchatCarburantRequest (après). Temps et octets alloués par requête.
+ * Exclu du build normal, lancé avec le profil Maven "charge" ; résultats dans target/jmh/.
+ */
+@Tag("charge")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ChargeLiaisonAchatTests {
+
+	private static final byte[] CORPS = ("{\"clientId\":42,\"stationServiceId\":3,\"utilisateurId\":7,"
+			+ "\"litresAchetes\":20.5,\"montantTotal\":30.75,\"utiliserPoints\":false,"
+			+ "\"cleIdempotence\":\"3f0c2a9e-5d1b-4c7e-9a61-0b8f2d4e6a13\"}").getBytes(StandardCharsets.UTF_8);
+
+	private ObjectReader lecteurMap;
+	private ObjectReader lecteurRequete;
+
+	@Setup
+	public void preparer() {
+		// Même configuration Jackson que celle de Spring Boot (modules java.time, etc.)
+		ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+		lecteurMap = objectMapper.readerFor(new TypeReference<Map<String, Object>>() {
+		});
+		lecteurRequete = objectMapper.readerFor(AchatCarburantRequest.class);
+	}
+
+	@Benchmark
+	public void liaisonMap(Blackhole trou) throws IOException {
+		Map<String, Object> payload = lecteurMap.readValue(CORPS);
+		trou.consume(payload.get("cleIdempotence") != null ? payload.get("cleIdempotence").toString() : null);
+		trou.consume(Long.valueOf(payload.get("clientId").toString()));
+		trou.consume(Long.valueOf(payload.get("stationServiceId").toString()));
+		trou.consume(Long.valueOf(payload.get("utilisateurId").toString()));
+		trou.consume(Double.valueOf(payload.get("litresAchetes").toString()));
+		trou.consume(Double.valueOf(payload.get("montantTotal").toString()));
+		trou.consume((Boolean) payload.getOrDefault("utiliserPoints", false));
+	}
+
+	@Benchmark
+	public AchatCarburantRequest liaisonRequete() throws IOException {
+		AchatCarburantRequest achat = lecteurRequete.readValue(CORPS);
+		achat.verifierChampsObligatoires();
+		return achat;
+	}
+
+	@Test
+	void liaisonRequeteAlloueMoinsQueLaMap() throws Exception {
+		Collection<RunResult> resultats = BancJmh.lancer(ChargeLiaisonAchatTests.class);
+
+		double avant = BancJmh.octetsParOperation(BancJmh.resultat(resultats, "liaisonMap"));
+		double apres = BancJmh.octetsParOperation(BancJmh.resultat(resultats, "liaisonRequete"));
+		assertTrue(apres < avant, "Octets alloués par requête : " + apres + " (record) contre " + avant + " (Map)");
+	}
+}
@@ -0,0 +1,216 @@
+package com.bellatrix.stationapp.controller;
+
+import com.bellatrix.stationapp.model.Utilisateur;
+import com.bellatrix.stationapp.service.ClientService;
+import com.bellatrix.stationapp.service.StationServiceService;
+import com.bellatrix.stationapp.service.UtilisateurService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test de charge de /achat et du rapport journalier. Exclu du build normal, lancé avec le profil Maven "charge".
+ * Pour comparer les deux modes, lancer la même classe avec puis sans le profil Spring "virtual".
+ * Chaque mesure (débit, p50, p99, erreurs) est ajoutée à target/charge/ChargeTransactionsTests.csv : les lignes
+ * de deux versions ou de deux modes s'y comparent directement.
+ * Les ventes créées par le test sont supprimées après chaque test, et le solde du client et les récapitulatifs
+ * de la station sont remis dans leur état de départ.
+ */
+@Tag("charge")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ChargeTransactionsTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(ChargeTransactionsTests.class);
+
+	private static final Path RESULTATS = Path.of("target", "charge", "ChargeTransactionsTests.csv");
+
+	// Au-delà des 200 threads Tomcat par défaut, pour mettre en évidence la différence entre les deux modes
+	private static final int CLIENTS_SIMULTANES = 400;
+	private static final int REQUETES_PAR_CLIENT = 25;
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	@Autowired
+	private ClientService clientService;
+
+	@Autowired
+	private StationServiceService stationServiceService;
+
+	@Autowired
+	private UtilisateurService utilisateurService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Value("${spring.threads.virtual.enabled:false}")
+	private boolean threadsVirtuels;
+
+	// Données créées par DataLoader
+	private Long clientId;
+	private Long stationId;
+	private Long utilisateurId;
+
+	// État de départ, restauré après chaque test
+	private LocalDate premierJour;
+	private double soldePointsInitial;
+	private long dernierIdTransaction;
+	private long dernierIdMouvement;
+	private long dernierIdInstantane;
+
+	@BeforeEach
+	void memoriserEtat() {
+		clientId = clientService.getClientByNumeroTelephone("0811234567").orElseThrow().getId();
+		stationId = stationServiceService.getStationServiceByName("TotalEnergies Kinshasa").orElseThrow().getId();
+		utilisateurId = ((Utilisateur) utilisateurService.loadUserByUsername("agent1")).getId();
+
+		premierJour = LocalDate.now();
+		soldePointsInitial = jdbcTemplate.queryForObject("SELECT solde_points FROM client WHERE id = ?", Double.class, clientId);
+		dernierIdTransaction = dernierId("transaction_carburant");
+		dernierIdMouvement = dernierId("mouvement_points");
+		dernierIdInstantane = dernierId("instantane_solde_points");
+	}
+
+	@AfterEach
+	void supprimerVentesDuTest() {
+		// Les identifiants viennent de séquences : tout ce qui dépasse le dernier ID relevé a été créé par le test
+		jdbcTemplate.update("DELETE FROM instantane_solde_points WHERE id > ?", dernierIdInstantane);
+		jdbcTemplate.update("DELETE FROM mouvement_points WHERE id > ?", dernierIdMouvement);
+		int supprimees = jdbcTemplate.update("DELETE FROM transaction_carburant WHERE id > ?", dernierIdTransaction);
+		jdbcTemplate.update("UPDATE client SET solde_points = ? WHERE id = ?", soldePointsInitial, clientId);
+		// Récapitulatifs des jours du test recalculés à partir des ventes restantes
+		for (LocalDate jour = premierJour; !jour.isAfter(LocalDate.now()); jour = jour.plusDays(1)) {
+			jdbcTemplate.update("DELETE FROM daily_station_rollup WHERE station_service_id = ? AND jour = ?", stationId, jour);
+			jdbcTemplate.update("""
+					INSERT INTO daily_station_rollup (station_service_id, jour, tranche, litres, chiffre_affaires,
+					                                  points_gagnes, points_utilises, nombre_transactions)
+					SELECT station_service_id, CAST(date_transaction AS DATE), 0, SUM(litres_achetes), SUM(montant_total),
+					       SUM(points_gagnes), SUM(points_utilises), COUNT(*)
+					FROM transaction_carburant
+					WHERE station_service_id = ? AND date_transaction >= ? AND date_transaction < ?
+					GROUP BY station_service_id, CAST(date_transaction AS DATE)
+					""", stationId, jour.atStartOfDay(), jour.plusDays(1).atStartOfDay());
+		}
+		logger.info("{} vente(s) du test de charge supprimée(s).", supprimees);
+	}
+
+	@Test
+	void chargeAchat() throws Exception {
+		Map<String, Object> achat = new HashMap<>();
+		achat.put("clientId", clientId);
+		achat.put("stationServiceId", stationId);
+		achat.put("utilisateurId", utilisateurId);
+		achat.put("litresAchetes", 20.0);
+		achat.put("montantTotal", 30.0);
+		achat.put("utiliserPoints", false);
+
+		mesurer("POST /api/transactions/achat",
+				() -> restTemplate.postForEntity("/api/transactions/achat", achat, String.class));
+	}
+
+	@Test
+	void chargeRapportJournalier() throws Exception {
+		String url = "/api/transactions/reports/daily?date=" + LocalDate.now();
+		mesurer("GET /api/transactions/reports/daily", () -> restTemplate.getForEntity(url, String.class));
+	}
+
+	private void mesurer(String nom, Supplier<ResponseEntity<String>> requete) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(CLIENTS_SIMULTANES);
+		CountDownLatch depart = new CountDownLatch(1);
+		List<Future<long[]>> resultats = new ArrayList<>();
+		try {
+			for (int c = 0; c < CLIENTS_SIMULTANES; c++) {
+				resultats.add(executor.submit(() -> {
+					long[] latences = new long[REQUETES_PAR_CLIENT];
+					depart.await();
+					for (int i = 0; i < REQUETES_PAR_CLIENT; i++) {
+						long debut = System.nanoTime();
+						ResponseEntity<String> reponse = requete.get();
+						// Une erreur est comptée avec une latence négative
+						latences[i] = reponse.getStatusCode().is2xxSuccessful()
+								? System.nanoTime() - debut : -1;
+					}
+					return latences;
+				}));
+			}
+			long debut = System.nanoTime();
+			depart.countDown();
+
+			long[] toutes = new long[CLIENTS_SIMULTANES * REQUETES_PAR_CLIENT];
+			int n = 0;
+			for (Future<long[]> resultat : resultats) {
+				for (long latence : resultat.get()) {
+					toutes[n++] = latence;
+				}
+			}
+			double secondes = (System.nanoTime() - debut) / 1e9;
+
+			Arrays.sort(toutes);
+			int erreurs = 0;
+			while (erreurs < toutes.length && toutes[erreurs] < 0) {
+				erreurs++;
+			}
+			long[] reussies = Arrays.copyOfRange(toutes, erreurs, toutes.length);
+			enregistrer(nom, toutes.length, toutes.length / secondes, centile(reussies, 0.50), centile(reussies, 0.99), erreurs);
+			assertEquals(0, erreurs);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private void enregistrer(String nom, int requetes, double debit, double p50, double p99, int erreurs) throws IOException {
+		String threads = threadsVirtuels ? "virtuels" : "plateforme";
+		logger.info("Threads {} - {} : {} requêtes, {} req/s, p50 = {} ms, p99 = {} ms, erreurs = {}", threads, nom,
+				requetes, Math.round(debit), String.format(Locale.ROOT, "%.1f", p50),
+				String.format(Locale.ROOT, "%.1f", p99), erreurs);
+		Files.createDirectories(RESULTATS.getParent());
+		if (Files.notExists(RESULTATS)) {
+			Files.writeString(RESULTATS, "date;threads;requete;requetes;debit_req_s;p50_ms;p99_ms;erreurs\n",
+					StandardCharsets.UTF_8);
+		}
+		Files.writeString(RESULTATS, String.format(Locale.ROOT, "%s;%s;%s;%d;%.0f;%.1f;%.1f;%d%n", LocalDateTime.now(),
+				threads, nom, requetes, debit, p50, p99, erreurs), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+	}
+
+	private long dernierId(String table) {
+		return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+	}
+
+	private static double centile(long[] latencesTriees, double centile) {
+		if (latencesTriees.length == 0) {
+			return 0;
+		}
+		int index = (int) Math.ceil(centile * latencesTriees.length) - 1;
+		return latencesTriees[Math.max(0, index)] / 1e6;
+	}
+}
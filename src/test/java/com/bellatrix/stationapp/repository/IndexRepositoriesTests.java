@@ -0,0 +1,281 @@
+package com.bellatrix.stationapp.repository;
+
+import jakarta.persistence.Table;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Vérifie que chaque requête déclarée dans un repository s'appuie sur un index créé par les migrations Flyway
+ * (annotation @IndexUtilise), ou justifie explicitement son absence, et que cet index peut effectivement servir :
+ * il porte sur une table lue par la requête et sa première colonne fait partie des critères de la requête
+ * (WHERE, jointure, ON CONFLICT, tri ou regroupement, ou critères du nom d'une méthode dérivée).
+ * N'a pas besoin de base de données.
+ */
+class IndexRepositoriesTests {
+
+	private static final Pattern CREATION_INDEX = Pattern.compile(
+			"CREATE\\s+(?:UNIQUE\\s+)?INDEX\\s+(?:CONCURRENTLY\\s+)?(?:IF\\s+NOT\\s+EXISTS\\s+)?(\\w+)\\s+ON\\s+(?:ONLY\\s+)?(\\w+)"
+					+ "\\s*(?:USING\\s+\\w+\\s*)?\\(([^)]*)\\)", Pattern.CASE_INSENSITIVE);
+	private static final Pattern AJOUT_CONTRAINTE = Pattern.compile(
+			"ALTER\\s+TABLE\\s+(?:ONLY\\s+)?(\\w+)\\s+ADD\\s+CONSTRAINT\\s+(\\w+)\\s+(?:PRIMARY\\s+KEY|UNIQUE)\\s*\\(([^)]*)\\)",
+			Pattern.CASE_INSENSITIVE);
+	private static final Pattern CREATION_TABLE = Pattern.compile(
+			"CREATE\\s+TABLE\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?(\\w+)\\s*\\((.*?)\\);", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+	private static final Pattern CLE_PRIMAIRE_TABLE = Pattern.compile(
+			"PRIMARY\\s+KEY\\s*\\(([^)]*)\\)", Pattern.CASE_INSENSITIVE);
+	private static final Pattern COLONNE_CLE_PRIMAIRE = Pattern.compile(
+			"^\\s*(\\w+)\\s[^,]*\\bPRIMARY\\s+KEY\\b", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
+	private static final Pattern COLONNE_UNIQUE = Pattern.compile(
+			"^\\s*(\\w+)\\s[^,]*\\bUNIQUE\\b", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
+	private static final Pattern VERSION_MIGRATION = Pattern.compile("V(\\d+)__");
+
+	// Parties d'une requête où une colonne peut être servie par un index, jusqu'au mot-clé suivant
+	private static final Pattern CLAUSE_CRITERES = Pattern.compile(
+			"\\b(?:WHERE|ON\\s+CONFLICT|DISTINCT\\s+ON|ON|ORDER\\s+BY|GROUP\\s+BY)\\b(.*?)(?=\\b(?:SELECT|FROM|WHERE|GROUP\\s+BY"
+					+ "|ORDER\\s+BY|HAVING|LIMIT|JOIN|LEFT|INNER|INSERT|DO|RETURNING|UNION)\\b|$)",
+			Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+	private static final Pattern CHEMIN = Pattern.compile("[A-Za-z_]\\w*(?:\\.[A-Za-z_]\\w*)*");
+	private static final Pattern PARAMETRE = Pattern.compile(":\\w+");
+	private static final Pattern MOT = Pattern.compile("\\w+");
+
+	// Méthodes dérivées de Spring Data : préfixe, séparateurs et opérateurs autour des propriétés
+	private static final Pattern PREFIXE_DERIVEE = Pattern.compile(
+			"^(?:find|read|get|query|search|stream|count|exists|delete|remove)\\w*?By");
+	private static final List<String> OPERATEURS = List.of("LessThanEqual", "GreaterThanEqual", "LessThan", "GreaterThan",
+			"Between", "After", "Before", "IsNotNull", "IsNull", "NotNull", "Null", "NotIn", "In", "NotLike", "Like",
+			"StartingWith", "EndingWith", "Containing", "True", "False", "Not", "Equals");
+
+	private record IndexMigration(String table, List<String> colonnes) {
+	}
+
+	@Test
+	void chaqueRequeteDeRepositoryAUnIndex() throws Exception {
+		Set<String> index = indexDesMigrations().keySet();
+		List<String> erreurs = new ArrayList<>();
+		List<Class<?>> repositories = repositories();
+		assertFalse(repositories.isEmpty(), "Aucun repository trouvé.");
+
+		for (Class<?> repository : repositories) {
+			for (Method methode : methodes(repository)) {
+				String nom = repository.getSimpleName() + "." + methode.getName();
+				IndexUtilise annotation = methode.getAnnotation(IndexUtilise.class);
+				if (annotation == null) {
+					erreurs.add(nom + " : pas d'annotation @IndexUtilise");
+				} else if (annotation.value().length == 0 && annotation.sansIndex().isBlank()) {
+					erreurs.add(nom + " : ni index ni justification");
+				} else {
+					for (String nomIndex : annotation.value()) {
+						if (!index.contains(nomIndex.toLowerCase(Locale.ROOT))) {
+							erreurs.add(nom + " : l'index " + nomIndex + " n'est créé par aucune migration");
+						}
+					}
+				}
+			}
+		}
+		assertTrue(erreurs.isEmpty(), "Requêtes sans index :\n" + String.join("\n", erreurs));
+	}
+
+	@Test
+	void premiereColonneDeChaqueIndexEstUnCritereDeLaRequete() throws Exception {
+		Map<String, IndexMigration> index = indexDesMigrations();
+		List<String> erreurs = new ArrayList<>();
+
+		for (Class<?> repository : repositories()) {
+			String tableEntite = tableEntite(repository);
+			for (Method methode : methodes(repository)) {
+				IndexUtilise annotation = methode.getAnnotation(IndexUtilise.class);
+				if (annotation == null || annotation.value().length == 0) {
+					continue;
+				}
+				String nom = repository.getSimpleName() + "." + methode.getName();
+				Query requete = methode.getAnnotation(Query.class);
+				Set<String> tables = new HashSet<>(Set.of(tableEntite));
+				Set<String> criteres;
+				if (requete != null) {
+					Matcher mot = MOT.matcher(requete.value());
+					while (mot.find()) {
+						tables.add(snake(mot.group()));
+					}
+					criteres = criteresRequete(requete.value());
+				} else {
+					criteres = criteresMethodeDerivee(methode.getName());
+				}
+				for (String nomIndex : annotation.value()) {
+					IndexMigration definition = index.get(nomIndex.toLowerCase(Locale.ROOT));
+					if (definition == null) {
+						continue; // signalé par chaqueRequeteDeRepositoryAUnIndex
+					}
+					String premiereColonne = definition.colonnes().get(0);
+					if (!tables.contains(definition.table())) {
+						erreurs.add(nom + " : l'index " + nomIndex + " porte sur " + definition.table()
+								+ ", que la requête ne lit pas");
+					} else if (!criteres.contains(premiereColonne)) {
+						erreurs.add(nom + " : l'index " + nomIndex + " commence par " + premiereColonne
+								+ ", absente des critères de la requête " + criteres);
+					}
+				}
+			}
+		}
+		assertTrue(erreurs.isEmpty(), "Index inutilisables par leur requête :\n" + String.join("\n", erreurs));
+	}
+
+	// Index explicites, contraintes nommées, clés primaires (<table>_pkey) et colonnes UNIQUE (<table>_<colonne>_key),
+	// nommés comme Postgres, avec leur table et leurs colonnes. Les migrations sont lues dans l'ordre des versions :
+	// un index redéfini par une migration ultérieure garde sa dernière définition.
+	private static Map<String, IndexMigration> indexDesMigrations() throws IOException {
+		Map<String, IndexMigration> index = new HashMap<>();
+		Resource[] migrations = new PathMatchingResourcePatternResolver().getResources("classpath*:db/migration/*.sql");
+		assertFalse(migrations.length == 0, "Aucune migration trouvée.");
+		Arrays.sort(migrations, Comparator.comparingInt(IndexRepositoriesTests::version));
+		for (Resource migration : migrations) {
+			String sql = migration.getContentAsString(StandardCharsets.UTF_8).replaceAll("--[^\\n]*", "");
+			Matcher creationIndex = CREATION_INDEX.matcher(sql);
+			while (creationIndex.find()) {
+				index.put(creationIndex.group(1).toLowerCase(Locale.ROOT),
+						new IndexMigration(creationIndex.group(2).toLowerCase(Locale.ROOT), colonnes(creationIndex.group(3))));
+			}
+			Matcher ajoutContrainte = AJOUT_CONTRAINTE.matcher(sql);
+			while (ajoutContrainte.find()) {
+				index.put(ajoutContrainte.group(2).toLowerCase(Locale.ROOT),
+						new IndexMigration(ajoutContrainte.group(1).toLowerCase(Locale.ROOT), colonnes(ajoutContrainte.group(3))));
+			}
+			Matcher creationTable = CREATION_TABLE.matcher(sql);
+			while (creationTable.find()) {
+				String table = creationTable.group(1).toLowerCase(Locale.ROOT);
+				String colonnes = creationTable.group(2);
+				Matcher clePrimaireTable = CLE_PRIMAIRE_TABLE.matcher(colonnes);
+				Matcher colonneClePrimaire = COLONNE_CLE_PRIMAIRE.matcher(colonnes);
+				if (clePrimaireTable.find()) {
+					index.put(table + "_pkey", new IndexMigration(table, colonnes(clePrimaireTable.group(1))));
+				} else if (colonneClePrimaire.find()) {
+					index.put(table + "_pkey", new IndexMigration(table, List.of(colonneClePrimaire.group(1).toLowerCase(Locale.ROOT))));
+				}
+				Matcher colonneUnique = COLONNE_UNIQUE.matcher(colonnes);
+				while (colonneUnique.find()) {
+					String colonne = colonneUnique.group(1).toLowerCase(Locale.ROOT);
+					index.put(table + "_" + colonne + "_key", new IndexMigration(table, List.of(colonne)));
+				}
+			}
+		}
+		return index;
+	}
+
+	// Colonnes d'une définition d'index, sans les options de tri (DESC, NULLS LAST...)
+	private static List<String> colonnes(String liste) {
+		List<String> colonnes = new ArrayList<>();
+		for (String colonne : liste.split(",")) {
+			colonnes.add(colonne.trim().split("\\s+")[0].toLowerCase(Locale.ROOT));
+		}
+		return colonnes;
+	}
+
+	// Colonnes citées dans les critères d'une requête JPQL ou SQL. Un chemin JPQL a.client.id donne client_id et id
+	private static Set<String> criteresRequete(String requete) {
+		Set<String> criteres = new HashSet<>();
+		Matcher clause = CLAUSE_CRITERES.matcher(PARAMETRE.matcher(requete).replaceAll(" "));
+		while (clause.find()) {
+			Matcher chemin = CHEMIN.matcher(clause.group(1));
+			while (chemin.find()) {
+				String[] segments = chemin.group().split("\\.");
+				String derniere = snake(segments[segments.length - 1]);
+				criteres.add(derniere);
+				if (segments.length >= 2) {
+					criteres.add(snake(segments[segments.length - 2]) + "_" + derniere);
+				}
+			}
+		}
+		return criteres;
+	}
+
+	// Propriétés d'une méthode dérivée (findByClientIdAndDateBetweenOrderByDateAsc) : critères et tri
+	private static Set<String> criteresMethodeDerivee(String methode) {
+		Set<String> criteres = new HashSet<>();
+		Matcher prefixe = PREFIXE_DERIVEE.matcher(methode);
+		if (!prefixe.find()) {
+			return criteres;
+		}
+		String[] parties = methode.substring(prefixe.end()).split("OrderBy", 2);
+		List<String> proprietes = new ArrayList<>(Arrays.asList(parties[0].split("(?:And|Or)(?=[A-Z])")));
+		if (parties.length == 2) {
+			proprietes.addAll(Arrays.asList(parties[1].split("(?:Asc|Desc)")));
+		}
+		for (String propriete : proprietes) {
+			propriete = propriete.replaceFirst("IgnoreCase$", "");
+			for (String operateur : OPERATEURS) {
+				if (propriete.endsWith(operateur) && propriete.length() > operateur.length()) {
+					propriete = propriete.substring(0, propriete.length() - operateur.length());
+					break;
+				}
+			}
+			if (!propriete.isEmpty()) {
+				// findByClient(Client) est résolu sur la clé étrangère client_id
+				criteres.add(snake(propriete));
+				criteres.add(snake(propriete) + "_id");
+			}
+		}
+		return criteres;
+	}
+
+	private static String tableEntite(Class<?> repository) {
+		Class<?> entite = ResolvableType.forClass(repository).as(Repository.class).getGeneric(0).resolve();
+		assertTrue(entite != null, "Entité de " + repository.getSimpleName() + " introuvable.");
+		Table table = entite.getAnnotation(Table.class);
+		return table != null && !table.name().isBlank() ? table.name().toLowerCase(Locale.ROOT) : snake(entite.getSimpleName());
+	}
+
+	private static String snake(String nom) {
+		return nom.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toLowerCase(Locale.ROOT);
+	}
+
+	private static int version(Resource migration) {
+		Matcher version = VERSION_MIGRATION.matcher(String.valueOf(migration.getFilename()));
+		return version.find() ? Integer.parseInt(version.group(1)) : 0;
+	}
+
+	private static List<Method> methodes(Class<?> repository) {
+		List<Method> methodes = new ArrayList<>();
+		for (Method methode : repository.getDeclaredMethods()) {
+			if (!methode.isDefault() && !methode.isSynthetic()) {
+				methodes.add(methode);
+			}
+		}
+		return methodes;
+	}
+
+	private static List<Class<?>> repositories() throws Exception {
+		List<Class<?>> repositories = new ArrayList<>();
+		MetadataReaderFactory lecteurs = new SimpleMetadataReaderFactory();
+		String chemin = "classpath*:" + IndexUtilise.class.getPackageName().replace('.', '/') + "/*.class";
+		for (Resource ressource : new PathMatchingResourcePatternResolver().getResources(chemin)) {
+			Class<?> classe = Class.forName(lecteurs.getMetadataReader(ressource).getClassMetadata().getClassName());
+			if (classe.isInterface() && Repository.class.isAssignableFrom(classe)) {
+				repositories.add(classe);
+			}
+		}
+		return repositories;
+	}
+}
@@ -0,0 +1,126 @@
+package com.bellatrix.stationapp.repository;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static com.bellatrix.stationapp.service.TransactionService.FIN_JOURNEE;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Vérifie que les requêtes par période de TransactionCarburantRepository ne lisent que les partitions
+ * mensuelles concernées (élagage des partitions par Postgres). Le plan examiné est celui du SQL réellement
+ * généré par Hibernate pour la lecture par période, capturé par un StatementInspector.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+		+ "com.bellatrix.stationapp.repository.TransactionCarburantPartitionsTests$RequetesCapturees")
+@Transactional
+class TransactionCarburantPartitionsTests {
+
+	private static final DateTimeFormatter MOIS = DateTimeFormatter.ofPattern("yyyy_MM");
+
+	@Autowired
+	private TransactionCarburantRepository transactionCarburantRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Test
+	void rapportMensuelNeLitQueLaPartitionDuMois() {
+		LocalDate mois = LocalDate.now().withDayOfMonth(1);
+		transactionCarburantRepository.creerPartitions(mois.minusMonths(1), mois.plusMonths(1));
+
+		String plan = plan(mois.atStartOfDay(), mois.plusMonths(1).minusDays(1).atTime(FIN_JOURNEE));
+
+		assertTrue(plan.contains(partition(mois)), plan);
+		assertFalse(plan.contains(partition(mois.minusMonths(1))), plan);
+		assertFalse(plan.contains(partition(mois.plusMonths(1))), plan);
+		assertFalse(plan.contains("transaction_carburant_defaut"), plan);
+	}
+
+	@Test
+	void rapportJournalierNeLitQuUnePartition() {
+		LocalDate jour = LocalDate.now();
+		transactionCarburantRepository.creerPartitions(jour.minusMonths(1), jour.plusMonths(1));
+
+		String plan = plan(jour.atStartOfDay(), jour.atTime(FIN_JOURNEE));
+
+		assertTrue(plan.contains(partition(jour)), plan);
+		assertFalse(plan.contains(partition(jour.minusMonths(1))), plan);
+		assertFalse(plan.contains(partition(jour.plusMonths(1))), plan);
+	}
+
+	// Exécute la requête du repository pour capturer son SQL, puis en lit le plan avec les mêmes paramètres
+	private String plan(LocalDateTime debut, LocalDateTime fin) {
+		entityManager.flush();
+		RequetesCapturees.vider();
+		transactionCarburantRepository.findByDateTransactionBetweenOrderByDateTransactionAscIdAsc(debut, fin);
+		String sql = RequetesCapturees.derniere("transaction_carburant");
+
+		return entityManager.unwrap(Session.class).doReturningWork(connexion -> {
+			try (PreparedStatement explain = connexion.prepareStatement("EXPLAIN " + sql)) {
+				explain.setObject(1, debut);
+				explain.setObject(2, fin);
+				List<String> lignes = new ArrayList<>();
+				try (ResultSet resultat = explain.executeQuery()) {
+					while (resultat.next()) {
+						lignes.add(resultat.getString(1));
+					}
+				}
+				return String.join("\n", lignes);
+			}
+		});
+	}
+
+	private static String partition(LocalDate mois) {
+		return "transaction_carburant_" + mois.format(MOIS);
+	}
+
+	/**
+	 * Garde le SQL des requêtes préparées par Hibernate, sans le modifier.
+	 */
+	public static class RequetesCapturees implements StatementInspector {
+
+		private static final List<String> requetes = new ArrayList<>();
+
+		@Override
+		public String inspect(String sql) {
+			synchronized (requetes) {
+				requetes.add(sql);
+			}
+			return sql;
+		}
+
+		static void vider() {
+			synchronized (requetes) {
+				requetes.clear();
+			}
+		}
+
+		static String derniere(String table) {
+			synchronized (requetes) {
+				for (int i = requetes.size() - 1; i >= 0; i--) {
+					String sql = requetes.get(i);
+					if (sql.strip().toLowerCase(Locale.ROOT).startsWith("select") && sql.contains(table)) {
+						return sql;
+					}
+				}
+			}
+			throw new IllegalStateException("Aucune requête sur " + table + " capturée : " + requetes);
+		}
+	}
+}
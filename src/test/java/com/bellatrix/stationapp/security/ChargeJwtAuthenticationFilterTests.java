@@ -0,0 +1,94 @@
+package com.bellatrix.stationapp.security;
+
+import com.bellatrix.stationapp.BancJmh;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.io.Encoders;
+import io.jsonwebtoken.security.Keys;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.results.RunResult;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Benchmark JMH du coût par requête de JwtAuthenticationFilter, sans base de données ni contexte Spring,
+ * et de la vérification du token avec le parser et la clé construits au démarrage (JwtService) contre un parser
+ * et une clé reconstruits à chaque requête. Exclu du build normal, lancé avec le profil Maven "charge" ;
+ * résultats dans target/jmh/.
+ */
+@Tag("charge")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChargeJwtAuthenticationFilterTests {
+
+	private static final FilterChain CHAINE_VIDE = (requete, reponse) -> {
+	};
+
+	private String secret;
+	private String jwt;
+	private JwtService jwtService;
+	private JwtAuthenticationFilter filtre;
+	private MockHttpServletRequest requete;
+
+	@Setup
+	public void preparer() {
+		secret = Encoders.BASE64.encode(Keys.secretKeyFor(SignatureAlgorithm.HS256).getEncoded());
+		jwtService = new JwtService(secret, 3_600_000);
+		// Token client web, aucune révocation : le filtre n'interroge ni UtilisateurService ni la base
+		jwt = jwtService.generateToken("123456", "CLIENT_WEB");
+		filtre = new JwtAuthenticationFilter(jwtService, null, null, new JetonsRevoques(null));
+		requete = new MockHttpServletRequest("GET", "/api/transactions/page");
+		requete.addHeader("Authorization", "Bearer " + jwt);
+	}
+
+	@Benchmark
+	public Authentication filtre() throws Exception {
+		filtre.doFilter(requete, new MockHttpServletResponse(), CHAINE_VIDE);
+		Authentication authentification = SecurityContextHolder.getContext().getAuthentication();
+		SecurityContextHolder.clearContext();
+		return authentification;
+	}
+
+	@Benchmark
+	public JetonVerifie parserPartage() {
+		return jwtService.verifier(jwt);
+	}
+
+	@Benchmark
+	public Claims parserParRequete() {
+		return Jwts.parserBuilder()
+				.setSigningKey(Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret)))
+				.build()
+				.parseClaimsJws(jwt)
+				.getBody();
+	}
+
+	@Test
+	void parserPartageAlloueMoinsQueParserParRequete() throws Exception {
+		Collection<RunResult> resultats = BancJmh.lancer(ChargeJwtAuthenticationFilterTests.class);
+
+		double partage = BancJmh.octetsParOperation(BancJmh.resultat(resultats, "parserPartage"));
+		double parRequete = BancJmh.octetsParOperation(BancJmh.resultat(resultats, "parserParRequete"));
+		assertTrue(partage < parRequete, "Octets alloués par vérification : " + partage
+				+ " (parser partagé) contre " + parRequete + " (parser par requête)");
+	}
+}
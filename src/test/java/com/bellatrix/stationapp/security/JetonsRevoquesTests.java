@@ -0,0 +1,45 @@
+package com.bellatrix.stationapp.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Vérifie l'ensemble compact des jti révoqués, au-delà de plusieurs agrandissements du tableau.
+ * N'a pas besoin de base de données.
+ */
+class JetonsRevoquesTests {
+
+	@Test
+	void retrouveChaqueIdentifiantAjoute() {
+		JetonsRevoques.EnsembleIdentifiants ensemble = new JetonsRevoques.EnsembleIdentifiants();
+		List<UUID> ajoutes = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			UUID jti = UUID.randomUUID();
+			ensemble.ajouter(jti.getMostSignificantBits(), jti.getLeastSignificantBits());
+			ajoutes.add(jti);
+		}
+
+		for (UUID jti : ajoutes) {
+			assertTrue(ensemble.contient(jti.getMostSignificantBits(), jti.getLeastSignificantBits()));
+		}
+		UUID absent = UUID.randomUUID();
+		assertFalse(ensemble.contient(absent.getMostSignificantBits(), absent.getLeastSignificantBits()));
+	}
+
+	@Test
+	void tokenSansRevocationNiIdentifiantAccepteSansBase() {
+		JetonsRevoques jetonsRevoques = new JetonsRevoques(null);
+		Instant expiration = Instant.now().plusSeconds(3600);
+
+		assertFalse(jetonsRevoques.estRevoque(new JetonVerifie("agent1", "ADMIN", expiration, 1L, null, 0L,
+				UUID.randomUUID().toString())));
+		assertFalse(jetonsRevoques.estRevoque(new JetonVerifie("agent1", "ADMIN", expiration, 1L, null, 0L, null)));
+	}
+}
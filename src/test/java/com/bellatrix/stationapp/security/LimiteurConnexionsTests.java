@@ -0,0 +1,89 @@
+package com.bellatrix.stationapp.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Vérifie les seaux à jetons des tentatives de connexion : consommation, recharge, délai avant nouvel essai et
+ * éviction. L'horloge est fournie par le test ; n'a pas besoin de base de données.
+ */
+class LimiteurConnexionsTests {
+
+	private static final long SECONDE = 1_000_000_000L;
+	private static final long T0 = 1_000 * SECONDE;
+	private static final String IP = "10.0.0.1";
+
+	@Test
+	void refuseQuandLeSeauEstVidePuisAccepteApresRecharge() {
+		// 5 jetons, 1 regagné toutes les 12 secondes
+		LimiteurConnexions limiteur = new LimiteurConnexions(5, 5, 100, 100, 100_000);
+		for (int i = 0; i < 5; i++) {
+			assertTrue(limiteur.autoriser("agent1", IP, T0));
+		}
+		assertFalse(limiteur.autoriser("agent1", IP, T0));
+		assertEquals(12, limiteur.secondesAvantNouvelEssai("agent1", IP, T0));
+		assertEquals(2, limiteur.secondesAvantNouvelEssai("agent1", IP, T0 + 10 * SECONDE));
+
+		assertTrue(limiteur.autoriser("agent1", IP, T0 + 13 * SECONDE));
+		assertFalse(limiteur.autoriser("agent1", IP, T0 + 13 * SECONDE));
+		// Le nom d'utilisateur est comparé sans tenir compte de la casse
+		assertFalse(limiteur.autoriser("AGENT1", IP, T0 + 13 * SECONDE));
+	}
+
+	@Test
+	void laRechargeNeDepassePasLaCapacite() {
+		LimiteurConnexions limiteur = new LimiteurConnexions(2, 60, 100, 100, 100_000);
+		assertTrue(limiteur.autoriser("agent1", IP, T0));
+		// Une heure plus tard : 2 jetons seulement, pas 3600
+		long plusTard = T0 + 3600 * SECONDE;
+		assertTrue(limiteur.autoriser("agent1", IP, plusTard));
+		assertTrue(limiteur.autoriser("agent1", IP, plusTard));
+		assertFalse(limiteur.autoriser("agent1", IP, plusTard));
+	}
+
+	@Test
+	void lIpEstLimiteeQuelQueSoitLUtilisateur() {
+		LimiteurConnexions limiteur = new LimiteurConnexions(5, 5, 3, 30, 100_000);
+		assertTrue(limiteur.autoriser("a", IP, T0));
+		assertTrue(limiteur.autoriser("b", IP, T0));
+		assertTrue(limiteur.autoriser("c", IP, T0));
+		assertFalse(limiteur.autoriser("d", IP, T0));
+		assertTrue(limiteur.autoriser("d", "10.0.0.2", T0));
+		// 1 jeton toutes les 2 secondes pour l'IP
+		assertEquals(2, limiteur.secondesAvantNouvelEssai("d", IP, T0));
+	}
+
+	@Test
+	void delaiMinimalDUneSecondeSansSeauVide() {
+		LimiteurConnexions limiteur = new LimiteurConnexions(5, 5, 100, 100, 100_000);
+		assertEquals(1, limiteur.secondesAvantNouvelEssai("inconnu", IP, T0));
+		limiteur.autoriser("agent1", IP, T0);
+		assertEquals(1, limiteur.secondesAvantNouvelEssai("agent1", IP, T0));
+	}
+
+	@Test
+	void unSeauEvinceRepartPlein() {
+		// 64 segments d'un seau chacun : un second nom du même segment évince le premier
+		LimiteurConnexions limiteur = new LimiteurConnexions(1, 1, 1000, 1000, 64);
+		String autre = memeSegment("agent1");
+		assertTrue(limiteur.autoriser("agent1", IP, T0));
+		assertFalse(limiteur.autoriser("agent1", IP, T0));
+
+		assertTrue(limiteur.autoriser(autre, IP, T0));
+		assertTrue(limiteur.autoriser("agent1", IP, T0));
+	}
+
+	// Un autre nom d'utilisateur rangé dans le même segment (même calcul que LimiteurConnexions)
+	private static String memeSegment(String nom) {
+		int segment = (nom.hashCode() & 0x7fffffff) % 64;
+		for (int i = 0; ; i++) {
+			String candidat = "u" + i;
+			if ((candidat.hashCode() & 0x7fffffff) % 64 == segment) {
+				return candidat;
+			}
+		}
+	}
+}
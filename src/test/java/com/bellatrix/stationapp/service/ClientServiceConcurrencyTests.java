@@ -0,0 +1,102 @@
+package com.bellatrix.stationapp.service;
+
+import com.bellatrix.stationapp.model.Client;
+import com.bellatrix.stationapp.repository.ClientRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class ClientServiceConcurrencyTests {
+
+	private static final int THREADS = 32;
+	private static final int MISES_A_JOUR_PAR_THREAD = 50;
+
+	@Autowired
+	private ClientService clientService;
+
+	@Autowired
+	private ClientRepository clientRepository;
+
+	private Client client;
+
+	@BeforeEach
+	void creerClient() {
+		client = clientService.creerClient("T" + System.nanoTime(), "Concurrence", "Test");
+	}
+
+	@AfterEach
+	void supprimerClient() {
+		clientRepository.deleteById(client.getId());
+	}
+
+	@Test
+	void aucunePerteDeMiseAJourSousForteConcurrence() throws Exception {
+		List<Future<?>> resultats = lancerEnParallele(() -> {
+			for (int i = 0; i < MISES_A_JOUR_PAR_THREAD; i++) {
+				clientService.mettreAJourSoldePoints(client.getId(), 1.0);
+			}
+		});
+		for (Future<?> resultat : resultats) {
+			resultat.get();
+		}
+
+		double attendu = THREADS * MISES_A_JOUR_PAR_THREAD;
+		assertEquals(attendu, clientRepository.findById(client.getId()).orElseThrow().getSoldePoints());
+	}
+
+	@Test
+	void laGardeEmpecheUnSoldeNegatifSousForteConcurrence() throws Exception {
+		clientService.mettreAJourSoldePoints(client.getId(), 10.0);
+		AtomicInteger retraitsAcceptes = new AtomicInteger();
+		AtomicInteger retraitsRefuses = new AtomicInteger();
+
+		List<Future<?>> resultats = lancerEnParallele(() -> {
+			try {
+				clientService.mettreAJourSoldePoints(client.getId(), -1.0);
+				retraitsAcceptes.incrementAndGet();
+			} catch (IllegalStateException e) {
+				retraitsRefuses.incrementAndGet();
+			}
+		});
+		for (Future<?> resultat : resultats) {
+			resultat.get();
+		}
+
+		assertEquals(10, retraitsAcceptes.get());
+		assertEquals(THREADS - 10, retraitsRefuses.get());
+		assertEquals(0.0, clientRepository.findById(client.getId()).orElseThrow().getSoldePoints());
+	}
+
+	// Démarre THREADS tâches en même temps pour maximiser la contention sur la même ligne
+	private List<Future<?>> lancerEnParallele(Runnable tache) throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch depart = new CountDownLatch(1);
+		List<Future<?>> resultats = new ArrayList<>();
+		try {
+			for (int t = 0; t < THREADS; t++) {
+				resultats.add(executor.submit(() -> {
+					depart.await();
+					tache.run();
+					return null;
+				}));
+			}
+			depart.countDown();
+		} finally {
+			executor.shutdown();
+		}
+		return resultats;
+	}
+}
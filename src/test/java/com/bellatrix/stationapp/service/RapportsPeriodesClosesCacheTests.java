@@ -0,0 +1,119 @@
+package com.bellatrix.stationapp.service;
+
+import com.bellatrix.stationapp.dto.TransactionCarburantDto;
+import com.bellatrix.stationapp.service.RapportsPeriodesClosesCache.CleRapport;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Vérifie le cache des rapports des périodes closes : éviction par nombre de transactions, rejet d'un chargement
+ * concurrent d'une invalidation, expiration et invalidation par jour et station. N'a pas besoin de base de données.
+ */
+class RapportsPeriodesClosesCacheTests {
+
+	private static final long DUREE_MS = 600_000;
+
+	private static final CleRapport JANVIER = new CleRapport(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), 1L);
+	private static final CleRapport FEVRIER = new CleRapport(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 29), 1L);
+	private static final CleRapport MARS = new CleRapport(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31), 1L);
+
+	@Test
+	void lesRapportsLesMoinsRecemmentLusSontEvincesAuDelaDuNombreDeTransactions() {
+		RapportsPeriodesClosesCache cache = new RapportsPeriodesClosesCache(10, DUREE_MS);
+		cache.put(JANVIER, rapport(4), cache.generation());
+		cache.put(FEVRIER, rapport(4), cache.generation());
+		// Janvier relu : février devient le moins récemment lu
+		assertTrue(cache.get(JANVIER).isPresent());
+
+		cache.put(MARS, rapport(4), cache.generation());
+		assertTrue(cache.get(JANVIER).isPresent());
+		assertFalse(cache.get(FEVRIER).isPresent());
+		assertTrue(cache.get(MARS).isPresent());
+		assertEquals(2L, cache.statistiques().get("rapports"));
+		assertEquals(8L, cache.statistiques().get("transactions"));
+	}
+
+	@Test
+	void unRapportPlusGrandQueLeCacheNEstPasGarde() {
+		RapportsPeriodesClosesCache cache = new RapportsPeriodesClosesCache(10, DUREE_MS);
+		cache.put(JANVIER, rapport(4), cache.generation());
+		cache.put(FEVRIER, rapport(11), cache.generation());
+
+		assertFalse(cache.get(FEVRIER).isPresent());
+		// Le rapport refusé n'évince rien
+		assertTrue(cache.get(JANVIER).isPresent());
+		assertEquals(4L, cache.statistiques().get("transactions"));
+	}
+
+	@Test
+	void unChargementCommenceAvantUneInvalidationNEstPasPublie() {
+		RapportsPeriodesClosesCache cache = new RapportsPeriodesClosesCache(10, DUREE_MS);
+		long generation = cache.generation();
+		// Vente antidatée enregistrée pendant le chargement, sur un autre mois
+		cache.invalider(LocalDate.of(2024, 3, 15), 1L);
+		cache.put(JANVIER, rapport(4), generation);
+		assertFalse(cache.get(JANVIER).isPresent());
+
+		cache.put(JANVIER, rapport(4), cache.generation());
+		assertTrue(cache.get(JANVIER).isPresent());
+	}
+
+	@Test
+	void unRapportExpireEstRelu() throws InterruptedException {
+		RapportsPeriodesClosesCache cache = new RapportsPeriodesClosesCache(10, 1);
+		cache.put(JANVIER, rapport(4), cache.generation());
+		Thread.sleep(10);
+
+		assertFalse(cache.get(JANVIER).isPresent());
+		assertEquals(0L, cache.statistiques().get("rapports"));
+		assertEquals(0L, cache.statistiques().get("transactions"));
+		assertEquals(1L, cache.statistiques().get("misses"));
+	}
+
+	@Test
+	void lInvalidationNeRetireQueLesRapportsQuiCouvrentLeJourEtLaStation() {
+		RapportsPeriodesClosesCache cache = new RapportsPeriodesClosesCache(100, DUREE_MS);
+		CleRapport janvierStation2 = new CleRapport(JANVIER.debut(), JANVIER.fin(), 2L);
+		CleRapport janvierToutes = new CleRapport(JANVIER.debut(), JANVIER.fin(), null);
+		CleRapport annee = new CleRapport(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31), 1L);
+		List<TransactionCarburantDto> rapportJanvier = rapport(1);
+		cache.put(JANVIER, rapportJanvier, cache.generation());
+		cache.put(FEVRIER, rapport(1), cache.generation());
+		cache.put(janvierStation2, rapport(1), cache.generation());
+		cache.put(janvierToutes, rapport(1), cache.generation());
+		cache.put(annee, rapport(1), cache.generation());
+
+		cache.invalider(LocalDate.of(2024, 2, 29), 1L);
+		// Dernier jour de février, station 1 : février, l'année de la station 1 et rien d'autre
+		assertFalse(cache.get(FEVRIER).isPresent());
+		assertFalse(cache.get(annee).isPresent());
+		assertSame(rapportJanvier, cache.get(JANVIER).orElseThrow());
+		assertTrue(cache.get(janvierStation2).isPresent());
+		assertTrue(cache.get(janvierToutes).isPresent());
+
+		cache.invalider(LocalDate.of(2024, 1, 1), 2L);
+		// Premier jour de janvier, station 2 : son rapport et celui de toutes les stations
+		assertFalse(cache.get(janvierStation2).isPresent());
+		assertFalse(cache.get(janvierToutes).isPresent());
+		assertTrue(cache.get(JANVIER).isPresent());
+		assertEquals(1L, cache.statistiques().get("transactions"));
+	}
+
+	private static List<TransactionCarburantDto> rapport(int transactions) {
+		List<TransactionCarburantDto> rapport = new ArrayList<>();
+		for (long i = 0; i < transactions; i++) {
+			TransactionCarburantDto transaction = new TransactionCarburantDto();
+			transaction.setId(i);
+			rapport.add(transaction);
+		}
+		return List.copyOf(rapport);
+	}
+}
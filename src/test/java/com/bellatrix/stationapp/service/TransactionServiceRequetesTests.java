@@ -0,0 +1,90 @@
+package com.bellatrix.stationapp.service;
+
+import com.bellatrix.stationapp.model.Client;
+import com.bellatrix.stationapp.model.StationService;
+import com.bellatrix.stationapp.model.Utilisateur;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Vérifie que le mappage des listes en DTO ne déclenche pas une requête par ligne (N+1) :
+ * le nombre d'instructions SQL est le même quel que soit le nombre de transactions.
+ * Chaque test s'exécute dans une transaction annulée à la fin : les clients et ventes créés ne restent pas en base.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class TransactionServiceRequetesTests {
+
+	@Autowired
+	private TransactionService transactionService;
+
+	@Autowired
+	private ClientService clientService;
+
+	@Autowired
+	private StationServiceService stationServiceService;
+
+	@Autowired
+	private UtilisateurService utilisateurService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private Statistics statistiques;
+
+	@BeforeEach
+	void activerStatistiques() {
+		statistiques = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+	}
+
+	@Test
+	void historiqueClientEnNombreConstantDeRequetes() {
+		Client petit = clientAvecAchats(2);
+		Client grand = clientAvecAchats(20);
+
+		assertEquals(requetesPour(() -> transactionService.getTransactionsByClientId(petit.getId())),
+				requetesPour(() -> transactionService.getTransactionsByClientId(grand.getId())));
+	}
+
+	@Test
+	void rapportJournalierEnUneSeuleRequete() {
+		clientAvecAchats(5);
+
+		assertEquals(1, requetesPour(() -> transactionService.getDailyTransactionsReport(LocalDate.now())));
+	}
+
+	// Les écritures en attente sont envoyées et le contexte de persistance vidé avant de compter : les entités créées
+	// par le test ne sont pas servies depuis ce contexte, comme dans une requête HTTP
+	private long requetesPour(Runnable appel) {
+		entityManager.flush();
+		entityManager.clear();
+		statistiques.clear();
+		appel.run();
+		return statistiques.getPrepareStatementCount();
+	}
+
+	// Crée un client avec des achats dans les stations et utilisateurs créés par DataLoader
+	private Client clientAvecAchats(int achats) {
+		Client client = clientService.creerClient("R" + System.nanoTime(), "Requetes", "Test");
+		StationService station = stationServiceService.getStationServiceByName("TotalEnergies Kinshasa").orElseThrow();
+		Utilisateur utilisateur = (Utilisateur) utilisateurService.loadUserByUsername("agent1");
+		for (int i = 0; i < achats; i++) {
+			transactionService.enregistrerAchatCarburant(client, station, utilisateur, 10.0, 15.0, false);
+		}
+		return client;
+	}
+}